@@ -3,7 +3,7 @@ package org.dsa.iot.dslink;
 import org.dsa.iot.dslink.connection.DataHandler;
 import org.dsa.iot.dslink.link.Requester;
 import org.dsa.iot.dslink.link.Responder;
-import org.dsa.iot.dslink.methods.StreamState;
+import org.dsa.iot.dslink.methods.responses.ErrorResponse;
 import org.dsa.iot.dslink.node.NodeManager;
 import org.dsa.iot.dslink.node.SubscriptionManager;
 import org.dsa.iot.dslink.serializer.SerializationManager;
@@ -13,8 +13,6 @@ import org.dsa.iot.dslink.util.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -184,24 +182,12 @@ public class DSLink {
                         JsonObject json = (JsonObject) object;
                         try {
                             JsonObject resp = DSLink.this.responder.parse(json);
-                            responses.add(resp);
+                            if (resp != null) {
+                                responses.add(resp);
+                            }
                         } catch (Exception e) {
-                            JsonObject resp = new JsonObject();
                             Integer rid = json.get("rid");
-                            if (rid != null) {
-                                resp.put("rid", rid);
-                            }
-                            resp.put("stream", StreamState.CLOSED.getJsonName());
-
-                            JsonObject err = new JsonObject();
-                            err.put("msg", e.getMessage());
-                            { // Build stack trace
-                                StringWriter writer = new StringWriter();
-                                e.printStackTrace(new PrintWriter(writer));
-                                err.put("detail", writer.toString());
-                            }
-                            resp.put("error", err);
-                            responses.add(resp);
+                            responses.add(ErrorResponse.toJson(rid, e));
                         }
                     }
 
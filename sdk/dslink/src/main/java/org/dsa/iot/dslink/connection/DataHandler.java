@@ -1,6 +1,5 @@
 package org.dsa.iot.dslink.connection;
 
-import org.dsa.iot.dslink.provider.LoopProvider;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.dslink.util.json.EncodingFormat;
 import org.dsa.iot.dslink.util.json.JsonArray;
@@ -27,8 +26,8 @@ public class DataHandler implements MessageTracker {
     private EncodingFormat format;
     private NetworkClient client;
 
-    private Handler<DataReceived> reqHandler;
     private Handler<DataReceived> respHandler;
+    private RequestDispatcher dispatcher;
 
     private QueuedWriteManager reqsManager;
     private QueuedWriteManager respsManager;
@@ -42,7 +41,16 @@ public class DataHandler implements MessageTracker {
     }
 
     public void setReqHandler(Handler<DataReceived> handler) {
-        this.reqHandler = handler;
+        if (handler == null) {
+            this.dispatcher = null;
+            return;
+        }
+        this.dispatcher = new RequestDispatcher(handler, new Handler<Integer>() {
+            @Override
+            public void handle(Integer event) {
+                writeAck(event);
+            }
+        });
     }
 
     public void setRespHandler(Handler<DataReceived> handler) {
@@ -66,13 +74,9 @@ public class DataHandler implements MessageTracker {
 
         final Integer msgId = obj.get("msg");
         final JsonArray requests = obj.get("requests");
-        if (!(reqHandler == null || requests == null)) {
-            LoopProvider.getProvider().schedule(new Runnable() {
-                @Override
-                public void run() {
-                    reqHandler.handle(new DataReceived(msgId, requests));
-                }
-            });
+        RequestDispatcher dispatcher = this.dispatcher;
+        if (!(dispatcher == null || requests == null)) {
+            dispatcher.dispatch(msgId, requests);
         }
 
         final JsonArray responses = obj.get("responses");
@@ -126,6 +130,19 @@ public class DataHandler implements MessageTracker {
         respsManager.post(object, merge);
     }
 
+    /**
+     * Waits for the queued responses to be written out.
+     *
+     * @param threshold Maximum amount of pending response updates.
+     * @param millis How long to wait at most.
+     * @return True if the queue has drained below the threshold.
+     * @see QueuedWriteManager#awaitDrain(int, long)
+     */
+    public boolean awaitResponsesDrained(int threshold, long millis) {
+        QueuedWriteManager manager = respsManager;
+        return manager == null || manager.awaitDrain(threshold, millis);
+    }
+
     /**
      * Writes all the responses back out that the requester requested.
      *
@@ -117,9 +117,52 @@ public class QueuedWriteManager implements Runnable {
             updates.add(it.next());
             it.remove();
         }
+        notifyAll();
         return updates;
     }
 
+    /**
+     * Counts the queued updates. Every merged task counts for as many
+     * updates as it holds, any other task counts for one.
+     *
+     * @return Amount of updates waiting to be written.
+     */
+    public synchronized int getPendingUpdates() {
+        int count = rawTasks.size();
+        for (JsonObject obj : mergedTasks.values()) {
+            JsonArray updates = obj.get("updates");
+            count += updates == null ? 1 : updates.size();
+        }
+        return count;
+    }
+
+    /**
+     * Blocks until the queue holds no more than {@code threshold} updates
+     * so producers can avoid buffering an unbounded amount of data while
+     * the remote endpoint is not keeping up.
+     *
+     * @param threshold Maximum amount of pending updates.
+     * @param millis How long to wait at most.
+     * @return True if the queue has drained below the threshold.
+     * @see #getPendingUpdates()
+     */
+    public synchronized boolean awaitDrain(int threshold, long millis) {
+        long end = System.currentTimeMillis() + millis;
+        while (getPendingUpdates() > threshold) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void run() {
         synchronized (writeMutex) {
             final JsonArray updates;
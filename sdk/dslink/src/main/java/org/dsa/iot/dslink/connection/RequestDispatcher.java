@@ -0,0 +1,360 @@
+package org.dsa.iot.dslink.connection;
+
+import io.netty.util.internal.SystemPropertyUtil;
+import org.dsa.iot.dslink.connection.DataHandler.DataReceived;
+import org.dsa.iot.dslink.provider.LoopProvider;
+import org.dsa.iot.dslink.util.PropertyReference;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches incoming requests onto a fixed set of serial lanes. Each
+ * request is partitioned by the node or stream it refers to so that
+ * related requests are always handled in the order they were received
+ * while unrelated requests are handled in parallel.
+ * <p>
+ * Requests are partitioned as follows:
+ * <ul>
+ *     <li>{@code set}, {@code remove}, {@code invoke} and {@code list} by
+ *     their path.</li>
+ *     <li>{@code subscribe} by its paths when they all share a lane.</li>
+ *     <li>{@code close}, {@code unsubscribe} and subscriptions spanning
+ *     several lanes wait for every lane to handle the requests received
+ *     before them and hold back the requests received after them until
+ *     they are handled, as the streams they refer to can be on any
+ *     lane.</li>
+ *     <li>Everything else by the request ID.</li>
+ * </ul>
+ * The acknowledgement of a message is only issued once every lane has
+ * handled its share of the message's requests.
+ *
+ * @author Samuel Grenier
+ */
+public class RequestDispatcher {
+
+    private static final Logger LOGGER;
+    private static final int DEFAULT_LANES;
+
+    /**
+     * Maximum amount of tasks a lane runs before yielding its thread.
+     */
+    private static final int MAX_RUN = 64;
+
+    /**
+     * Lane of requests that must be handled in order with every lane.
+     */
+    private static final int ALL_LANES = -1;
+
+    private final Handler<DataReceived> handler;
+    private final Handler<Integer> ackHandler;
+    private final Lane[] lanes;
+
+    /**
+     * @param handler Handles the requests of a lane.
+     * @param ackHandler Acknowledges a message once its requests are
+     *                   handled.
+     */
+    public RequestDispatcher(Handler<DataReceived> handler,
+                             Handler<Integer> ackHandler) {
+        this(DEFAULT_LANES, handler, ackHandler);
+    }
+
+    /**
+     * @param lanes Amount of serial lanes.
+     * @param handler Handles the requests of a lane.
+     * @param ackHandler Acknowledges a message once its requests are
+     *                   handled.
+     */
+    public RequestDispatcher(int lanes,
+                             Handler<DataReceived> handler,
+                             Handler<Integer> ackHandler) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes < 1");
+        } else if (handler == null) {
+            throw new NullPointerException("handler");
+        } else if (ackHandler == null) {
+            throw new NullPointerException("ackHandler");
+        }
+        this.handler = handler;
+        this.ackHandler = ackHandler;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * @return Amount of serial lanes.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Dispatches the requests of a message.
+     *
+     * @param msgId Message ID to acknowledge, can be {@code null}.
+     * @param requests Requests to dispatch.
+     */
+    public void dispatch(Integer msgId, JsonArray requests) {
+        if (requests == null) {
+            throw new NullPointerException("requests");
+        }
+        int size = requests.size();
+        if (size == 0) {
+            if (msgId != null) {
+                ackHandler.handle(msgId);
+            }
+            return;
+        }
+
+        int first = lane(requests.get(0));
+        int i = 1;
+        while (i < size && lane(requests.get(i)) == first) {
+            i++;
+        }
+        if (i == size) {
+            // The whole message belongs to a single lane, it is
+            // acknowledged by the handler along with its responses.
+            submit(first, new Task(msgId, requests, null));
+            return;
+        }
+
+        // Requests are split into a part per lane, a request spanning
+        // every lane ends the parts collected so far.
+        List<JsonArray> parts = new ArrayList<>();
+        List<Integer> partLanes = new ArrayList<>();
+        JsonArray[] open = new JsonArray[lanes.length];
+        JsonArray barrier = null;
+        for (int j = 0; j < size; j++) {
+            Object o = requests.get(j);
+            int lane = (j < i) ? first : lane(o);
+            if (lane == ALL_LANES) {
+                if (barrier == null) {
+                    barrier = new JsonArray();
+                    parts.add(barrier);
+                    partLanes.add(ALL_LANES);
+                    Arrays.fill(open, null);
+                }
+                barrier.add(o);
+                continue;
+            }
+            barrier = null;
+            JsonArray part = open[lane];
+            if (part == null) {
+                open[lane] = part = new JsonArray();
+                parts.add(part);
+                partLanes.add(lane);
+            }
+            part.add(o);
+        }
+
+        Frame frame = msgId != null ? new Frame(msgId, parts.size()) : null;
+        for (int j = 0; j < parts.size(); j++) {
+            submit(partLanes.get(j), new Task(null, parts.get(j), frame));
+        }
+    }
+
+    private void submit(int lane, Task task) {
+        if (lane != ALL_LANES) {
+            lanes[lane].submit(task);
+            return;
+        }
+        // Barriers must reach every lane in the same order
+        Barrier barrier = new Barrier(task, lanes.length);
+        synchronized (lanes) {
+            for (Lane l : lanes) {
+                l.submit(barrier);
+            }
+        }
+    }
+
+    private int lane(Object o) {
+        if (lanes.length == 1) {
+            return 0;
+        }
+        JsonObject req = o instanceof JsonObject ? (JsonObject) o : null;
+        if (req == null) {
+            return 0;
+        }
+        String method = req.get("method");
+        if ("close".equals(method) || "unsubscribe".equals(method)) {
+            return ALL_LANES;
+        } else if ("subscribe".equals(method)) {
+            return subscribeLane(req);
+        } else if ("set".equals(method) || "remove".equals(method)
+                || "invoke".equals(method) || "list".equals(method)) {
+            Object path = req.get("path");
+            if (path != null) {
+                return laneOf(path);
+            }
+        }
+        return laneOf(req.get("rid"));
+    }
+
+    private int subscribeLane(JsonObject req) {
+        Object paths = req.get("paths");
+        if (!(paths instanceof JsonArray)) {
+            return ALL_LANES;
+        }
+        int lane = ALL_LANES;
+        for (Object o : (JsonArray) paths) {
+            Object path = null;
+            if (o instanceof JsonObject) {
+                path = ((JsonObject) o).get("path");
+            }
+            int l = laneOf(path);
+            if (path == null || (lane != ALL_LANES && lane != l)) {
+                return ALL_LANES;
+            }
+            lane = l;
+        }
+        return lane;
+    }
+
+    private int laneOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7FFFFFFF) % lanes.length;
+    }
+
+    private class Task implements Runnable {
+
+        private final Integer msgId;
+        private final JsonArray requests;
+        private final Frame frame;
+
+        Task(Integer msgId, JsonArray requests, Frame frame) {
+            this.msgId = msgId;
+            this.requests = requests;
+            this.frame = frame;
+        }
+
+        @Override
+        public void run() {
+            try {
+                handler.handle(new DataReceived(msgId, requests));
+            } finally {
+                if (frame != null && frame.remaining.decrementAndGet() == 0) {
+                    ackHandler.handle(frame.msgId);
+                }
+            }
+        }
+    }
+
+    private static class Frame {
+
+        private final Integer msgId;
+        private final AtomicInteger remaining;
+
+        Frame(Integer msgId, int parts) {
+            this.msgId = msgId;
+            this.remaining = new AtomicInteger(parts);
+        }
+    }
+
+    /**
+     * Task that is submitted to every lane and runs once every lane has
+     * reached it. The lanes that reach it first are parked until it ran.
+     */
+    private static class Barrier implements Runnable {
+
+        private final Runnable task;
+        private final List<Lane> parked;
+        private int remaining;
+
+        Barrier(Runnable task, int lanes) {
+            this.task = task;
+            this.parked = new ArrayList<>(lanes - 1);
+            this.remaining = lanes;
+        }
+
+        /**
+         * @param lane Lane that reached the barrier.
+         * @return Whether the lane is the last to reach the barrier and
+         *         must run it, otherwise the lane is parked.
+         */
+        synchronized boolean arrive(Lane lane) {
+            if (--remaining > 0) {
+                parked.add(lane);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                for (Lane lane : parked) {
+                    lane.resume();
+                }
+            }
+        }
+    }
+
+    private static class Lane implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true)) {
+                LoopProvider.getProvider().schedule(this);
+            }
+        }
+
+        /**
+         * Resumes a lane that was parked on a barrier. Parked lanes stay
+         * scheduled so that submissions do not resume them early.
+         */
+        void resume() {
+            LoopProvider.getProvider().schedule(this);
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            int ran = 0;
+            while (ran++ < MAX_RUN && (task = tasks.poll()) != null) {
+                if (task instanceof Barrier
+                        && !((Barrier) task).arrive(this)) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOGGER.error("Failed to handle requests", e);
+                }
+            }
+            scheduled.set(false);
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                LoopProvider.getProvider().schedule(this);
+            }
+        }
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(RequestDispatcher.class);
+        String s = PropertyReference.REQUEST_LANES;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        DEFAULT_LANES = Math.max(1, SystemPropertyUtil.getInt(s, cpus));
+        LOGGER.debug("-D{}: {}", s, DEFAULT_LANES);
+    }
+}
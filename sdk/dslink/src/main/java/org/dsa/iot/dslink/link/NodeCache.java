@@ -0,0 +1,167 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeManager;
+import org.dsa.iot.dslink.node.NodePair;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounds the nodes a requester materializes for remote paths. Nodes that
+ * are neither subscribed to nor listed are tracked in least recently used
+ * order and are removed from the tree, along with any ancestors that are
+ * left empty, once there are too many of them.
+ *
+ * @author Samuel Grenier
+ */
+class NodeCache {
+
+    private final Map<String, Node> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> listed = new HashMap<>();
+    private final Map<String, Integer> subscribed;
+    private final NodeManager manager;
+    private volatile int maxSize;
+
+    /**
+     * @param manager Manager of the requester nodes.
+     * @param subscribed Subscribed paths, these are never evicted.
+     */
+    NodeCache(NodeManager manager, Map<String, Integer> subscribed) {
+        this.manager = manager;
+        this.subscribed = subscribed;
+    }
+
+    /**
+     * @param maxSize Maximum amount of nodes that are neither subscribed to
+     *                nor listed, 0 for no limit.
+     */
+    void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        synchronized (this) {
+            this.maxSize = maxSize;
+            if (maxSize == 0) {
+                recent.clear();
+            } else {
+                evict();
+            }
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Amount of tracked nodes that can be evicted.
+     */
+    synchronized int size() {
+        return recent.size();
+    }
+
+    /**
+     * Retrieves the node of a remote path, creating it if necessary. Nodes
+     * are created under the same lock their empty ancestors are pruned
+     * under, so a node is never created under a parent being pruned.
+     *
+     * @param path Path of the node.
+     * @return Node of the path.
+     */
+    synchronized NodePair get(String path) {
+        NodePair pair = manager.getNode(path, true);
+        Node node = pair.getNode();
+        if (maxSize > 0 && node != null) {
+            touch(node);
+        }
+        return pair;
+    }
+
+    /**
+     * Prevents a listed path from being evicted until it is released.
+     *
+     * @param path Listed path.
+     */
+    synchronized void pin(String path) {
+        path = NodeManager.normalizePath(path, true);
+        Integer count = listed.get(path);
+        listed.put(path, count == null ? 1 : count + 1);
+        recent.remove(path);
+    }
+
+    /**
+     * Makes a path that is no longer listed or subscribed to evictable.
+     *
+     * @param path Released path.
+     * @param list Whether a list of the path is released.
+     */
+    synchronized void release(String path, boolean list) {
+        path = NodeManager.normalizePath(path, true);
+        if (list) {
+            Integer count = listed.remove(path);
+            if (count != null && count > 1) {
+                listed.put(path, count - 1);
+                return;
+            }
+        }
+        if (maxSize > 0) {
+            Node node = manager.getNode(path, false, false).getNode();
+            if (node != null) {
+                touch(node);
+            }
+        }
+    }
+
+    private void touch(Node node) {
+        if (node == manager.getSuperRoot()) {
+            return;
+        }
+        String path = node.getPath();
+        if (!isPinned(path)) {
+            recent.put(path, node);
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Node>> it = recent.entrySet().iterator();
+        while (recent.size() > maxSize && it.hasNext()) {
+            Map.Entry<String, Node> entry = it.next();
+            it.remove();
+            if (!isPinned(entry.getKey())) {
+                prune(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes the node from the tree if it is empty, followed by any of its
+     * ancestors that are left empty and are not tracked.
+     */
+    private void prune(Node node) {
+        Node root = manager.getSuperRoot();
+        while (node != null && node != root) {
+            Map<String, Node> children = node.getChildren();
+            if (children != null && !children.isEmpty()) {
+                return;
+            }
+            String path = node.getPath();
+            if (recent.containsKey(path) || isPinned(path)) {
+                return;
+            }
+            Node parent = node.getParent();
+            if (parent == null || parent.getChild(node.getName(), false) != node) {
+                return;
+            }
+            parent.removeChild(node, false);
+            node = parent;
+        }
+    }
+
+    private boolean isPinned(String path) {
+        return listed.containsKey(path) || subscribed.containsKey(path);
+    }
+}
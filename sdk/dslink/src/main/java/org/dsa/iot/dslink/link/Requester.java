@@ -19,6 +19,7 @@ import org.dsa.iot.dslink.node.value.SubscriptionValue;
 import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.util.SubData;
 import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
 /**
@@ -55,12 +56,20 @@ public class Requester extends Linkable {
      */
     private final Map<Integer, Handler<SubscriptionValue>> subUpdates = new ConcurrentHashMap<>();
 
+    /**
+     * Mapping of sid->subscription
+     */
+    private final Map<Integer, Subscription> subRecords = new ConcurrentHashMap<>();
+
     /**
      * Mapping of rid->response
      */
     private final Map<Integer, InvokeResponse> invokeResponses = new HashMap<>();
 
     private SubscriptionHelper subscriptionHelper;
+    private NodeCache nodeCache;
+    private int nodeCacheSize;
+    private volatile boolean materializeSubscriptions = true;
 
     /**
      * Constructs a requester
@@ -89,6 +98,63 @@ public class Requester extends Linkable {
         return subscriptionHelper;
     }
 
+    /**
+     * Bounds the amount of nodes the requester keeps for remote paths that
+     * are neither subscribed to nor listed. The least recently used nodes
+     * are removed once the bound is exceeded.
+     *
+     * @param size Maximum amount of nodes, 0 for no limit which is the
+     *             default.
+     */
+    public synchronized void setNodeCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size < 0");
+        }
+        nodeCacheSize = size;
+        if (nodeCache != null) {
+            nodeCache.setMaxSize(size);
+        }
+    }
+
+    /**
+     * Subscribers that only consume the values through their handlers can
+     * stop the requester from creating nodes for the subscribed paths.
+     *
+     * @param materialize Whether subscription updates are applied to nodes,
+     *                    defaults to {@code true}.
+     */
+    public void setMaterializeSubscriptions(boolean materialize) {
+        this.materializeSubscriptions = materialize;
+    }
+
+    /**
+     * @return Whether subscription updates are applied to nodes.
+     */
+    public boolean isMaterializingSubscriptions() {
+        return materializeSubscriptions;
+    }
+
+    /**
+     * Retrieves the node of a remote path, creating it if necessary. The
+     * node is accounted for in the node cache.
+     *
+     * @param path Path of the node.
+     * @return Node of the path and its reference, if any.
+     * @see #setNodeCacheSize(int)
+     */
+    public NodePair resolveNode(String path) {
+        return getNodeCache().get(path);
+    }
+
+    private synchronized NodeCache getNodeCache() {
+        if (nodeCache == null) {
+            NodeManager manager = getDSLink().getNodeManager();
+            nodeCache = new NodeCache(manager, subPaths);
+            nodeCache.setMaxSize(nodeCacheSize);
+        }
+        return nodeCache;
+    }
+
     @SuppressWarnings("unused")
     public Map<String, Integer> getSubscriptionPaths() {
         return Collections.unmodifiableMap(subPaths);
@@ -107,6 +173,14 @@ public class Requester extends Linkable {
         return Collections.unmodifiableMap(subUpdates);
     }
 
+    /**
+     * @param sid Subscription ID.
+     * @return Subscription of the ID or {@code null} if it is not subscribed.
+     */
+    public Subscription getSubscription(int sid) {
+        return subRecords.get(sid);
+    }
+
     public void subscribe(String path,
                           Handler<SubscriptionValue> onUpdate) {
         SubData sub = new SubData(path, null);
@@ -151,6 +225,7 @@ public class Requester extends Linkable {
                 if (onUpdate != null) {
                     subUpdates.put(min, onUpdate);
                 }
+                subRecords.put(min, new Subscription(this, min, path, onUpdate));
                 min++;
             } catch (IllegalArgumentException e) {
                 if (error == null) {
@@ -193,6 +268,10 @@ public class Requester extends Linkable {
                 subs.add(sid);
                 subSids.remove(sid);
                 subUpdates.remove(sid);
+                subRecords.remove(sid);
+                if (getDSLink() != null) {
+                    getNodeCache().release(path, false);
+                }
             }
         }
         UnsubscribeRequest req = new UnsubscribeRequest(subs);
@@ -213,7 +292,11 @@ public class Requester extends Linkable {
         RequestWrapper wrapper = new RequestWrapper(req);
         sendRequest(wrapper, rid);
 
-        reqs.remove(rid);
+        RequestWrapper prev = reqs.remove(rid);
+        if (prev != null && prev.request instanceof ListRequest) {
+            String path = ((ListRequest) prev.request).getPath();
+            getNodeCache().release(path, true);
+        }
         if (onResponse != null) {
             onResponse.handle(new CloseResponse(rid, null));
         }
@@ -258,6 +341,9 @@ public class Requester extends Linkable {
     public int list(ListRequest request, Handler<ListResponse> onResponse) {
         RequestWrapper wrapper = new RequestWrapper(request);
         wrapper.listHandler = onResponse;
+        if (getDSLink() != null) {
+            getNodeCache().pin(request.getPath());
+        }
         return sendRequest(wrapper);
     }
 
@@ -377,13 +463,13 @@ public class Requester extends Linkable {
             }
         }
 
-        final NodeManager manager = link.getNodeManager();
+        final NodeCache cache = getNodeCache();
         boolean closed = StreamState.CLOSED == stream;
 
         switch (method) {
             case "list":
                 ListRequest listRequest = (ListRequest) request;
-                Node node = manager.getNode(listRequest.getPath(), true).getNode();
+                Node node = cache.get(listRequest.getPath()).getNode();
                 String path = node.getPath();
                 SubscriptionManager subs = link.getSubscriptionManager();
                 ListResponse listResp = new ListResponse(link, subs, rid, node, path);
@@ -396,7 +482,7 @@ public class Requester extends Linkable {
             case "set":
                 SetRequest setRequest = (SetRequest) request;
                 path = setRequest.getPath();
-                manager.getNode(path, true);
+                cache.get(path);
                 SetResponse setResponse = new SetResponse(rid, link, path);
                 setResponse.setError(error);
                 setResponse.populate(in);
@@ -406,7 +492,7 @@ public class Requester extends Linkable {
                 break;
             case "remove":
                 RemoveRequest removeRequest = (RemoveRequest) request;
-                NodePair pair = manager.getNode(removeRequest.getPath(), true);
+                NodePair pair = cache.get(removeRequest.getPath());
                 RemoveResponse removeResponse = new RemoveResponse(rid, pair);
                 removeResponse.setError(error);
                 removeResponse.populate(in);
@@ -433,7 +519,7 @@ public class Requester extends Linkable {
             case "invoke":
                 InvokeRequest inReq = (InvokeRequest) request;
                 path = inReq.getPath();
-                manager.getNode(path, true);
+                cache.get(path);
                 InvokeResponse inResp;
                 synchronized (invokeResponses) {
                     switch (stream) {
@@ -454,9 +540,15 @@ public class Requester extends Linkable {
                         inResp = new InvokeResponse(link, rid, path);
                     }
                 }
+                Handler<InvokeBatch> batchHandler = inReq.getBatchHandler();
                 inResp.setStreamState(stream);
                 inResp.setError(error);
+                inResp.setDiscardRows(batchHandler != null);
                 inResp.populate(in);
+                if (batchHandler != null) {
+                    JsonArray updates = in.get("updates");
+                    batchHandler.handle(new InvokeBatch(inResp, updates));
+                }
                 boolean invoke = false;
                 if (inReq.waitForStreamClose()) {
                     if (closed) {
@@ -475,6 +567,9 @@ public class Requester extends Linkable {
 
         if (closed) {
             reqs.remove(rid);
+            if (request instanceof ListRequest) {
+                cache.release(((ListRequest) request).getPath(), true);
+            }
         }
     }
 
@@ -486,6 +581,7 @@ public class Requester extends Linkable {
         subPaths.clear();
         subSids.clear();
         subUpdates.clear();
+        subRecords.clear();
         invokeResponses.clear();
         if (subscriptionHelper != null) {
             subscriptionHelper.clear();
@@ -9,6 +9,7 @@ import org.dsa.iot.dslink.node.Node;
 import org.dsa.iot.dslink.node.NodeManager;
 import org.dsa.iot.dslink.node.NodePair;
 import org.dsa.iot.dslink.node.SubscriptionManager;
+import org.dsa.iot.dslink.node.actions.ActionExecutor;
 import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
@@ -53,7 +54,8 @@ public class Responder extends Linkable {
      * Handles incoming requests
      *
      * @param in Incoming request
-     * @return Outgoing response
+     * @return Outgoing response or {@code null} if the request is handled
+     *         asynchronously and responds once it completes.
      */
     public JsonObject parse(JsonObject in) {
         final Integer rid = in.get("rid");
@@ -102,7 +104,18 @@ public class Responder extends Linkable {
                 if (path == null) {
                     throw new NullPointerException("path");
                 }
-                response = new InvokeResponse(link, rid, path);
+                InvokeResponse invoke = new InvokeResponse(link, rid, path);
+                ActionExecutor executor = invoke.getExecutor();
+                if (executor != null) {
+                    // Registered first so that a close request finds it
+                    resps.put(rid, invoke);
+                    if (!invoke.invokeAsync(executor, in)) {
+                        resps.remove(rid);
+                        throw new RuntimeException("Too many pending invocations: " + path);
+                    }
+                    return null;
+                }
+                response = invoke;
                 break;
             }
             case "close": {
@@ -127,6 +140,11 @@ public class Responder extends Linkable {
         if (!StreamState.CLOSED.getJsonName().equals(resp.get("stream"))) {
             resps.put(rid, response);
         }
+        if (response instanceof InvokeResponse
+                && ((InvokeResponse) response).writeChunks(resp)) {
+            // Written ahead of the remaining chunks to keep them in order
+            return null;
+        }
         return resp;
     }
 }
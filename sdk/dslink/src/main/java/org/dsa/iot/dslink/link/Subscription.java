@@ -0,0 +1,113 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.SubscriptionValue;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.node.value.ValueUtils;
+import org.dsa.iot.dslink.util.handler.Handler;
+
+/**
+ * State of a single subscription of the requester, resolved once when the
+ * subscription is made so that its updates only need to be looked up by
+ * their subscription ID.
+ *
+ * @author Samuel Grenier
+ * @see Requester#getSubscription(int)
+ */
+public final class Subscription {
+
+    private final Requester requester;
+    private final int sid;
+    private final String path;
+    private final Handler<SubscriptionValue> handler;
+
+    private Node node;
+
+    Subscription(Requester requester,
+                 int sid,
+                 String path,
+                 Handler<SubscriptionValue> handler) {
+        this.requester = requester;
+        this.sid = sid;
+        this.path = path;
+        this.handler = handler;
+    }
+
+    /**
+     * @return Subscription ID.
+     */
+    public int getSid() {
+        return sid;
+    }
+
+    /**
+     * @return Subscribed path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return Handler of the updates, if any.
+     */
+    public Handler<SubscriptionValue> getHandler() {
+        return handler;
+    }
+
+    /**
+     * Converts the raw value of an update. Updates without a value are
+     * converted into an empty value of the type of the node they are
+     * materialized on.
+     *
+     * @param object Raw value of the update.
+     * @param ts Timestamp of the update.
+     * @param node Node the update is materialized on, if any.
+     * @return Converted value or {@code null} if the value is empty and its
+     *         type is unknown.
+     * @see #resolveNode()
+     */
+    public Value toValue(Object object, String ts, Node node) {
+        if (object != null) {
+            return ValueUtils.toValue(object, ts);
+        }
+        ValueType type = node != null ? node.getValueType() : null;
+        return type != null ? ValueUtils.toEmptyValue(type, ts) : null;
+    }
+
+    /**
+     * Applies an update to the node of the path. The type of the node is
+     * only updated when it changes.
+     *
+     * @param node Node of the path.
+     * @param value Value of the update.
+     * @see #resolveNode()
+     */
+    public void apply(Node node, Value value) {
+        ValueType t = value.getType();
+        ValueType prev = node.getValueType();
+        if (prev == null || !(prev == t || prev.compare(t))) {
+            node.setValueType(t);
+        }
+        node.setValue(value);
+    }
+
+    /**
+     * Resolves the node of the path. The node is resolved once and reused
+     * while it stays attached to its parent.
+     *
+     * @return Node of the path.
+     */
+    public Node resolveNode() {
+        Node node = this.node;
+        if (node != null) {
+            Node parent = node.getParent();
+            if (parent == null || parent.getChild(node.getName(), false) == node) {
+                return node;
+            }
+        }
+        node = requester.resolveNode(path).getNode();
+        this.node = node;
+        return node;
+    }
+}
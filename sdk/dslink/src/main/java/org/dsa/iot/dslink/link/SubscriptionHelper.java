@@ -1,12 +1,14 @@
 package org.dsa.iot.dslink.link;
 
-import java.util.Comparator;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.dsa.iot.dslink.methods.responses.UnsubscribeResponse;
 import org.dsa.iot.dslink.node.value.SubscriptionValue;
+import org.dsa.iot.dslink.provider.LoopProvider;
 import org.dsa.iot.dslink.util.SubData;
 import org.dsa.iot.dslink.util.handler.Handler;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -25,6 +27,7 @@ public class SubscriptionHelper {
 
     private Requester requester;
     private ConcurrentHashMap<String, Adapter> subscriptions;
+    private volatile boolean serialHandlers;
 
     // Constructors
     // ------------
@@ -57,6 +60,25 @@ public class SubscriptionHelper {
         return this;
     }
 
+    /**
+     * When true, handlers subscribed afterwards each receive their values on their
+     * own serial executor backed by the loop provider, rather than inline on the
+     * update thread.  A slow handler then only delays itself, at the cost of
+     * queuing its pending values.  Handlers already subscribed are not affected.
+     * The default is false.
+     */
+    public SubscriptionHelper setSerialHandlers(boolean serial) {
+        this.serialHandlers = serial;
+        return this;
+    }
+
+    /**
+     * Whether new handlers are given their own serial executor.
+     */
+    public boolean isSerialHandlers() {
+        return serialHandlers;
+    }
+
     /**
      * Safely subscribes the path, even if it is already subscribed.  Calls
      * subscribe with a SubData for the given path and a QOS of 0.
@@ -79,11 +101,11 @@ public class SubscriptionHelper {
         Adapter a = subscriptions.get(path.getPath());
         if (a == null) {
             Adapter adapter = new Adapter();
-            adapter.add(handler);
+            adapter.add(handler, serialHandlers);
             requester.subscribe(path, adapter);
             subscriptions.put(path.getPath(), adapter);
         } else {
-            a.add(handler);
+            a.add(handler, serialHandlers);
         }
         return this;
     }
@@ -128,6 +150,7 @@ public class SubscriptionHelper {
             String path, Handler<UnsubscribeResponse> response) {
         Adapter a = subscriptions.remove(path);
         if (a != null) {
+            a.close();
             requester.unsubscribe(path, response);
         }
         return this;
@@ -138,60 +161,144 @@ public class SubscriptionHelper {
     // -------------
 
     /**
-     * Only identical instances are equal (==).
+     * A subscription value handler that multiplexes callbacks.  Handlers are kept
+     * in a copy-on-write array so dispatching an update is a plain loop.
      */
-    @SuppressFBWarnings("SE_COMPARATOR_SHOULD_BE_SERIALIZABLE")
-    private static class HandlerComparator
-            implements Comparator<Handler<SubscriptionValue>> {
+    private static class Adapter implements Handler<SubscriptionValue> {
+
+        private static final Handler<SubscriptionValue>[] EMPTY = newArray(0);
+        private volatile Handler<SubscriptionValue>[] handlers = EMPTY;
+
+        Adapter() {
+        }
+
+        synchronized Adapter add(Handler<SubscriptionValue> handler, boolean serial) {
+            Handler<SubscriptionValue>[] current = handlers;
+            if (indexOf(current, handler) >= 0) {
+                return this;
+            }
+            Handler<SubscriptionValue>[] tmp = newArray(current.length + 1);
+            System.arraycopy(current, 0, tmp, 0, current.length);
+            tmp[current.length] = serial ? new SerialHandler(handler) : handler;
+            handlers = tmp;
+            return this;
+        }
+
+        /**
+         * Stops the delivery of values still queued for serial handlers.
+         */
+        synchronized void close() {
+            for (Handler<SubscriptionValue> h : handlers) {
+                if (h instanceof SerialHandler) {
+                    ((SerialHandler) h).close();
+                }
+            }
+            handlers = EMPTY;
+        }
+
+        public void handle(SubscriptionValue value) {
+            Handler<SubscriptionValue>[] current = handlers;
+            for (int i = 0; i < current.length; i++) {
+                try {
+                    current[i].handle(value);
+                } catch (Exception x) {
+                    Logger.getGlobal().log(Level.WARNING, value.toString(), x);
+                }
+            }
+        }
 
-        public int compare(Handler<SubscriptionValue> o1, Handler<SubscriptionValue> o2) {
-            if (o1 == o2) {
-                return 0;
+        synchronized void remove(Handler<SubscriptionValue> handler) {
+            Handler<SubscriptionValue>[] current = handlers;
+            int idx = indexOf(current, handler);
+            if (idx < 0) {
+                return;
+            }
+            if (current[idx] instanceof SerialHandler) {
+                ((SerialHandler) current[idx]).close();
+            }
+            if (current.length == 1) {
+                handlers = EMPTY;
+                return;
             }
-            if (System.identityHashCode(o1) <= System.identityHashCode(o2)) {
-                return -1;
+            Handler<SubscriptionValue>[] tmp = newArray(current.length - 1);
+            System.arraycopy(current, 0, tmp, 0, idx);
+            System.arraycopy(current, idx + 1, tmp, idx, tmp.length - idx);
+            handlers = tmp;
+        }
+
+        int size() {
+            return handlers.length;
+        }
+
+        private static int indexOf(Handler<SubscriptionValue>[] handlers,
+                                   Handler<SubscriptionValue> handler) {
+            for (int i = 0; i < handlers.length; i++) {
+                Handler<SubscriptionValue> h = handlers[i];
+                if (h == handler) {
+                    return i;
+                }
+                if ((h instanceof SerialHandler) && (((SerialHandler) h).handler == handler)) {
+                    return i;
+                }
             }
-            return 1;
+            return -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Handler<SubscriptionValue>[] newArray(int size) {
+            return (Handler<SubscriptionValue>[]) new Handler<?>[size];
         }
 
     }
 
     /**
-     * A subscription value handler that multiplexes callbacks.
+     * Delivers values to a handler in order on the loop provider, so the handler
+     * never runs on the update thread.  Once closed, queued values are dropped;
+     * a value the handler is already processing completes.
      */
-    private static class Adapter implements Handler<SubscriptionValue> {
+    private static class SerialHandler implements Handler<SubscriptionValue>, Runnable {
 
-        private static HandlerComparator comparator = new HandlerComparator();
-        private ConcurrentSkipListSet<Handler<SubscriptionValue>> handlers = null;
+        private static final int MAX_RUN = 64;
 
-        Adapter() {
-            handlers = new ConcurrentSkipListSet<Handler<SubscriptionValue>>(comparator);
+        private final Handler<SubscriptionValue> handler;
+        private final Queue<SubscriptionValue> values =
+                new ConcurrentLinkedQueue<SubscriptionValue>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        SerialHandler(Handler<SubscriptionValue> handler) {
+            this.handler = handler;
         }
 
+        void close() {
+            closed = true;
+            values.clear();
+        }
 
-        Adapter add(Handler<SubscriptionValue> handler) {
-            if (!handlers.contains(handler)) {
-                handlers.add(handler);
+        public void handle(SubscriptionValue value) {
+            if (closed) {
+                return;
+            }
+            values.add(value);
+            if (scheduled.compareAndSet(false, true)) {
+                LoopProvider.getProvider().schedule(this);
             }
-            return this;
         }
 
-        public void handle(SubscriptionValue value) {
-            for (Handler<SubscriptionValue> handler : handlers) {
+        public void run() {
+            SubscriptionValue value;
+            int ran = 0;
+            while (!closed && (ran++ < MAX_RUN) && ((value = values.poll()) != null)) {
                 try {
                     handler.handle(value);
                 } catch (Exception x) {
-                    Logger.getGlobal().log(Level.WARNING, value.toString(), value);
+                    Logger.getGlobal().log(Level.WARNING, value.toString(), x);
                 }
             }
-        }
-
-        void remove(Handler<SubscriptionValue> handler) {
-            handlers.remove(handler);
-        }
-
-        int size() {
-            return handlers.size();
+            scheduled.set(false);
+            if (!closed && !values.isEmpty() && scheduled.compareAndSet(false, true)) {
+                LoopProvider.getProvider().schedule(this);
+            }
         }
 
     }
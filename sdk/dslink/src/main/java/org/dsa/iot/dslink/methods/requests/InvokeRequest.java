@@ -1,6 +1,8 @@
 package org.dsa.iot.dslink.methods.requests;
 
 import org.dsa.iot.dslink.methods.Request;
+import org.dsa.iot.dslink.methods.responses.InvokeBatch;
+import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
 /**
@@ -13,6 +15,7 @@ public class InvokeRequest extends Request {
     private final String path;
     private final JsonObject params;
     private boolean waitForStreamClose;
+    private Handler<InvokeBatch> batchHandler;
 
     public InvokeRequest(String path) {
         this(path, null);
@@ -50,6 +53,26 @@ public class InvokeRequest extends Request {
         return waitForStreamClose;
     }
 
+    /**
+     * Delivers the rows of every response on the stream to the handler
+     * instead of accumulating them into the table of the invocation
+     * response. The rows of a batch are discarded once the handler returns
+     * so that long running streams do not grow the memory of the requester.
+     *
+     * @param handler Handler that receives every batch of rows.
+     */
+    public void setBatchHandler(Handler<InvokeBatch> handler) {
+        this.batchHandler = handler;
+    }
+
+    /**
+     * @return Handler that receives every batch of rows or {@code null} if
+     *         the rows are accumulated into the table.
+     */
+    public Handler<InvokeBatch> getBatchHandler() {
+        return batchHandler;
+    }
+
     @Override
     public void addJsonValues(JsonObject out) {
         out.put("path", path);
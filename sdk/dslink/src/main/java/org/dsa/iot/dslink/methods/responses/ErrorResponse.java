@@ -1,5 +1,11 @@
 package org.dsa.iot.dslink.methods.responses;
 
+import org.dsa.iot.dslink.methods.StreamState;
+import org.dsa.iot.dslink.util.json.JsonObject;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 /**
  * Any method response can have an attached error response. An error may occur
  * during any request.
@@ -25,4 +31,29 @@ public class ErrorResponse {
     public String getDetail() {
         return detail;
     }
+
+    /**
+     * Builds the response closing a request that failed.
+     *
+     * @param rid Request ID of the failed request, if any.
+     * @param e Cause of the failure.
+     * @return Closed stream response holding the error.
+     */
+    public static JsonObject toJson(Integer rid, Exception e) {
+        JsonObject resp = new JsonObject();
+        if (rid != null) {
+            resp.put("rid", rid);
+        }
+        resp.put("stream", StreamState.CLOSED.getJsonName());
+
+        JsonObject err = new JsonObject();
+        err.put("msg", e.getMessage());
+        { // Build stack trace
+            StringWriter writer = new StringWriter();
+            e.printStackTrace(new PrintWriter(writer));
+            err.put("detail", writer.toString());
+        }
+        resp.put("error", err);
+        return resp;
+    }
 }
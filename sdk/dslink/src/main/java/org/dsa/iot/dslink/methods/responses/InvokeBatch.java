@@ -0,0 +1,160 @@
+package org.dsa.iot.dslink.methods.responses;
+
+import org.dsa.iot.dslink.methods.StreamState;
+import org.dsa.iot.dslink.node.actions.Parameter;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueUtils;
+import org.dsa.iot.dslink.util.json.Json;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read only view over the rows of a single invocation response. The cells
+ * are read straight from the received data and are only converted when
+ * accessed. A batch is only valid for the duration of the handler it is
+ * delivered to, the rows are not retained afterwards.
+ *
+ * @author Samuel Grenier
+ * @see org.dsa.iot.dslink.methods.requests.InvokeRequest#setBatchHandler
+ */
+public class InvokeBatch {
+
+    private final InvokeResponse response;
+    private final List<Parameter> columns;
+    private final Object[] rows;
+
+    public InvokeBatch(InvokeResponse response, JsonArray updates) {
+        if (response == null) {
+            throw new NullPointerException("response");
+        }
+        this.response = response;
+        this.rows = updates != null ? updates.getList().toArray() : new Object[0];
+        List<Parameter> cols = response.getTable().getColumns();
+        if (cols == null) {
+            this.columns = Collections.emptyList();
+        } else {
+            this.columns = new ArrayList<>(cols);
+        }
+    }
+
+    /**
+     * @return Response of the invocation stream, its table holds the
+     *         columns and metadata but none of the rows.
+     */
+    public InvokeResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return State of the stream after this batch.
+     */
+    public StreamState getState() {
+        return response.getState();
+    }
+
+    /**
+     * @return Mode of the table or {@code null} if none was received.
+     */
+    public Table.Mode getMode() {
+        return response.getTable().getMode();
+    }
+
+    /**
+     * @return Columns received so far on the stream.
+     */
+    public List<Parameter> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * @param name Name of the column.
+     * @return Index of the column or -1 if it does not exist.
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Amount of rows in the batch.
+     */
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return Raw cell as received or {@code null} if the cell is empty.
+     */
+    public Object get(int row, int column) {
+        Object r = rows[row];
+        Object cell = null;
+        if (r instanceof JsonArray) {
+            JsonArray array = (JsonArray) r;
+            cell = column < array.size() ? array.get(column) : null;
+        } else if (r instanceof List) {
+            List<?> list = (List<?>) r;
+            cell = column < list.size() ? list.get(column) : null;
+        } else if (column < columns.size()) {
+            String name = columns.get(column).getName();
+            if (r instanceof JsonObject) {
+                cell = ((JsonObject) r).get(name);
+            } else if (r instanceof Map) {
+                cell = ((Map<?, ?>) r).get(name);
+            }
+        }
+        return Json.update(cell);
+    }
+
+    /**
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return Numeric cell or {@link Double#NaN} if the cell is not a number.
+     */
+    public double getDouble(int row, int column) {
+        Object o = get(row, column);
+        return o instanceof Number ? ((Number) o).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @param def Default when the cell is not a number.
+     * @return Numeric cell.
+     */
+    public long getLong(int row, int column, long def) {
+        Object o = get(row, column);
+        return o instanceof Number ? ((Number) o).longValue() : def;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return Cell as a string or {@code null} if the cell is empty.
+     */
+    public String getString(int row, int column) {
+        Object o = get(row, column);
+        return o != null ? o.toString() : null;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @param column Index of the column.
+     * @return Cell converted into a value or {@code null} if the cell is
+     *         empty.
+     */
+    public Value getValue(int row, int column) {
+        return ValueUtils.toValue(get(row, column));
+    }
+}
@@ -10,35 +10,63 @@ import org.dsa.iot.dslink.methods.StreamState;
 import org.dsa.iot.dslink.node.Node;
 import org.dsa.iot.dslink.node.NodeManager;
 import org.dsa.iot.dslink.node.actions.Action;
+import org.dsa.iot.dslink.node.actions.ActionExecutor;
 import org.dsa.iot.dslink.node.actions.ActionResult;
 import org.dsa.iot.dslink.node.actions.Parameter;
 import org.dsa.iot.dslink.node.actions.table.Modify;
 import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.RowSource;
+import org.dsa.iot.dslink.node.actions.table.RowWriter;
 import org.dsa.iot.dslink.node.actions.table.Table;
 import org.dsa.iot.dslink.node.actions.table.Table.Mode;
-import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.node.value.ValueType;
 import org.dsa.iot.dslink.node.value.ValueUtils;
+import org.dsa.iot.dslink.provider.LoopProvider;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Samuel Grenier
  */
 public class InvokeResponse extends Response {
 
+    /**
+     * Estimated size of the rows held by a single response, larger
+     * one-shot tables are written out in multiple chunks.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Maximum amount of pending responses before another chunk is written.
+     */
+    private static final int DRAIN_THRESHOLD = 16;
+    private static final long DRAIN_DELAY = 10;
+
     private final DSLink link;
 
     private final String path;
     private final int rid;
 
     private Table results;
+    private boolean discardRows;
     private ActionResult actRes;
     private StreamState state;
 
+    private Node node;
+    private Action action;
+
+    // Remaining rows of a one-shot table that is written out in chunks
+    private RowSource chunks;
+
+    // Guards the state of asynchronous invocations
+    private final Object asyncLock = new Object();
+    private boolean asyncRunning;
+    private boolean closeRequested;
+
     public InvokeResponse(DSLink link, int rid, String path) {
         this.link = link;
         this.rid = rid;
@@ -81,6 +109,17 @@ public class InvokeResponse extends Response {
         this.state = state;
     }
 
+    /**
+     * Rows that are populated into a response that discards its rows only
+     * update the columns and metadata of the table.
+     *
+     * @param discard Whether to discard the received rows.
+     * @see InvokeBatch
+     */
+    public void setDiscardRows(boolean discard) {
+        this.discardRows = discard;
+    }
+
     @Override
     public void populate(JsonObject in) {
         if (results == null) {
@@ -121,7 +160,7 @@ public class InvokeResponse extends Response {
         }
         {
             JsonArray updates = in.get("updates");
-            if (updates != null) {
+            if (updates != null && !discardRows) {
                 for (Object object : updates) {
                     if (object == null) {
                         continue;
@@ -146,8 +185,59 @@ public class InvokeResponse extends Response {
         }
     }
 
-    @Override
-    public JsonObject getJsonResponse(final JsonObject in) {
+    /**
+     * @return Executor the action is invoked on or {@code null} if the
+     *         action is invoked inline.
+     * @throws RuntimeException If the node is not invokable.
+     */
+    public ActionExecutor getExecutor() {
+        resolve();
+        return action.getExecutor();
+    }
+
+    /**
+     * Invokes the action on its executor. The response is written once the
+     * invocation completes unless the stream was closed in the meantime.
+     *
+     * @param executor Executor to invoke on.
+     * @param in Original incoming data.
+     * @return Whether the executor accepted the invocation.
+     */
+    public boolean invokeAsync(ActionExecutor executor, final JsonObject in) {
+        return executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (asyncLock) {
+                    if (closeRequested) {
+                        return;
+                    }
+                    asyncRunning = true;
+                }
+                JsonObject out;
+                try {
+                    out = getJsonResponse(in);
+                } catch (Exception e) {
+                    link.getResponder().removeResponse(rid);
+                    out = ErrorResponse.toJson(rid, e);
+                }
+                boolean closed;
+                synchronized (asyncLock) {
+                    asyncRunning = false;
+                    closed = closeRequested;
+                }
+                if (closed) {
+                    closeInvocation();
+                } else if (!writeChunks(out)) {
+                    link.getWriter().writeResponse(out);
+                }
+            }
+        });
+    }
+
+    private void resolve() {
+        if (action != null) {
+            return;
+        }
         NodeManager man = link.getNodeManager();
         Node node = man.getNode(path, false, false).getNode();
         if (node == null) {
@@ -155,10 +245,19 @@ public class InvokeResponse extends Response {
             node = handler.onInvocationFail(path);
         }
 
-        final Action action;
+        Action action;
         if (node == null || (action = node.getAction()) == null) {
             throw new RuntimeException("Node not invokable at " + path);
         }
+        this.node = node;
+        this.action = action;
+    }
+
+    @Override
+    public JsonObject getJsonResponse(final JsonObject in) {
+        resolve();
+        final Node node = this.node;
+        final Action action = this.action;
 
         actRes = new ActionResult(node, in);
         action.invoke(actRes);
@@ -197,21 +296,27 @@ public class InvokeResponse extends Response {
         }
 
         // Handle results
-        {
+        RowSource rows = table.takeRowSource();
+        if (rows != null) {
             JsonArray results = new JsonArray();
-            List<Row> rows = table.getRows(true);
-            if (rows != null) {
-                for (Row r : rows) {
-                    JsonArray row = new JsonArray();
-                    List<Value> values = r.getValues();
-                    if (values != null) {
-                        for (Value v : values) {
-                            row.add(v);
-                        }
-                    }
-                    results.add(row);
+            int size = Integer.MAX_VALUE;
+            if (state == StreamState.CLOSED) {
+                // One-shot tables stream out any remaining rows in chunks
+                size = CHUNK_SIZE;
+            }
+            boolean chunked = false;
+            try {
+                chunked = new RowWriter().fill(rows, results, size);
+            } finally {
+                if (!chunked) {
+                    rows.close();
                 }
-                out.put("updates", results);
+            }
+            out.put("updates", results);
+            if (chunked) {
+                out.put("stream", StreamState.OPEN.getJsonName());
+                chunks = rows;
+                return out;
             }
         }
 
@@ -227,8 +332,97 @@ public class InvokeResponse extends Response {
         return out;
     }
 
+    /**
+     * Writes out a response whose table did not fit in a single chunk
+     * followed by the remaining chunks. Each chunk is only produced once
+     * the pending responses have drained so that the rows are never all
+     * held in memory at once.
+     *
+     * @param first Response holding the first chunk.
+     * @return Whether the response is chunked. If not, the response must be
+     *         written as usual.
+     */
+    public boolean writeChunks(JsonObject first) {
+        final RowSource rows = chunks;
+        if (rows == null) {
+            return false;
+        }
+        chunks = null;
+        link.getWriter().writeResponse(first, false);
+        LoopProvider.getProvider().schedule(new Runnable() {
+
+            private final RowWriter rowWriter = new RowWriter();
+
+            @Override
+            public void run() {
+                DataHandler writer = link.getWriter();
+                synchronized (asyncLock) {
+                    if (closeRequested) {
+                        rows.close();
+                        return;
+                    }
+                }
+                if (!writer.isConnected()) {
+                    link.getResponder().removeResponse(rid);
+                    rows.close();
+                    return;
+                } else if (!writer.awaitResponsesDrained(DRAIN_THRESHOLD, 0)) {
+                    LoopProvider provider = LoopProvider.getProvider();
+                    provider.schedule(this, DRAIN_DELAY, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                JsonObject out = new JsonObject();
+                out.put("rid", rid);
+                boolean more;
+                try {
+                    JsonArray updates = new JsonArray();
+                    more = rowWriter.fill(rows, updates, CHUNK_SIZE);
+                    out.put("updates", updates);
+                } catch (Exception e) {
+                    more = false;
+                    out = ErrorResponse.toJson(rid, e);
+                }
+                if (!more) {
+                    out.put("stream", StreamState.CLOSED.getJsonName());
+                    link.getResponder().removeResponse(rid);
+                    rows.close();
+                }
+                synchronized (asyncLock) {
+                    if (closeRequested) {
+                        if (more) {
+                            rows.close();
+                        }
+                        return;
+                    }
+                    writer.writeResponse(out, false);
+                }
+                if (more) {
+                    LoopProvider.getProvider().schedule(this);
+                }
+            }
+        });
+        return true;
+    }
+
     @Override
     public JsonObject getCloseResponse() {
+        boolean deferred;
+        synchronized (asyncLock) {
+            closeRequested = true;
+            // A running invocation closes itself once it completes
+            deferred = asyncRunning;
+        }
+        if (!deferred) {
+            closeInvocation();
+        }
+        JsonObject obj = new JsonObject();
+        obj.put("rid", rid);
+        obj.put("stream", StreamState.CLOSED.getJsonName());
+        return obj;
+    }
+
+    private void closeInvocation() {
         if (actRes != null) {
             Handler<Void> handler = actRes.getCloseHandler();
             if (handler != null) {
@@ -238,10 +432,6 @@ public class InvokeResponse extends Response {
             Table table = actRes.getTable();
             table.setClosed();
         }
-        JsonObject obj = new JsonObject();
-        obj.put("rid", rid);
-        obj.put("stream", StreamState.CLOSED.getJsonName());
-        return obj;
     }
 
     private void processColumns(Action act, JsonObject obj) {
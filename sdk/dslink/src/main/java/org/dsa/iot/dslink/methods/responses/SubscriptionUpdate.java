@@ -1,30 +1,24 @@
 package org.dsa.iot.dslink.methods.responses;
 
 import org.dsa.iot.dslink.link.Requester;
+import org.dsa.iot.dslink.link.Subscription;
 import org.dsa.iot.dslink.methods.Response;
 import org.dsa.iot.dslink.node.Node;
-import org.dsa.iot.dslink.node.NodeManager;
 import org.dsa.iot.dslink.node.value.SubscriptionValue;
 import org.dsa.iot.dslink.node.value.Value;
-import org.dsa.iot.dslink.node.value.ValueType;
-import org.dsa.iot.dslink.node.value.ValueUtils;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
-import java.util.Map;
-
 /**
  * @author Samuel Grenier
  */
 public class SubscriptionUpdate extends Response {
 
     private final Requester requester;
-    private final NodeManager manager;
 
     public SubscriptionUpdate(Requester requester) {
         this.requester = requester;
-        this.manager = requester.getDSLink().getNodeManager();
     }
 
     @Override
@@ -35,12 +29,10 @@ public class SubscriptionUpdate extends Response {
     @Override
     public void populate(JsonObject in) {
         JsonArray updates = in.get("updates");
-        Map<Integer, String> paths = requester.getSubscriptionIDs();
-        Map<Integer, Handler<SubscriptionValue>> handlers = requester.getSubscriptionHandlers();
+        boolean materialize = requester.isMaterializingSubscriptions();
         if (updates != null) {
             for (Object obj : updates) {
                 int rid;
-                String path;
                 Object valueObj;
                 String timestamp;
                 Number count = null;
@@ -51,13 +43,11 @@ public class SubscriptionUpdate extends Response {
                 if (obj instanceof JsonArray) {
                     JsonArray update = (JsonArray) obj;
                     rid = update.get(0);
-                    path = paths.get(rid);
                     valueObj = update.get(1);
                     timestamp = update.get(2);
                 } else if (obj instanceof JsonObject) {
                     JsonObject update = (JsonObject) obj;
                     rid = update.get("sid");
-                    path = paths.get(rid);
                     valueObj = update.get("value");
                     timestamp = update.get("ts");
                     count = update.get("count");
@@ -68,30 +58,28 @@ public class SubscriptionUpdate extends Response {
                     String err = "Invalid subscription update: " + in;
                     throw new RuntimeException(err);
                 }
-                if (path == null) {
+
+                Subscription sub = requester.getSubscription(rid);
+                if (sub == null) {
                     continue;
                 }
-
-                final Node node = manager.getNode(path, true).getNode();
-                Value val = ValueUtils.toValue(valueObj, timestamp);
+                Node node = materialize ? sub.resolveNode() : null;
+                Value val = sub.toValue(valueObj, timestamp, node);
                 if (val == null) {
-                    ValueType type = node.getValueType();
-                    if (type != null) {
-                        val = ValueUtils.toEmptyValue(type, timestamp);
-                    } else {
-                        continue;
-                    }
+                    continue;
                 }
 
-                Handler<SubscriptionValue> handler = handlers.get(rid);
-                SubscriptionValue value;
+                Handler<SubscriptionValue> handler = sub.getHandler();
                 if (handler != null) {
+                    String path = sub.getPath();
+                    SubscriptionValue value;
                     value = new SubscriptionValue(path, val, count, sum, min, max);
                     handler.handle(value);
                 }
 
-                node.setValueType(val.getType());
-                node.setValue(val);
+                if (node != null) {
+                    sub.apply(node, val);
+                }
             }
         }
     }
@@ -7,7 +7,10 @@ import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.node.value.ValuePair;
 import org.dsa.iot.dslink.node.value.ValueType;
 import org.dsa.iot.dslink.serializer.SerializationManager;
+import org.dsa.iot.dslink.util.CompactMap;
+import org.dsa.iot.dslink.util.StringPool;
 import org.dsa.iot.dslink.util.StringUtils;
+import org.dsa.iot.dslink.util.json.JsonArray;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
@@ -24,14 +27,12 @@ public class Node {
         '%', '.', '/', '\\', '?', '*', ':', '|', '<', '>', '$', '@', ','
     };
 
-    private final Object roConfigLock = new Object();
-    private final Object configLock = new Object();
-
-    private final Object attributeLock = new Object();
-    private final Object interfaceLock = new Object();
-    private final Object childrenLock = new Object();
-    private final Object passwordLock = new Object();
-    private final Object valueLock = new Object();
+    /**
+     * A single lock guards all the mutable state of the node. Large
+     * responder trees can hold millions of nodes so the per node
+     * footprint is kept as small as possible.
+     */
+    private final Object lock = new Object();
 
     private final WeakReference<Node> parent;
     private final Linkable link;
@@ -40,7 +41,7 @@ public class Node {
 
     private boolean serializable = true;
     private Map<String, Node> children;
-    private NodeListener listener;
+    private volatile NodeListener listener;
     private Writable writable;
     private Object metaData;
 
@@ -52,6 +53,7 @@ public class Node {
 
     private ValueType valueType;
     private Value value;
+    private NumericValue numeric;
 
     private String displayName;
     private String profile;
@@ -74,7 +76,6 @@ public class Node {
 
     public Node(String name, Node parent, Linkable link, boolean shouldEncodeName) {
         this.parent = new WeakReference<>(parent);
-        this.listener = new NodeListener(this);
         this.link = link;
         if (shouldEncodeName) {
             name = StringUtils.encodeName(name);
@@ -157,7 +158,7 @@ public class Node {
      * @param profile Profile to set
      */
     public void setProfile(String profile) {
-        this.profile = profile;
+        this.profile = StringPool.intern(profile);
         markChanged();
     }
 
@@ -170,11 +171,28 @@ public class Node {
 
     /**
      * The listener API provides functionality for listening to changes
-     * that occur within a node.
+     * that occur within a node. The listener is created on first access.
      *
      * @return The node's listener.
      */
     public NodeListener getListener() {
+        NodeListener listener = this.listener;
+        if (listener == null) {
+            synchronized (lock) {
+                listener = this.listener;
+                if (listener == null) {
+                    listener = new NodeListener(this);
+                    this.listener = listener;
+                }
+            }
+        }
+        return listener;
+    }
+
+    /**
+     * @return The node's listener or {@code null} if it was never created.
+     */
+    NodeListener peekListener() {
         return listener;
     }
 
@@ -192,20 +210,20 @@ public class Node {
     }
 
     public void addInterface(String _interface) {
-        synchronized (interfaceLock) {
+        synchronized (lock) {
             if (_interface == null) {
                 throw new NullPointerException("_interface");
             } else if (interfaces == null) {
                 interfaces = new HashSet<>();
             }
-            interfaces.add(_interface);
+            interfaces.add(StringPool.intern(_interface));
             markChanged();
         }
     }
 
     @SuppressWarnings("unused")
     public void removeInterface(String _interface) {
-        synchronized (interfaceLock) {
+        synchronized (lock) {
             if (_interface == null) {
                 throw new NullPointerException("_interface");
             } else if (interfaces != null) {
@@ -216,15 +234,16 @@ public class Node {
     }
 
     public void setInterfaces(String interfaces) {
-        synchronized (interfaceLock) {
+        synchronized (lock) {
             if (interfaces == null) {
                 this.interfaces = null;
                 return;
             } else if (this.interfaces == null) {
                 this.interfaces = new HashSet<>();
             }
-            String[] split = interfaces.split("\\|");
-            Collections.addAll(this.interfaces, split);
+            for (String i : interfaces.split("\\|")) {
+                this.interfaces.add(StringPool.intern(i));
+            }
             markChanged();
         }
     }
@@ -272,14 +291,14 @@ public class Node {
             throw new RuntimeException(err);
         }
 
-        ValuePair pair;
-        synchronized (valueLock) {
-            pair = new ValuePair(this.value, value, externalSource);
-        }
-        if (listener.postValueUpdate(pair)) {
-            return false;
+        NodeListener listener = this.listener;
+        if (listener != null && listener.handlesValueUpdates()) {
+            ValuePair pair = new ValuePair(getValue(), value, externalSource);
+            if (listener.postValueUpdate(pair)) {
+                return false;
+            }
+            value = pair.getCurrent();
         }
-        value = pair.getCurrent();
         if (value != null) {
             if (type == null) {
                 String err = "Value type not set on node (" + getPath() + ")";
@@ -314,10 +333,17 @@ public class Node {
                 throw new RuntimeException(err);
             }
         }
-        synchronized (valueLock) {
+        synchronized (lock) {
             Value prev = this.value;
             this.value = value;
-            if ((prev != null && prev.isSerializable())
+            boolean hadNumber = false;
+            NumericValue numeric = this.numeric;
+            if (numeric != null && numeric.isSet) {
+                numeric.isSet = false;
+                hadNumber = true;
+            }
+            if (hadNumber
+                    || (prev != null && prev.isSerializable())
                     || (value != null && value.isSerializable())
                     || (prev == null && value == null)) {
                 markChanged();
@@ -332,10 +358,99 @@ public class Node {
         return true;
     }
 
+    /**
+     * Fast path for high rate numeric points. The number is stored as a
+     * primitive and is published to subscribers without creating a
+     * {@link Value}. A value is only created if it is requested through
+     * {@link #getValue()}. This falls back to {@link #setValue(Value)} when
+     * the listener handles value updates or when the node's value type is
+     * not a number. Numbers without a fractional part are published as
+     * integers.
+     *
+     * @param number Number to set.
+     * @param ts Time of the number in milliseconds since the epoch.
+     * @throws RuntimeException If the node has no value type.
+     */
+    public void setNumber(double number, long ts) {
+        setNumber(number, ts, true);
+    }
+
+    /**
+     * @param number Number to set.
+     * @param ts Time of the number in milliseconds since the epoch.
+     * @param publish Whether to allow a publish to the network.
+     * @return Whether a number was actually set.
+     * @see #setNumber(double, long)
+     */
+    boolean setNumber(double number, long ts, boolean publish) {
+        ValueType type = valueType;
+        if (type == null) {
+            String err = "Value type not set on node (" + getPath() + ")";
+            throw new RuntimeException(err);
+        }
+        NodeListener listener = this.listener;
+        if ((listener != null && listener.handlesValueUpdates())
+                || !(type.compare(ValueType.NUMBER)
+                    || type.compare(ValueType.DYNAMIC))) {
+            Value value = new Value(toNumber(number));
+            value.setTime(ts);
+            return setValue(value, false, publish);
+        }
+
+        synchronized (lock) {
+            NumericValue numeric = this.numeric;
+            if (numeric == null) {
+                numeric = new NumericValue();
+                this.numeric = numeric;
+            }
+            numeric.number = number;
+            numeric.ts = ts;
+            numeric.isSet = true;
+            this.value = null;
+            markChanged();
+            if (publish && link != null) {
+                SubscriptionManager manager = link.getSubscriptionManager();
+                if (manager != null) {
+                    manager.postNumberUpdate(this, number, ts);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the update of the current value for a subscription. A
+     * number set through the fast path is sent without creating a
+     * {@link Value}.
+     *
+     * @param sub Subscription to generate the update for.
+     * @return The generated update.
+     */
+    JsonArray generateUpdate(SubscriptionManager.Subscription sub) {
+        synchronized (lock) {
+            NumericValue numeric = this.numeric;
+            if (this.value == null && numeric != null && numeric.isSet) {
+                return sub.generateUpdate(numeric.number, numeric.ts);
+            }
+        }
+        return sub.generateUpdate(getValue());
+    }
+
     /**
      * @return The value of the node.
      */
     public Value getValue() {
+        Value value = this.value;
+        if (value == null && numeric != null) {
+            synchronized (lock) {
+                value = this.value;
+                NumericValue numeric = this.numeric;
+                if (value == null && numeric.isSet) {
+                    value = numeric.toValue();
+                    this.value = value;
+                }
+            }
+        }
         return value;
     }
 
@@ -403,7 +518,7 @@ public class Node {
      */
     @SuppressWarnings("unused")
     public void clearChildren() {
-        synchronized (childrenLock) {
+        synchronized (lock) {
             if (children != null) {
                 Map<String, Node> children = getChildren();
                 for (Node child : children.values()) {
@@ -490,7 +605,7 @@ public class Node {
      * @return The node
      */
     public Node addChild(Node node) {
-        synchronized (childrenLock) {
+        synchronized (lock) {
             String name = node.getName();
             maybeInitializeChildren();
             if (children.containsKey(name)) {
@@ -527,7 +642,7 @@ public class Node {
         }
         boolean reserialize = false;
 
-        synchronized (childrenLock) {
+        synchronized (lock) {
             for (Node node : nodes) {
                 String name = node.getName();
                 maybeInitializeChildren();
@@ -614,7 +729,7 @@ public class Node {
     }
 
     public Node removeChild(String name, boolean encodeName) {
-        synchronized (childrenLock) {
+        synchronized (lock) {
             if (encodeName) {
                 name = StringUtils.encodeName(name);
             }
@@ -625,8 +740,11 @@ public class Node {
             }
 
             if (child != null) {
-                child.getListener().postNodeRemoved();
-                child.getListener().kill();
+                NodeListener listener = child.peekListener();
+                if (listener != null) {
+                    listener.postNodeRemoved();
+                    listener.kill();
+                }
 
                 if (manager != null) {
                     manager.postChildUpdate(child, true);
@@ -694,7 +812,7 @@ public class Node {
     public Value removeConfig(String name) {
         name = StringUtils.encodeName(name);
         Value ret;
-        synchronized (configLock) {
+        synchronized (lock) {
             ret = configs != null ? configs.remove(name) : null;
         }
         postRemoval("$", name, ret);
@@ -708,7 +826,7 @@ public class Node {
      */
     public Map<String, Value> clearConfigs() {
         Map<String, Value> configs;
-        synchronized (configLock) {
+        synchronized (lock) {
             if (this.configs == null) {
                 return null;
             }
@@ -732,12 +850,12 @@ public class Node {
      * @see Action
      */
     public Value setConfig(String name, Value value) {
-        synchronized (configLock) {
-            name = checkAndEncodeName(name);
+        synchronized (lock) {
+            name = StringPool.intern(checkAndEncodeName(name));
             if (value == null) {
                 throw new NullPointerException("value");
             } else if (configs == null) {
-                configs = new ConcurrentHashMap<>();
+                configs = new CompactMap<>();
             }
             switch (name) {
                 case "params":
@@ -756,9 +874,9 @@ public class Node {
                     throw new IllegalArgumentException(err);
             }
             value.setImmutable();
-            ValueUpdate update = new ValueUpdate(name, value, false);
             NodeListener listener = this.listener;
             if (listener != null) {
+                ValueUpdate update = new ValueUpdate(name, value, false);
                 listener.postConfigUpdate(update);
             }
 
@@ -789,7 +907,7 @@ public class Node {
     public Value removeRoConfig(String name) {
         name = StringUtils.encodeName(name);
         Value ret;
-        synchronized (roConfigLock) {
+        synchronized (lock) {
             ret = roConfigs != null ? roConfigs.remove(name) : null;
         }
         postRemoval("$$", name, ret);
@@ -803,7 +921,7 @@ public class Node {
      */
     public Map<String, Value> clearRoConfigs() {
         Map<String, Value> roConfigs;
-        synchronized (roConfigLock) {
+        synchronized (lock) {
             if (this.roConfigs == null) {
                 return null;
             }
@@ -840,12 +958,12 @@ public class Node {
      * @return The previous value, if any.
      */
     public Value setRoConfig(String name, Value value) {
-        synchronized (roConfigLock) {
-            name = checkAndEncodeName(name);
+        synchronized (lock) {
+            name = StringPool.intern(checkAndEncodeName(name));
             if (value == null) {
                 throw new NullPointerException("value");
             } else if (roConfigs == null) {
-                roConfigs = new ConcurrentHashMap<>();
+                roConfigs = new CompactMap<>();
             }
 
             switch (name) {
@@ -893,7 +1011,7 @@ public class Node {
     public Value removeAttribute(String name) {
         name = StringUtils.encodeName(name);
         Value ret;
-        synchronized (attributeLock) {
+        synchronized (lock) {
             ret = attribs != null ? attribs.remove(name) : null;
         }
         postRemoval("@", name, ret);
@@ -907,7 +1025,7 @@ public class Node {
      */
     public Map<String, Value> clearAttributes() {
         Map<String, Value> attribs;
-        synchronized (attributeLock) {
+        synchronized (lock) {
             if (this.attribs == null) {
                 return null;
             }
@@ -926,16 +1044,19 @@ public class Node {
      * @return The previous attribute value, if any
      */
     public Value setAttribute(String name, Value value) {
-        synchronized (attributeLock) {
-            name = checkAndEncodeName(name);
+        synchronized (lock) {
+            name = StringPool.intern(checkAndEncodeName(name));
             if (value == null) {
                 throw new NullPointerException("value");
             } else if (attribs == null) {
-                attribs = new ConcurrentHashMap<>();
+                attribs = new CompactMap<>();
             }
             value.setImmutable();
-            ValueUpdate update = new ValueUpdate(name, value, false);
-            listener.postAttributeUpdate(update);
+            NodeListener listener = this.listener;
+            if (listener != null) {
+                ValueUpdate update = new ValueUpdate(name, value, false);
+                listener.postAttributeUpdate(update);
+            }
 
             SubscriptionManager man = link.getSubscriptionManager();
             if (man != null) {
@@ -987,7 +1108,7 @@ public class Node {
      * @return Password the node is configured to use.
      */
     public char[] getPassword() {
-        synchronized (passwordLock) {
+        synchronized (lock) {
             return pass != null ? pass.clone() : null;
         }
     }
@@ -1000,7 +1121,7 @@ public class Node {
      * @param password Password to set.
      */
     public void setPassword(char[] password) {
-        synchronized (passwordLock) {
+        synchronized (lock) {
             this.pass = password != null ? password.clone() : null;
             markChanged();
         }
@@ -1140,11 +1261,14 @@ public class Node {
             return;
         }
 
-        ValueUpdate update = new ValueUpdate(name, value, true);
-        if ("$".equals(prefix)) {
-            listener.postConfigUpdate(update);
-        } else if ("@".equals(prefix)) {
-            listener.postAttributeUpdate(update);
+        NodeListener listener = this.listener;
+        if (listener != null) {
+            ValueUpdate update = new ValueUpdate(name, value, true);
+            if ("$".equals(prefix)) {
+                listener.postConfigUpdate(update);
+            } else if ("@".equals(prefix)) {
+                listener.postAttributeUpdate(update);
+            }
         }
 
         SubscriptionManager man = link.getSubscriptionManager();
@@ -1155,6 +1279,43 @@ public class Node {
         markChanged();
     }
 
+    /**
+     * Primitive storage used by {@link #setNumber(double, long)}. Only
+     * allocated for nodes that use the numeric fast path.
+     */
+    private static class NumericValue {
+
+        private double number;
+        private long ts;
+        private boolean isSet;
+
+        Value toValue() {
+            Value value = new Value(toNumber(number));
+            value.setTime(ts);
+            value.setImmutable();
+            return value;
+        }
+    }
+
+    /**
+     * Boxes a number while preserving its integral representation so that
+     * integer values are not published with a fractional part.
+     *
+     * @param number Number to box.
+     * @return An integer or a long if the number has no fractional part,
+     *         otherwise a double.
+     */
+    static Number toNumber(double number) {
+        if (number == Math.rint(number)) {
+            if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                return (int) number;
+            } else if (number >= Long.MIN_VALUE && number < Long.MAX_VALUE) {
+                return (long) number;
+            }
+        }
+        return number;
+    }
+
     /**
      * Checks the string and then returns it. An exception is thrown if the
      * name is invalid in any way.
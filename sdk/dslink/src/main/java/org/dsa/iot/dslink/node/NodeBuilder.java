@@ -139,7 +139,10 @@ public class NodeBuilder {
                 node.setAction(child.getAction());
             }
         }
-        node.setListener(child.getListener());
+        NodeListener listener = child.peekListener();
+        if (listener != null) {
+            node.setListener(listener);
+        }
         return node;
     }
 }
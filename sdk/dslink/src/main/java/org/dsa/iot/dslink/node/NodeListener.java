@@ -14,6 +14,7 @@ import java.lang.ref.WeakReference;
 public class NodeListener {
 
     private final WeakReference<Node> node;
+    private final boolean valueOverridden;
 
     private Handler<ValuePair> valueHandler;
     private Handler<ValueUpdate> configHandler;
@@ -28,6 +29,8 @@ public class NodeListener {
 
     public NodeListener(Node node) {
         this.node = new WeakReference<>(node);
+        this.valueOverridden = getClass() != NodeListener.class
+                && overridesValueUpdate(getClass());
     }
 
     /**
@@ -40,6 +43,15 @@ public class NodeListener {
         valueHandler = handler;
     }
 
+    /**
+     * @return Whether value updates must be posted, either because a value
+     *         handler is set or because {@link #postValueUpdate} is
+     *         overridden.
+     */
+    boolean handlesValueUpdates() {
+        return valueOverridden || valueHandler != null;
+    }
+
     /**
      * Posts a value update calling all the value handler callbacks.
      *
@@ -232,6 +244,17 @@ public class NodeListener {
         setNodeRemovedHandler(null);
     }
 
+    private static boolean overridesValueUpdate(Class<?> clazz) {
+        for (Class<?> c = clazz; c != NodeListener.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("postValueUpdate", ValuePair.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
+
     public static class ValueUpdate {
 
         private final String name;
@@ -49,6 +49,17 @@ public class NodeManager {
         return superRoot;
     }
 
+    /**
+     * Creates a batch to set the values of many nodes at once and publish
+     * them to subscribers in a single response.
+     *
+     * @return A new, empty batch.
+     * @see ValueBatch#flush()
+     */
+    public ValueBatch createValueBatch() {
+        return new ValueBatch(superRoot.getLink());
+    }
+
     public Map<String, Node> getChildren(String path) {
         Node child = getNode(path).getNode();
         if (child == null)
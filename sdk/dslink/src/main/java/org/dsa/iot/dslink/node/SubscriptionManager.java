@@ -7,6 +7,7 @@ import org.dsa.iot.dslink.node.storage.StorageDriver;
 import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.util.Objects;
 import org.dsa.iot.dslink.util.StringUtils;
+import org.dsa.iot.dslink.util.TimeUtils;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
@@ -276,43 +277,128 @@ public class SubscriptionManager {
         for (Map.Entry<Node, Value> entry : updates.entrySet()) {
             Node node = entry.getKey();
             Value val = entry.getValue();
-            if (set) {
-                node.setValue(val, false, false);
+            if (!set) {
+                jsonUpdates = addUpdate(jsonUpdates, node, val);
+            } else if (node.setValue(val, false, false)) {
+                jsonUpdates = addUpdate(jsonUpdates, node);
             }
+        }
+        writeUpdates(jsonUpdates);
+    }
 
-            Subscription sub = valueSubsPaths.get(node.getPath());
-            if (sub != null) {
-                if (!link.isConnected()) {
-                    if (sub.qos() > 0) {
-                        DRIVER.store(sub, val);
-                    }
-                    continue;
-                }
-                if (jsonUpdates == null) {
-                    jsonUpdates = new JsonArray();
+    /**
+     * Posts the current values of multiple nodes to all the remote
+     * endpoints in a single response.
+     *
+     * @param nodes Updated nodes.
+     * @see ValueBatch
+     */
+    public void postValueUpdates(Collection<Node> nodes) {
+        if (nodes == null) {
+            return;
+        }
+        JsonArray jsonUpdates = null;
+        for (Node node : nodes) {
+            jsonUpdates = addUpdate(jsonUpdates, node);
+        }
+        writeUpdates(jsonUpdates);
+    }
+
+    /**
+     * Posts a value update to notify all the remote endpoints of a node
+     * value update.
+     *
+     * @param node Updated node.
+     */
+    public void postValueUpdate(Node node) {
+        writeUpdates(addUpdate(null, node));
+    }
+
+    /**
+     * Adds the update of the node's current value to the updates. Numbers
+     * set through {@link Node#setNumber(double, long)} are added without
+     * creating a value.
+     *
+     * @param updates Updates to add to, can be {@code null}.
+     * @param node Updated node.
+     * @return The updates or a new array if an update was added to
+     *         {@code null} updates.
+     * @see #addUpdate(JsonArray, Node, Value)
+     */
+    private JsonArray addUpdate(JsonArray updates, Node node) {
+        Subscription sub = valueSubsPaths.get(node.getPath());
+        if (sub == null) {
+            return updates;
+        } else if (!link.isConnected()) {
+            return addUpdate(updates, node, node.getValue());
+        }
+        if (updates == null) {
+            updates = new JsonArray();
+        }
+        updates.add(node.generateUpdate(sub));
+        return updates;
+    }
+
+    /**
+     * Adds the update of the node to the updates if the node is subscribed
+     * to. If the link is disconnected the value is stored instead when the
+     * subscription has a QoS level.
+     *
+     * @param updates Updates to add to, can be {@code null}.
+     * @param node Updated node.
+     * @param val New value of the node.
+     * @return The updates or a new array if an update was added to
+     *         {@code null} updates.
+     */
+    private JsonArray addUpdate(JsonArray updates, Node node, Value val) {
+        Subscription sub = valueSubsPaths.get(node.getPath());
+        if (sub != null) {
+            if (!link.isConnected()) {
+                if (sub.qos() > 0) {
+                    DRIVER.store(sub, val);
                 }
-                jsonUpdates.add(sub.generateUpdate(val));
+                return updates;
+            }
+            if (updates == null) {
+                updates = new JsonArray();
             }
+            updates.add(sub.generateUpdate(val));
         }
+        return updates;
+    }
 
-        if (jsonUpdates != null) {
+    private void writeUpdates(JsonArray updates) {
+        if (updates != null) {
             JsonObject resp = new JsonObject();
             resp.put("rid", 0);
-            resp.put("updates", jsonUpdates);
+            resp.put("updates", updates);
             link.getWriter().writeResponse(resp);
         }
     }
 
     /**
-     * Posts a value update to notify all the remote endpoints of a node
-     * value update.
+     * Posts a primitive number update to notify all the remote endpoints
+     * of a node value update. Nothing is allocated if the node is not
+     * subscribed to.
      *
      * @param node Updated node.
+     * @param number New number of the node.
+     * @param ts Time of the update.
+     * @see Node#setNumber(double, long)
      */
-    public void postValueUpdate(Node node) {
-        Value value = node.getValue();
-        Map<Node, Value> map = Collections.singletonMap(node, value);
-        batchValueUpdate(map, false);
+    public void postNumberUpdate(Node node, double number, long ts) {
+        Subscription sub = valueSubsPaths.get(node.getPath());
+        if (sub == null) {
+            return;
+        } else if (!link.isConnected()) {
+            if (sub.qos() > 0) {
+                DRIVER.store(sub, node.getValue());
+            }
+            return;
+        }
+        JsonArray updates = new JsonArray();
+        updates.add(sub.generateUpdate(number, ts));
+        writeUpdates(updates);
     }
 
     /**
@@ -366,5 +452,13 @@ public class SubscriptionManager {
             }
             return update;
         }
+
+        public JsonArray generateUpdate(double number, long ts) {
+            JsonArray update = new JsonArray();
+            update.add(sid());
+            update.add(Node.toNumber(number));
+            update.add(TimeUtils.format(ts));
+            return update;
+        }
     }
 }
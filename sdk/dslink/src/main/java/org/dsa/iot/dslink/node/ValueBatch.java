@@ -0,0 +1,148 @@
+package org.dsa.iot.dslink.node;
+
+import org.dsa.iot.dslink.link.Linkable;
+import org.dsa.iot.dslink.node.value.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects value updates for many nodes and publishes them together. Each
+ * node still validates its new value and posts it to its listener exactly
+ * as {@link Node#setValue(Value)} does. Every accepted value is then sent
+ * to the subscribers in a single response rather than one response per
+ * node. A node queued more than once only keeps its latest update so that
+ * it is set and published once per flush. Numbers go through the same
+ * primitive path as {@link Node#setNumber(double, long)}.
+ * <p>
+ * A batch is not thread safe and is meant to be filled and flushed by a
+ * single thread, such as a poll cycle.
+ *
+ * @author Samuel Grenier
+ * @see NodeManager#createValueBatch()
+ */
+public class ValueBatch {
+
+    private final Linkable link;
+    private final Map<Node, Update> updates = new LinkedHashMap<>();
+
+    ValueBatch(Linkable link) {
+        this.link = link;
+    }
+
+    /**
+     * Queues a value to be set on the node when the batch is flushed.
+     *
+     * @param node Node to update.
+     * @param value Value to set.
+     * @return This batch.
+     */
+    public ValueBatch setValue(Node node, Value value) {
+        Update update = update(node);
+        update.value = value;
+        update.isNumber = false;
+        return this;
+    }
+
+    /**
+     * Queues a number to be set on the node when the batch is flushed.
+     *
+     * @param node Node to update.
+     * @param number Number to set.
+     * @param ts Time of the number in milliseconds since the epoch.
+     * @return This batch.
+     */
+    public ValueBatch setNumber(Node node, double number, long ts) {
+        Update update = update(node);
+        update.value = null;
+        update.number = number;
+        update.ts = ts;
+        update.isNumber = true;
+        return this;
+    }
+
+    /**
+     * @return The amount of nodes waiting to be flushed.
+     */
+    public int size() {
+        return updates.size();
+    }
+
+    /**
+     * Sets all the queued values on their nodes and publishes the accepted
+     * values to subscribers in a single response. Values rejected by a
+     * node's value handler are not published. A value that fails the
+     * validation of its node does not prevent the remaining values from
+     * being set and published, the first failure is thrown once the
+     * accepted values were published with any later failures attached
+     * as suppressed exceptions. The batch is empty afterwards and can be
+     * reused.
+     *
+     * @return The amount of values that were accepted.
+     */
+    public int flush() {
+        List<Node> accepted = new ArrayList<>(updates.size());
+        RuntimeException failure = null;
+        try {
+            for (Map.Entry<Node, Update> entry : updates.entrySet()) {
+                Node node = entry.getKey();
+                Update update = entry.getValue();
+                try {
+                    boolean set;
+                    if (update.isNumber) {
+                        set = node.setNumber(update.number, update.ts, false);
+                    } else {
+                        set = node.setValue(update.value, false, false);
+                    }
+                    if (set) {
+                        accepted.add(node);
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        } finally {
+            updates.clear();
+            SubscriptionManager manager = null;
+            if (link != null) {
+                manager = link.getSubscriptionManager();
+            }
+            if (manager != null) {
+                manager.postValueUpdates(accepted);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return accepted.size();
+    }
+
+    private Update update(Node node) {
+        if (node == null) {
+            throw new NullPointerException("node");
+        }
+        Update update = updates.get(node);
+        if (update == null) {
+            update = new Update();
+            updates.put(node, update);
+        }
+        return update;
+    }
+
+    /**
+     * Latest queued update of a node.
+     */
+    private static class Update {
+
+        private Value value;
+        private double number;
+        private long ts;
+        private boolean isNumber;
+    }
+}
@@ -26,6 +26,7 @@ public class Action {
     private Permission permission;
     private ResultType resultType;
     private boolean hidden;
+    private ActionExecutor executor;
 
     private final Handler<ActionResult> handler;
 
@@ -149,6 +150,28 @@ public class Action {
         this.manager = manager;
     }
 
+    /**
+     * Runs the invocations of the action asynchronously on the designated
+     * executor. The request is acknowledged immediately and the results
+     * are streamed back once the handler completes.
+     *
+     * @param executor Executor to invoke on or {@code null} to invoke
+     *                 inline while the request is parsed.
+     * @return Current object for daisy chaining.
+     */
+    public Action setExecutor(ActionExecutor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @return Executor invocations run on or {@code null} if invocations
+     *         run inline.
+     */
+    public ActionExecutor getExecutor() {
+        return executor;
+    }
+
     /**
      * Invokes the action.
      *
@@ -0,0 +1,89 @@
+package org.dsa.iot.dslink.node.actions;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead for asynchronous action invocations. Invocations of actions
+ * assigned to an executor are acknowledged immediately and run on the
+ * executor's own threads, their results are streamed back once ready.
+ * The amount of concurrent invocations and of pending invocations are
+ * both bounded, invocations beyond the bounds are rejected rather than
+ * delaying unrelated requests. Assign the same executor to several
+ * actions to share a bulkhead between them.
+ *
+ * @author Samuel Grenier
+ * @see Action#setExecutor(ActionExecutor)
+ */
+public class ActionExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param name Name of the executor threads.
+     * @param concurrency Maximum amount of concurrent invocations.
+     * @param queueSize Maximum amount of invocations waiting to run.
+     */
+    public ActionExecutor(final String name, int concurrency, int queueSize) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        } else if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency <= 0");
+        } else if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize <= 0");
+        }
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        executor = new ThreadPoolExecutor(concurrency, concurrency,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                factory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param task Invocation to run.
+     * @return Whether the invocation was accepted.
+     */
+    public boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Amount of invocations currently running.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return Amount of invocations waiting to run.
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting invocations. Pending invocations still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
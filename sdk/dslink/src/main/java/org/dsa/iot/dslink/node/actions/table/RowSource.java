@@ -0,0 +1,28 @@
+package org.dsa.iot.dslink.node.actions.table;
+
+/**
+ * Pull based source of table rows. Rows are only requested once the
+ * connection has capacity to send them so a source backed by a database
+ * cursor or a file only holds a single chunk of rows in memory.
+ *
+ * @author Samuel Grenier
+ * @see Table#setRowSource(RowSource)
+ */
+public interface RowSource extends AutoCloseable {
+
+    /**
+     * Writes the cells of the next row.
+     *
+     * @param writer Writer to write the cells to.
+     * @return Whether a row was written, {@code false} once the source is
+     *         exhausted.
+     */
+    boolean next(RowWriter writer);
+
+    /**
+     * Releases the resources of the source. Called once the source is
+     * exhausted or the stream is closed before it is.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,155 @@
+package org.dsa.iot.dslink.node.actions.table;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonArray;
+
+import java.util.List;
+
+/**
+ * Encodes the cells of rows pulled from a {@link RowSource} directly into
+ * the response without wrapping them into {@link Value}s. Every cell is
+ * added to the row that is currently being written.
+ *
+ * @author Samuel Grenier
+ */
+public class RowWriter {
+
+    private JsonArray row;
+    private int size;
+
+    /**
+     * Adds a number cell.
+     *
+     * @param value Cell value.
+     * @return This writer.
+     */
+    public RowWriter add(double value) {
+        row().add(value);
+        size += 9;
+        return this;
+    }
+
+    /**
+     * Adds an integer cell.
+     *
+     * @param value Cell value.
+     * @return This writer.
+     */
+    public RowWriter add(long value) {
+        row().add(value);
+        size += 9;
+        return this;
+    }
+
+    /**
+     * Adds a boolean cell.
+     *
+     * @param value Cell value.
+     * @return This writer.
+     */
+    public RowWriter add(boolean value) {
+        row().add(value);
+        size += 1;
+        return this;
+    }
+
+    /**
+     * Adds a string cell.
+     *
+     * @param value Cell value, can be {@code null}.
+     * @return This writer.
+     */
+    public RowWriter add(String value) {
+        if (value == null) {
+            return addNull();
+        }
+        row().add(value);
+        size += value.length() + 5;
+        return this;
+    }
+
+    /**
+     * Adds a cell from a value.
+     *
+     * @param value Cell value, can be {@code null}.
+     * @return This writer.
+     */
+    public RowWriter add(Value value) {
+        if (value == null) {
+            return addNull();
+        }
+        row().add(value);
+        if (value.getNumber() != null) {
+            size += 9;
+        } else if (value.getBool() != null) {
+            size += 1;
+        } else if (value.getString() != null) {
+            size += value.getString().length() + 5;
+        } else if (value.getBinary() != null) {
+            size += value.getBinary().length + 5;
+        } else {
+            size += value.toString().length();
+        }
+        return this;
+    }
+
+    /**
+     * Adds an empty cell.
+     *
+     * @return This writer.
+     */
+    public RowWriter addNull() {
+        row().add(null);
+        size += 1;
+        return this;
+    }
+
+    /**
+     * Adds all the cells of a row.
+     *
+     * @param row Row to add.
+     * @return This writer.
+     */
+    public RowWriter add(Row row) {
+        List<Value> values = row.getValues();
+        if (values != null) {
+            for (Value v : values) {
+                add(v);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Pulls rows from the source until the estimated size of the written
+     * rows reaches the designated size.
+     *
+     * @param source Source to pull from.
+     * @param updates Updates to add the rows to.
+     * @param maxSize Estimated size in bytes to stop at.
+     * @return Whether the source may have more rows, {@code false} once it
+     *         is exhausted.
+     */
+    public boolean fill(RowSource source, JsonArray updates, int maxSize) {
+        size = 0;
+        while (size < maxSize) {
+            row = null;
+            boolean written = source.next(this);
+            JsonArray row = this.row;
+            this.row = null;
+            if (!written) {
+                return false;
+            }
+            updates.add(row != null ? row : new JsonArray());
+        }
+        return true;
+    }
+
+    private JsonArray row() {
+        JsonArray row = this.row;
+        if (row == null) {
+            this.row = row = new JsonArray();
+        }
+        return row;
+    }
+}
@@ -11,8 +11,10 @@ import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Constructs a table for action results. This class is not thread safe.
@@ -24,6 +26,8 @@ public class Table {
 
     private List<Parameter> columns;
     private List<Row> rows;
+    private Iterator<Row> rowIterator;
+    private RowSource rowSource;
     private Mode mode;
     private Modify modify;
     private JsonObject meta;
@@ -126,6 +130,121 @@ public class Table {
         }
     }
 
+    /**
+     * Supplies the rows of the table lazily. The rows are pulled from the
+     * iterator as the connection has capacity to send them out rather than
+     * being held in memory all at once. Any rows added to the table are
+     * sent ahead of the iterated rows.
+     * <p>
+     * Rows are only pulled lazily for tables that are closed once the
+     * action completes, an open table drains the iterator when the action
+     * completes.
+     *
+     * @param rows Iterator of rows.
+     * @throws IllegalStateException If the table is already streaming.
+     */
+    public synchronized void setRowIterator(Iterator<Row> rows) {
+        if (rows == null) {
+            throw new NullPointerException("rows");
+        } else if (writer != null) {
+            throw new IllegalStateException("Table is already streaming");
+        }
+        this.rowIterator = rows;
+    }
+
+    /**
+     * Supplies the rows of the table from a pull based source. The cells
+     * are encoded directly as the rows are pulled, see
+     * {@link #setRowIterator(Iterator)} for when rows are pulled. The
+     * source rows are sent after any added or iterated rows.
+     *
+     * @param source Source of rows.
+     * @throws IllegalStateException If the table is already streaming.
+     */
+    public synchronized void setRowSource(RowSource source) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        } else if (writer != null) {
+            throw new IllegalStateException("Table is already streaming");
+        }
+        this.rowSource = source;
+    }
+
+    /**
+     * Removes all the rows from the table, including the row iterator and
+     * row source.
+     *
+     * @return Source of all the rows or {@code null} if the table has no
+     *         rows.
+     */
+    public synchronized RowSource takeRowSource() {
+        final Iterator<Row> rows = takeRows();
+        final RowSource source = rowSource;
+        rowSource = null;
+        if (rows == null) {
+            return source;
+        }
+        return new RowSource() {
+            @Override
+            public boolean next(RowWriter writer) {
+                if (rows.hasNext()) {
+                    writer.add(rows.next());
+                    return true;
+                }
+                return source != null && source.next(writer);
+            }
+
+            @Override
+            public void close() {
+                if (source != null) {
+                    source.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes all the buffered rows from the table. Each row is released
+     * once the returned iterator moves past it.
+     *
+     * @return Iterator of the buffered rows followed by the rows of the
+     *         row iterator or {@code null} if the table has no rows. The
+     *         row source is left in place.
+     * @see #setRowIterator(Iterator)
+     */
+    public synchronized Iterator<Row> takeRows() {
+        final Iterator<Row> buffered = rows != null ? rows.iterator() : null;
+        final Iterator<Row> lazy = rowIterator;
+        rows = null;
+        rowIterator = null;
+        if (buffered == null) {
+            return lazy;
+        }
+        return new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return buffered.hasNext() || (lazy != null && lazy.hasNext());
+            }
+
+            @Override
+            public Row next() {
+                if (buffered.hasNext()) {
+                    Row row = buffered.next();
+                    buffered.remove();
+                    return row;
+                } else if (lazy == null) {
+                    throw new NoSuchElementException();
+                }
+                return lazy.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
     public synchronized Mode getMode() {
         return mode;
     }
@@ -169,6 +288,8 @@ public class Table {
             sendReady();
         }
         rows = null;
+        rowIterator = null;
+        rowSource = null;
         columns = null;
         mode = null;
         modify = null;
@@ -234,6 +355,24 @@ public class Table {
         }
     }
 
+    /**
+     * Waits for the rows written to a streaming table to be sent out. Used
+     * by producers of large tables to only produce more rows once the
+     * connection has caught up.
+     *
+     * @param threshold Maximum amount of pending updates.
+     * @param millis How long to wait at most.
+     * @return True if the stream is established and its pending updates
+     *         are within the threshold.
+     */
+    public boolean waitForDrain(int threshold, long millis) {
+        DataHandler writer;
+        synchronized (this) {
+            writer = this.writer;
+        }
+        return writer != null && writer.awaitResponsesDrained(threshold, millis);
+    }
+
     /**
      * Closes a streaming table. This is not necessary to call for one-shot
      * tables.
@@ -267,6 +406,11 @@ public class Table {
         this.writer = null;
         this.columns = null;
         this.rows = null;
+        this.rowIterator = null;
+        if (rowSource != null) {
+            rowSource.close();
+            rowSource = null;
+        }
         this.mode = null;
         this.modify = null;
         this.closeHandler = null;
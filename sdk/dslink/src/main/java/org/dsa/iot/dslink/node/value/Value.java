@@ -313,7 +313,7 @@ public class Value {
      */
     public long getTime() {
         if (tsDate == -1) {
-            tsDate = TimeUtils.parseTz(tsFormatted).getTime();
+            tsDate = TimeUtils.decode(tsFormatted);
         }
         return tsDate;
     }
@@ -1,6 +1,9 @@
 package org.dsa.iot.dslink.provider;
 
+import io.netty.util.internal.SystemPropertyUtil;
 import org.dsa.iot.dslink.provider.netty.DefaultLoopProvider;
+import org.dsa.iot.dslink.provider.netty.WheelTimerLoopProvider;
+import org.dsa.iot.dslink.util.PropertyReference;
 
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -12,12 +15,17 @@ public abstract class LoopProvider {
     private static LoopProvider PROVIDER;
 
     /**
-     * Gets the current event loop provider.
+     * Gets the current event loop provider. Unless a provider has been set,
+     * the {@link VirtualThreadLoopProvider} is used when it is enabled
+     * through {@link PropertyReference#VIRTUAL_THREADS} and supported by
+     * the runtime, the {@link WheelTimerLoopProvider} when it is enabled
+     * through {@link PropertyReference#TIMER_WHEEL}, otherwise the
+     * {@link DefaultLoopProvider}.
      * @return current event loop provider
      */
     public static LoopProvider getProvider() {
         if (PROVIDER == null) {
-            setProvider(new DefaultLoopProvider());
+            setProvider(createDefault());
         }
         return PROVIDER;
     }
@@ -33,6 +41,17 @@ public abstract class LoopProvider {
         PROVIDER = provider;
     }
 
+    private static LoopProvider createDefault() {
+        String prop = PropertyReference.VIRTUAL_THREADS;
+        if (SystemPropertyUtil.getBoolean(prop, false)
+                && VirtualThreadLoopProvider.isSupported()) {
+            return new VirtualThreadLoopProvider();
+        } else if (SystemPropertyUtil.getBoolean(PropertyReference.TIMER_WHEEL, false)) {
+            return new WheelTimerLoopProvider();
+        }
+        return new DefaultLoopProvider();
+    }
+
     /**
      * Schedule a task on the event loop immediately.
      * @param task a task to schedule
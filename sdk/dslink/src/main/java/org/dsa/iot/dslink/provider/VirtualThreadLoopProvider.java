@@ -0,0 +1,93 @@
+package org.dsa.iot.dslink.provider;
+
+import org.dsa.iot.dslink.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event loop that runs every immediately scheduled task on its own
+ * virtual thread. Tasks that block, such as action handlers performing
+ * JDBC or HTTP calls, then no longer occupy the shared daemon pool. Delayed
+ * and periodic tasks remain on a small pool of platform threads.
+ * <p>
+ * Virtual threads are detected reflectively so that the SDK can still be
+ * built for older runtimes, use {@link #isSupported()} before creating the
+ * provider.
+ *
+ * @author Samuel Grenier
+ */
+public class VirtualThreadLoopProvider extends LoopProvider {
+
+    private static final Logger LOGGER;
+    private static final Method FACTORY;
+    private static final int TIMER_THREADS = 2;
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+
+    public VirtualThreadLoopProvider() {
+        this(TIMER_THREADS);
+    }
+
+    /**
+     * @param timerThreads Amount of platform threads that run delayed and
+     *                     periodic tasks.
+     */
+    public VirtualThreadLoopProvider(int timerThreads) {
+        if (!isSupported()) {
+            String err = "Virtual threads are not supported by this runtime";
+            throw new UnsupportedOperationException(err);
+        } else if (timerThreads < 1) {
+            throw new IllegalArgumentException("timerThreads < 1");
+        }
+        try {
+            this.executor = (ExecutorService) FACTORY.invoke(null);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        this.timer = Objects.createDaemonThreadPool(timerThreads);
+    }
+
+    /**
+     * @return Whether the runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    @Override
+    public void schedule(Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public ScheduledFuture schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        return timer.schedule(task, delay, timeUnit);
+    }
+
+    @Override
+    public ScheduledFuture schedulePeriodic(Runnable task, long initialDelay, long delay, TimeUnit timeUnit) {
+        return timer.scheduleWithFixedDelay(task, initialDelay, delay, timeUnit);
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(VirtualThreadLoopProvider.class);
+        Method factory = null;
+        try {
+            Class<?> clazz = Class.forName("java.util.concurrent.Executors");
+            factory = clazz.getMethod("newVirtualThreadPerTaskExecutor");
+            // Preview builds expose the method but refuse to run it
+            ((ExecutorService) factory.invoke(null)).shutdown();
+        } catch (Throwable t) {
+            LOGGER.debug("Virtual threads unavailable: {}", t.toString());
+            factory = null;
+        }
+        FACTORY = factory;
+    }
+}
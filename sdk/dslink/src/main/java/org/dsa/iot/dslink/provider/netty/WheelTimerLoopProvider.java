@@ -0,0 +1,214 @@
+package org.dsa.iot.dslink.provider.netty;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.dsa.iot.dslink.provider.LoopProvider;
+import org.dsa.iot.dslink.util.Objects;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Event loop that tracks delayed and periodic tasks on a hashed timer
+ * wheel instead of the priority queue of a scheduled thread pool. Adding
+ * and cancelling a timeout are constant time operations which matters
+ * when thousands of short delays are constantly rescheduled and
+ * cancelled. The wheel thread only expires timeouts, the tasks are
+ * handed to a worker executor to run.
+ * <p>
+ * Timeouts are expired with a precision of a single tick.
+ *
+ * @author Samuel Grenier
+ */
+public class WheelTimerLoopProvider extends LoopProvider {
+
+    private static final long TICK_MILLIS = 1;
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private final HashedWheelTimer timer;
+    private final Executor worker;
+
+    public WheelTimerLoopProvider() {
+        this(Objects.getDaemonThreadPool());
+    }
+
+    /**
+     * @param worker Executor that runs the tasks.
+     */
+    public WheelTimerLoopProvider(Executor worker) {
+        this(worker, TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * @param worker Executor that runs the tasks.
+     * @param tick Duration of a single tick of the wheel.
+     * @param unit Unit of the tick duration.
+     * @param ticksPerWheel Size of the wheel.
+     */
+    public WheelTimerLoopProvider(Executor worker,
+                                  long tick,
+                                  TimeUnit unit,
+                                  int ticksPerWheel) {
+        if (worker == null) {
+            throw new NullPointerException("worker");
+        }
+        DefaultThreadFactory factory = new DefaultThreadFactory("dslink-wheel", true);
+        this.timer = new HashedWheelTimer(factory, tick, unit, ticksPerWheel);
+        this.worker = worker;
+    }
+
+    /**
+     * Stops the wheel, any pending timeouts are discarded.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void schedule(Runnable task) {
+        worker.execute(task);
+    }
+
+    @Override
+    public ScheduledFuture schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        WheelFuture fut = new WheelFuture(task, 0);
+        fut.start(delay, timeUnit);
+        return fut;
+    }
+
+    @Override
+    public ScheduledFuture schedulePeriodic(Runnable task, long initialDelay, long delay, TimeUnit timeUnit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay <= 0");
+        }
+        WheelFuture fut = new WheelFuture(task, timeUnit.toNanos(delay));
+        fut.start(initialDelay, timeUnit);
+        return fut;
+    }
+
+    private class WheelFuture implements ScheduledFuture<Object>, TimerTask, Runnable {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final Runnable task;
+        private final long period;
+
+        private volatile Timeout timeout;
+        private volatile long deadline;
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        WheelFuture(Runnable task, long period) {
+            if (task == null) {
+                throw new NullPointerException("task");
+            }
+            this.task = task;
+            this.period = period;
+        }
+
+        void start(long delay, TimeUnit unit) {
+            long nanos = Math.max(0, unit.toNanos(delay));
+            deadline = System.nanoTime() + nanos;
+            timeout = timer.newTimeout(this, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (!cancelled) {
+                worker.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Matches a scheduled thread pool, a failed periodic
+                // task is not scheduled again.
+                failure = t;
+                latch.countDown();
+                return;
+            }
+            if (period > 0) {
+                if (!cancelled) {
+                    start(period, TimeUnit.NANOSECONDS);
+                }
+            } else {
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return false;
+            }
+            cancelled = true;
+            Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            latch.countDown();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            latch.await();
+            return result();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!latch.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        private Object result() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            Throwable failure = this.failure;
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return null;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            long a = getDelay(TimeUnit.NANOSECONDS);
+            long b = o.getDelay(TimeUnit.NANOSECONDS);
+            return a < b ? -1 : (a == b ? 0 : 1);
+        }
+    }
+}
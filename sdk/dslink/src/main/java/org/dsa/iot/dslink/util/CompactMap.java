@@ -0,0 +1,163 @@
+package org.dsa.iot.dslink.util;
+
+import java.util.*;
+
+/**
+ * A thread safe map optimized for holding a handful of entries. Keys and
+ * values are stored in a single flat array that is copied on every write.
+ * Reads never lock and iteration operates on a snapshot. This is intended
+ * for node metadata such as configurations and attributes where a node
+ * typically holds less than a dozen entries and millions of nodes may
+ * exist at once.
+ *
+ * @author Samuel Grenier
+ */
+public class CompactMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] table = EMPTY;
+
+    public CompactMap() {
+    }
+
+    public CompactMap(Map<? extends K, ? extends V> map) {
+        putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return table.length >> 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(table, key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object[] table = this.table;
+        int i = indexOf(table, key);
+        return i >= 0 ? (V) table[i + 1] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        Object[] table = this.table;
+        int i = indexOf(table, key);
+        if (i >= 0) {
+            V prev = (V) table[i + 1];
+            Object[] copy = table.clone();
+            copy[i + 1] = value;
+            this.table = copy;
+            return prev;
+        }
+        Object[] copy = Arrays.copyOf(table, table.length + 2);
+        copy[table.length] = key;
+        copy[table.length + 1] = value;
+        this.table = copy;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(Object key) {
+        Object[] table = this.table;
+        int i = indexOf(table, key);
+        if (i < 0) {
+            return null;
+        }
+        V prev = (V) table[i + 1];
+        if (table.length == 2) {
+            this.table = EMPTY;
+            return prev;
+        }
+        Object[] copy = new Object[table.length - 2];
+        System.arraycopy(table, 0, copy, 0, i);
+        System.arraycopy(table, i + 2, copy, i, table.length - i - 2);
+        this.table = copy;
+        return prev;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = EMPTY;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator(table);
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+        };
+    }
+
+    private static int indexOf(Object[] table, Object key) {
+        if (key == null) {
+            return -1;
+        }
+        for (int i = 0; i < table.length; i += 2) {
+            Object k = table[i];
+            if (k == key || k.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private final Object[] snapshot;
+        private int index;
+        private K last;
+
+        EntryIterator(Object[] snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < snapshot.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) snapshot[index];
+            V value = (V) snapshot[index + 1];
+            index += 2;
+            last = key;
+            return new SimpleImmutableEntry<>(key, value);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            CompactMap.this.remove(last);
+            last = null;
+        }
+    }
+}
@@ -26,6 +26,31 @@ public class PropertyReference {
      */
     public static final String DISPATCH_DELAY = NAMESPACE + ".dispatchDelay";
 
+    /**
+     * An integer property that determines the amount of serial lanes that
+     * incoming requests are dispatched on. Requests of the same stream are
+     * always handled in order on the same lane.
+     *
+     * Default value is the amount of available processors.
+     */
+    public static final String REQUEST_LANES = NAMESPACE + ".requestLanes";
+
+    /**
+     * A boolean property that determines whether the default event loop
+     * runs its tasks on virtual threads when the runtime supports them.
+     *
+     * Default value is false.
+     */
+    public static final String VIRTUAL_THREADS = NAMESPACE + ".virtualThreads";
+
+    /**
+     * A boolean property that determines whether the default event loop
+     * tracks delayed and periodic tasks on a hashed timer wheel.
+     *
+     * Default value is false.
+     */
+    public static final String TIMER_WHEEL = NAMESPACE + ".timerWheel";
+
     /**
      * A boolean property that determines the sdk should perform any
      * validations. Currently only the dslink.json is validated.
@@ -0,0 +1,87 @@
+package org.dsa.iot.dslink.util;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizing pool for strings that are repeated across many nodes
+ * such as configuration names, attribute names and profiles. Decoded
+ * messages and serialized trees would otherwise hold a separate copy of
+ * the same key for every node. The keys of the protocol are always
+ * pooled. Other strings are only pooled weakly, so strings supplied by a
+ * peer are released along with the last node referencing them.
+ *
+ * @author Samuel Grenier
+ */
+public class StringPool {
+
+    private static final Map<String, String> KEYS;
+    private static final Map<String, WeakReference<String>> POOL;
+
+    private StringPool() {
+    }
+
+    /**
+     * Retrieves the canonical instance of the designated string, pooling
+     * it weakly if it is not pooled yet.
+     *
+     * @param string String to canonicalize.
+     * @return Canonical string.
+     */
+    public static String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        String key = KEYS.get(string);
+        if (key != null) {
+            return key;
+        }
+        synchronized (POOL) {
+            WeakReference<String> ref = POOL.get(string);
+            String pooled = ref != null ? ref.get() : null;
+            if (pooled == null) {
+                POOL.put(string, new WeakReference<>(string));
+                pooled = string;
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * Retrieves the canonical instance of a protocol key without locking
+     * or pooling the string. Use this for strings of arbitrary input on
+     * hot paths such as decoded field names.
+     *
+     * @param string String to canonicalize.
+     * @return Canonical key or the string itself if it is not a key.
+     */
+    public static String canonical(String string) {
+        if (string == null) {
+            return null;
+        }
+        String key = KEYS.get(string);
+        return key != null ? key : string;
+    }
+
+    static {
+        POOL = new WeakHashMap<>(256);
+        Map<String, String> keys = new HashMap<>(128);
+        String[] common = new String[] {
+                "$is", "$type", "$name", "$writable", "$interface",
+                "$invokable", "$params", "$columns", "$result", "$hidden",
+                "$permission", "$editor", "$linkData", "$$password",
+                "is", "type", "name", "writable", "interface", "invokable",
+                "params", "columns", "result", "hidden", "permission",
+                "editor", "linkData", "password", "unit", "@unit", "node",
+                "msg", "ack", "requests", "responses", "rid", "sid",
+                "path", "paths", "qos", "method", "stream", "updates",
+                "value", "ts", "meta", "mode"
+        };
+        for (String s : common) {
+            keys.put(s, s);
+        }
+        KEYS = keys;
+    }
+}
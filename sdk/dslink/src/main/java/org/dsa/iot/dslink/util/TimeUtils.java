@@ -2,16 +2,26 @@ package org.dsa.iot.dslink.util;
 
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author Samuel Grenier
  */
 public class TimeUtils {
 
-    private static Calendar calendarCache;
+    private static final AtomicReference<Calendar> calendarCache = new AtomicReference<>();
     public static final int MILLIS_MINUTE = 60 * 1000;
     public static final int MILLIS_HOUR = 60 * MILLIS_MINUTE;
-    private static final Map<String, TimeZone> timezones = new HashMap<String, TimeZone>();
+    private static final Map<String, TimeZone> timezones = new ConcurrentHashMap<>();
+
+    /**
+     * Most timestamps that are formatted or parsed fall within the same
+     * second as the previous one. The last second seen is cached so only
+     * the milliseconds need to be encoded or decoded.
+     */
+    private static volatile SecondCache encodeCache;
+    private static volatile SecondCache decodeCache;
 
     private static final ThreadLocal<DateFormat> FORMAT_TIME_ZONE;
     private static final ThreadLocal<DateFormat> FORMAT;
@@ -69,12 +79,39 @@ public class TimeUtils {
         return TIME_PATTERN;
     }
 
+    /**
+     * Formats the time with the timezone offset of the default timezone.
+     * Consecutive calls within the same second reuse the cached date and
+     * time prefix.
+     *
+     * @param time Time in milliseconds since the epoch.
+     * @return Encoded timestamp.
+     */
     public static String format(long time) {
-        return encode(time, true).toString();
+        long second = time - floorMod(time, 1000);
+        SecondCache cache = encodeCache;
+        if (cache == null || cache.second != second) {
+            StringBuilder buf = encode(second, true);
+            if (!isFixedWidth(buf)) {
+                return encode(time, true).toString();
+            }
+            cache = new SecondCache(second, buf.substring(0, 20), buf.substring(23));
+            encodeCache = cache;
+        }
+        String prefix = cache.prefix;
+        String suffix = cache.suffix;
+        int millis = (int) (time - second);
+        char[] chars = new char[23 + suffix.length()];
+        prefix.getChars(0, 20, chars, 0);
+        chars[20] = (char) ('0' + millis / 100);
+        chars[21] = (char) ('0' + (millis / 10) % 10);
+        chars[22] = (char) ('0' + millis % 10);
+        suffix.getChars(0, suffix.length(), chars, 23);
+        return new String(chars);
     }
 
     public static String format(Date time) {
-        return encode(time.getTime(), true).toString();
+        return format(time.getTime());
     }
 
     public static Date parseTz(String time) {
@@ -341,13 +378,28 @@ public class TimeUtils {
 
     /**
      * This is a convenience that uses reuses and recycles a calendar instance to
-     * get the time in millis.
+     * get the time in millis. Consecutive timestamps within the same second
+     * only have their milliseconds decoded.
      */
     public static long decode(String timestamp) {
+        SecondCache cache = decodeCache;
+        if (cache != null && isFixedWidth(timestamp)
+                && timestamp.regionMatches(0, cache.prefix, 0, 20)
+                && timestamp.regionMatches(23, cache.suffix, 0, cache.suffix.length())
+                && timestamp.length() == 23 + cache.suffix.length()) {
+            int millis = convertDigits('0', timestamp.charAt(20),
+                    timestamp.charAt(21), timestamp.charAt(22));
+            return cache.second + millis;
+        }
         Calendar cal = reuseCalendar();
         decode(timestamp, cal);
         long millis = cal.getTimeInMillis();
         recycleCalendar(cal);
+        if (isFixedWidth(timestamp)) {
+            String prefix = timestamp.substring(0, 20);
+            String suffix = timestamp.substring(23);
+            decodeCache = new SecondCache(millis - floorMod(millis, 1000), prefix, suffix);
+        }
         return millis;
     }
 
@@ -414,12 +466,10 @@ public class TimeUtils {
                     int localOffset = timezone.getOffset(calendar.getTimeInMillis());
                     if (localOffset != tzOff) {
                         String timeZoneName = "Offset" + tzOff;
-                        synchronized (timezones) {
-                            timezone = timezones.get(timeZoneName);
-                            if (timezone == null) {
-                                timezone = new SimpleTimeZone(tzOff, timeZoneName);
-                                timezones.put(timeZoneName, timezone);
-                            }
+                        timezone = timezones.get(timeZoneName);
+                        if (timezone == null) {
+                            timezone = new SimpleTimeZone(tzOff, timeZoneName);
+                            timezones.put(timeZoneName, timezone);
                         }
                         calendar.setTimeZone(timezone);
                     }
@@ -513,9 +563,7 @@ public class TimeUtils {
      * Return a calendar instance for reuse.
      */
     public static void recycleCalendar(Calendar cal) {
-        synchronized (TimeUtils.class) {
-            calendarCache = cal;
-        }
+        calendarCache.set(cal);
     }
 
     /**
@@ -523,11 +571,7 @@ public class TimeUtils {
      * TimeZone.getDefault().
      */
     public static Calendar reuseCalendar() {
-        Calendar cal = null;
-        synchronized (TimeUtils.class) {
-            cal = calendarCache;
-            calendarCache = null;
-        }
+        Calendar cal = calendarCache.getAndSet(null);
         if (cal == null) {
             cal = Calendar.getInstance();
         } else {
@@ -541,11 +585,7 @@ public class TimeUtils {
      * the timezone to TimeZone.getDefault().
      */
     public static Calendar reuseCalendar(long timestamp) {
-        Calendar cal = null;
-        synchronized (TimeUtils.class) {
-            cal = calendarCache;
-            calendarCache = null;
-        }
+        Calendar cal = calendarCache.getAndSet(null);
         if (cal == null) {
             cal = Calendar.getInstance();
         } else {
@@ -575,5 +615,43 @@ public class TimeUtils {
             throw new IllegalStateException();
     }
 
+    /**
+     * Whether the timestamp has a four digit year and a three digit
+     * milliseconds field so the cached prefix and suffix can be used.
+     */
+    private static boolean isFixedWidth(CharSequence timestamp) {
+        if (timestamp.length() < 23 || timestamp.charAt(19) != '.') {
+            return false;
+        }
+        for (int i = 20; i < 23; i++) {
+            char c = timestamp.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return timestamp.length() == 23 || !Character.isDigit(timestamp.charAt(23));
+    }
+
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    /**
+     * A second aligned time along with the encoded date and time prefix
+     * ending with the decimal point and the timezone suffix.
+     */
+    private static class SecondCache {
+
+        private final long second;
+        private final String prefix;
+        private final String suffix;
+
+        SecondCache(long second, String prefix, String suffix) {
+            this.second = second;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
 
 }
@@ -3,6 +3,7 @@ package org.dsa.iot.dslink.util.json.decoders;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import org.dsa.iot.dslink.util.StringPool;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 
@@ -44,7 +45,7 @@ public class MapDecoder {
                                          JsonParser parser)
                                             throws IOException {
         while (parser.nextToken() == JsonToken.FIELD_NAME) {
-            String name = parser.getText();
+            String name = StringPool.canonical(parser.getCurrentName());
             JsonToken token = parser.nextToken();
             if (token == null) {
                 break;
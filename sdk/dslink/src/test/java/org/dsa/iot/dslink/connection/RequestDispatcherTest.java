@@ -0,0 +1,206 @@
+package org.dsa.iot.dslink.connection;
+
+import org.dsa.iot.dslink.connection.DataHandler.DataReceived;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Samuel Grenier
+ */
+public class RequestDispatcherTest {
+
+    private static final int FRAMES = 5000;
+    private static final int REQUESTS = 8;
+    private static final int PATHS = 32;
+
+    @Test
+    public void ordering() throws InterruptedException {
+        final Map<Object, Integer> last = new ConcurrentHashMap<>();
+        final AtomicInteger[] handled = new AtomicInteger[FRAMES];
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final AtomicInteger earlyAcks = new AtomicInteger();
+        final CountDownLatch acks = new CountDownLatch(FRAMES);
+        for (int i = 0; i < FRAMES; i++) {
+            handled[i] = new AtomicInteger();
+        }
+
+        RequestDispatcher dispatcher = new RequestDispatcher(4, new Handler<DataReceived>() {
+            @Override
+            public void handle(DataReceived event) {
+                for (Object o : event.getData()) {
+                    JsonObject req = (JsonObject) o;
+                    Object key = req.get("path");
+                    if (key == null) {
+                        key = req.get("rid");
+                    }
+                    int seq = req.get("seq");
+                    Integer prev = last.put(key, seq);
+                    if (prev != null && prev >= seq) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    int msg = req.get("frame");
+                    handled[msg].incrementAndGet();
+                    Thread.yield();
+                }
+                Integer msgId = event.getMsgId();
+                if (msgId != null) {
+                    ack(msgId);
+                }
+            }
+
+            private void ack(int msgId) {
+                if (handled[msgId].get() != REQUESTS) {
+                    earlyAcks.incrementAndGet();
+                }
+                acks.countDown();
+            }
+        }, new Handler<Integer>() {
+            @Override
+            public void handle(Integer event) {
+                if (handled[event].get() != REQUESTS) {
+                    earlyAcks.incrementAndGet();
+                }
+                acks.countDown();
+            }
+        });
+
+        Random random = new Random(1);
+        int seq = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            JsonArray requests = new JsonArray();
+            for (int r = 0; r < REQUESTS; r++) {
+                JsonObject req = new JsonObject();
+                req.put("frame", f);
+                req.put("seq", seq++);
+                if (random.nextBoolean()) {
+                    req.put("method", "set");
+                    req.put("path", "/p" + random.nextInt(PATHS));
+                    req.put("rid", seq);
+                } else {
+                    req.put("method", random.nextBoolean() ? "invoke" : "close");
+                    req.put("rid", random.nextInt(PATHS));
+                }
+                requests.add(req);
+            }
+            dispatcher.dispatch(f, requests);
+        }
+
+        Assert.assertTrue(acks.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertEquals(0, earlyAcks.get());
+    }
+
+    @Test
+    public void mixedMethods() throws InterruptedException {
+        final Map<Object, Integer> last = new ConcurrentHashMap<>();
+        final AtomicInteger handled = new AtomicInteger();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final CountDownLatch acks = new CountDownLatch(FRAMES);
+        final String[] methods = { "set", "remove", "invoke", "list", "subscribe" };
+
+        RequestDispatcher dispatcher = new RequestDispatcher(4, new Handler<DataReceived>() {
+            @Override
+            public void handle(DataReceived event) {
+                for (Object o : event.getData()) {
+                    JsonObject req = (JsonObject) o;
+                    int seq = req.get("seq");
+                    String method = req.get("method");
+                    if ("close".equals(method) || "unsubscribe".equals(method)) {
+                        // Every earlier request was handled, no later one
+                        if (handled.get() != seq) {
+                            outOfOrder.incrementAndGet();
+                        }
+                    } else if ("subscribe".equals(method)) {
+                        JsonArray paths = req.get("paths");
+                        for (Object p : paths) {
+                            check(((JsonObject) p).get("path"), seq);
+                        }
+                    } else {
+                        check(req.get("path"), seq);
+                    }
+                    handled.incrementAndGet();
+                    Thread.yield();
+                }
+                if (event.getMsgId() != null) {
+                    acks.countDown();
+                }
+            }
+
+            private void check(Object path, int seq) {
+                // A subscription can list the same path twice
+                Integer prev = last.put(path, seq);
+                if (prev != null && prev > seq) {
+                    outOfOrder.incrementAndGet();
+                }
+            }
+        }, new Handler<Integer>() {
+            @Override
+            public void handle(Integer event) {
+                acks.countDown();
+            }
+        });
+
+        Random random = new Random(2);
+        int seq = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            JsonArray requests = new JsonArray();
+            for (int r = 0; r < REQUESTS; r++) {
+                JsonObject req = new JsonObject();
+                req.put("seq", seq++);
+                req.put("rid", seq);
+                int kind = random.nextInt(20);
+                if (kind == 0) {
+                    req.put("method", random.nextBoolean() ? "close" : "unsubscribe");
+                } else if (kind < 5) {
+                    req.put("method", "subscribe");
+                    JsonArray paths = new JsonArray();
+                    int count = 1 + random.nextInt(2);
+                    for (int p = 0; p < count; p++) {
+                        JsonObject sub = new JsonObject();
+                        sub.put("path", "/p" + random.nextInt(PATHS));
+                        sub.put("sid", seq * 2 + p);
+                        paths.add(sub);
+                    }
+                    req.put("paths", paths);
+                } else {
+                    req.put("method", methods[random.nextInt(4)]);
+                    req.put("path", "/p" + random.nextInt(PATHS));
+                }
+                requests.add(req);
+            }
+            dispatcher.dispatch(f, requests);
+        }
+
+        Assert.assertTrue(acks.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertEquals(FRAMES * REQUESTS, handled.get());
+    }
+
+    @Test
+    public void emptyFrame() {
+        final AtomicInteger ack = new AtomicInteger(-1);
+        RequestDispatcher dispatcher = new RequestDispatcher(2, new Handler<DataReceived>() {
+            @Override
+            public void handle(DataReceived event) {
+                Assert.fail("No requests to handle");
+            }
+        }, new Handler<Integer>() {
+            @Override
+            public void handle(Integer event) {
+                ack.set(event);
+            }
+        });
+        dispatcher.dispatch(7, new JsonArray());
+        Assert.assertEquals(7, ack.get());
+    }
+}
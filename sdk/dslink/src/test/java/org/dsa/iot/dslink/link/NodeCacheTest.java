@@ -0,0 +1,120 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Samuel Grenier
+ */
+public class NodeCacheTest {
+
+    @Test
+    public void eviction() {
+        NodeManager manager = new NodeManager(null, "node");
+        Map<String, Integer> subscribed = new ConcurrentHashMap<>();
+        NodeCache cache = new NodeCache(manager, subscribed);
+        cache.setMaxSize(2);
+
+        subscribed.put("/sub/a", 1);
+        cache.get("/sub/a");
+        cache.pin("/list");
+        cache.get("/list");
+
+        cache.get("/a/b");
+        cache.get("/a/c");
+        cache.get("/a/b");
+        cache.get("/d");
+        Assert.assertEquals(2, cache.size());
+
+        // The least recently used node is evicted along with no one else
+        Assert.assertNull(node(manager, "/a/c"));
+        Assert.assertNotNull(node(manager, "/a/b"));
+        Assert.assertNotNull(node(manager, "/d"));
+
+        // Subscribed and listed nodes are never evicted
+        for (int i = 0; i < 10; i++) {
+            cache.get("/tmp/" + i);
+        }
+        Assert.assertNotNull(node(manager, "/sub/a"));
+        Assert.assertNotNull(node(manager, "/list"));
+
+        // Empty ancestors are removed with their last child
+        Assert.assertNull(node(manager, "/a"));
+        Assert.assertNull(node(manager, "/tmp/0"));
+
+        // Released lists become evictable
+        cache.release("/list", true);
+        for (int i = 0; i < 3; i++) {
+            cache.get("/tmp/" + i);
+        }
+        Assert.assertNull(node(manager, "/list"));
+    }
+
+    @Test
+    public void unbounded() {
+        NodeManager manager = new NodeManager(null, "node");
+        NodeCache cache = new NodeCache(manager, new ConcurrentHashMap<String, Integer>());
+        for (int i = 0; i < 100; i++) {
+            cache.get("/a/" + i);
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(100, manager.getNode("/a").getNode().getChildren().size());
+    }
+
+    @Test
+    public void concurrentPruning() throws InterruptedException {
+        final NodeManager manager = new NodeManager(null, "node");
+        final NodeCache cache = new NodeCache(manager, new ConcurrentHashMap<String, Integer>());
+        cache.setMaxSize(2);
+        final AtomicInteger detached = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        // Parents are churned through the cache while a
+                        // listed child is created under them.
+                        String parent = "/p" + (i % 4);
+                        String child = parent + "/c" + id;
+                        cache.get(parent);
+                        cache.pin(child);
+                        Node node = cache.get(child).getNode();
+                        if (!isAttached(manager, node)) {
+                            detached.incrementAndGet();
+                        }
+                        cache.release(child, true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(0, detached.get());
+    }
+
+    private static boolean isAttached(NodeManager manager, Node node) {
+        Node root = manager.getSuperRoot();
+        while (node != root) {
+            Node parent = node.getParent();
+            if (parent == null || parent.getChild(node.getName(), false) != node) {
+                return false;
+            }
+            node = parent;
+        }
+        return true;
+    }
+
+    private static Object node(NodeManager manager, String path) {
+        return manager.getNode(path, false, false).getNode();
+    }
+}
@@ -0,0 +1,195 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.DSLink;
+import org.dsa.iot.dslink.DSLinkHandler;
+import org.dsa.iot.dslink.connection.DataHandler;
+import org.dsa.iot.dslink.methods.StreamState;
+import org.dsa.iot.dslink.node.Permission;
+import org.dsa.iot.dslink.node.actions.Action;
+import org.dsa.iot.dslink.node.actions.ActionExecutor;
+import org.dsa.iot.dslink.node.actions.ActionResult;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.dsa.iot.dslink.connection.DataHandler.DataReceived;
+
+/**
+ * Tests the asynchronous invocations of the responder.
+ *
+ * @author Samuel Grenier
+ */
+public class ResponderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BlockingQueue<Integer> started = new LinkedBlockingQueue<>();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private ActionExecutor executor;
+    private Writer writer;
+    private StreamState state = StreamState.CLOSED;
+
+    @Before
+    public void setup() {
+        DSLink link = new DSLink(new DSLinkHandler() {}, false, "/") {};
+        writer = new Writer();
+        link.setWriter(writer);
+        link.setDefaultDataHandlers(false, true);
+
+        executor = new ActionExecutor("test", 1, 4);
+        Action action = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                started.add(event.getJsonIn().<Integer>get("rid"));
+                event.setStreamState(state);
+                event.setCloseHandler(new Handler<Void>() {
+                    @Override
+                    public void handle(Void event) {
+                        closed.incrementAndGet();
+                    }
+                });
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        action.setExecutor(executor);
+        link.getNodeManager().createRootNode("a").setAction(action).build();
+    }
+
+    @After
+    public void teardown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void acksBeforeCompletion() throws InterruptedException {
+        List<JsonObject> frame = writer.receive(1, invoke(1));
+        Assert.assertTrue(frame.isEmpty());
+        Assert.assertEquals(Integer.valueOf(1), writer.acks.poll());
+        Assert.assertEquals(Integer.valueOf(1), started.poll(5, TimeUnit.SECONDS));
+        Assert.assertTrue(writer.responses.isEmpty());
+
+        // The result is written through the response queue once complete
+        release.countDown();
+        JsonObject resp = writer.responses.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(resp);
+        Assert.assertEquals(1, (int) resp.<Integer>get("rid"));
+        Assert.assertEquals(StreamState.CLOSED.getJsonName(), resp.get("stream"));
+    }
+
+    @Test
+    public void closeBeforeStart() throws InterruptedException {
+        writer.receive(1, invoke(1));
+        Assert.assertEquals(Integer.valueOf(1), started.poll(5, TimeUnit.SECONDS));
+
+        // Queued behind the first invocation and closed before it starts
+        writer.receive(2, invoke(2));
+        List<JsonObject> frame = writer.receive(3, close(2));
+        Assert.assertEquals(1, frame.size());
+        Assert.assertEquals(2, (int) frame.get(0).<Integer>get("rid"));
+
+        release.countDown();
+        assertResponse(1);
+
+        // Invocations run in order so the closed one must have been skipped
+        writer.receive(4, invoke(3));
+        assertResponse(3);
+        Assert.assertEquals(Integer.valueOf(3), started.poll());
+        Assert.assertTrue(started.isEmpty());
+        Assert.assertTrue(writer.responses.isEmpty());
+        Assert.assertEquals(0, closed.get());
+    }
+
+    @Test
+    public void closeWhileRunning() throws InterruptedException {
+        state = StreamState.OPEN;
+        writer.receive(1, invoke(1));
+        Assert.assertEquals(Integer.valueOf(1), started.poll(5, TimeUnit.SECONDS));
+
+        List<JsonObject> frame = writer.receive(2, close(1));
+        Assert.assertEquals(1, frame.size());
+        Assert.assertEquals(1, (int) frame.get(0).<Integer>get("rid"));
+        Assert.assertEquals(0, closed.get());
+
+        // The close is applied once the invocation completes
+        release.countDown();
+        writer.receive(3, invoke(2));
+        assertResponse(2);
+        Assert.assertEquals(1, closed.get());
+        Assert.assertTrue(writer.responses.isEmpty());
+    }
+
+    private void assertResponse(int rid) throws InterruptedException {
+        JsonObject resp = writer.responses.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(resp);
+        Assert.assertEquals(rid, (int) resp.<Integer>get("rid"));
+    }
+
+    private static JsonObject invoke(int rid) {
+        JsonObject obj = new JsonObject();
+        obj.put("rid", rid);
+        obj.put("method", "invoke");
+        obj.put("path", "/a");
+        return obj;
+    }
+
+    private static JsonObject close(int rid) {
+        JsonObject obj = new JsonObject();
+        obj.put("rid", rid);
+        obj.put("method", "close");
+        return obj;
+    }
+
+    private static class Writer extends DataHandler {
+
+        private final BlockingQueue<JsonObject> responses = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Integer> acks = new LinkedBlockingQueue<>();
+        private final List<JsonObject> frame = new ArrayList<>();
+        private Handler<DataReceived> handler;
+
+        @Override
+        public void setReqHandler(Handler<DataReceived> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void writeResponse(JsonObject object, boolean merge) {
+            responses.add(object);
+        }
+
+        @Override
+        public void writeRequestResponses(Integer ackId,
+                                          Collection<JsonObject> objects) {
+            frame.addAll(objects);
+            acks.add(ackId);
+        }
+
+        /**
+         * @return Responses written inline with the frame's ack.
+         */
+        List<JsonObject> receive(int msgId, JsonObject request) {
+            JsonArray data = new JsonArray();
+            data.add(request);
+            frame.clear();
+            handler.handle(new DataReceived(msgId, data));
+            return new ArrayList<>(frame);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.methods.responses.UnsubscribeResponse;
+import org.dsa.iot.dslink.node.value.SubscriptionValue;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.SubData;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aaron Hansen
+ */
+public class SubscriptionHelperTest {
+
+    @Test
+    public void addAndRemove() {
+        TestRequester requester = new TestRequester();
+        SubscriptionHelper helper = new SubscriptionHelper(requester);
+        Recorder a = new Recorder();
+        Recorder b = new Recorder();
+        helper.subscribe("/a", a);
+        helper.subscribe("/a", b);
+        helper.subscribe("/a", b);
+        Assert.assertEquals(1, requester.subscribed);
+
+        requester.adapter.handle(value(1));
+        Assert.assertEquals(1, a.values.size());
+        Assert.assertEquals(1, b.values.size());
+
+        helper.unsubscribe("/a", a, null);
+        requester.adapter.handle(value(2));
+        Assert.assertEquals(1, a.values.size());
+        Assert.assertEquals(2, b.values.size());
+        Assert.assertEquals(0, requester.unsubscribed);
+
+        helper.unsubscribe("/a", b, null);
+        Assert.assertEquals(1, requester.unsubscribed);
+    }
+
+    @Test
+    public void serialDelivery() throws InterruptedException {
+        TestRequester requester = new TestRequester();
+        SubscriptionHelper helper = new SubscriptionHelper(requester);
+        helper.setSerialHandlers(true);
+        final Thread caller = Thread.currentThread();
+        final List<Integer> received = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean[] onCaller = new boolean[1];
+        helper.subscribe("/a", new Handler<SubscriptionValue>() {
+            @Override
+            public void handle(SubscriptionValue event) {
+                if (Thread.currentThread() == caller) {
+                    onCaller[0] = true;
+                }
+                received.add(event.getValue().getNumber().intValue());
+                if (received.size() == 1000) {
+                    done.countDown();
+                }
+            }
+        });
+        for (int i = 0; i < 1000; i++) {
+            requester.adapter.handle(value(i));
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(onCaller[0]);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, (int) received.get(i));
+        }
+    }
+
+    @Test
+    public void removedSerialHandler() throws InterruptedException {
+        TestRequester requester = new TestRequester();
+        SubscriptionHelper helper = new SubscriptionHelper(requester);
+        helper.setSerialHandlers(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<SubscriptionValue> received = new CopyOnWriteArrayList<>();
+        Handler<SubscriptionValue> handler = new Handler<SubscriptionValue>() {
+            @Override
+            public void handle(SubscriptionValue event) {
+                received.add(event);
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        Recorder other = new Recorder();
+        helper.subscribe("/a", handler);
+        helper.subscribe("/a", other);
+        for (int i = 0; i < 10; i++) {
+            requester.adapter.handle(value(i));
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Values still queued are dropped once the handler is removed
+        helper.unsubscribe("/a", handler, null);
+        release.countDown();
+        requester.adapter.handle(value(10));
+        Thread.sleep(200);
+        Assert.assertEquals(1, received.size());
+
+        // Removing every handler at once stops delivery as well
+        helper.unsubscribeAll("/a", null);
+        requester.adapter.handle(value(11));
+        Thread.sleep(200);
+        Assert.assertEquals(11, other.values.size());
+    }
+
+    private static SubscriptionValue value(int i) {
+        return new SubscriptionValue("/a", new Value(i), null, null, null, null);
+    }
+
+    private static class Recorder implements Handler<SubscriptionValue> {
+
+        private final List<SubscriptionValue> values = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void handle(SubscriptionValue event) {
+            values.add(event);
+        }
+    }
+
+    private static class TestRequester extends Requester {
+
+        private Handler<SubscriptionValue> adapter;
+        private int subscribed;
+        private int unsubscribed;
+
+        TestRequester() {
+            super(null);
+        }
+
+        @Override
+        public void subscribe(SubData path, Handler<SubscriptionValue> onUpdate) {
+            adapter = onUpdate;
+            subscribed++;
+        }
+
+        @Override
+        public void unsubscribe(String path, Handler<UnsubscribeResponse> onResponse) {
+            unsubscribed++;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.dsa.iot.dslink.link;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Samuel Grenier
+ */
+public class SubscriptionTest {
+
+    private static final String TS = "2016-01-01T00:00:00.000Z";
+
+    @Test
+    public void emptyValues() {
+        Subscription sub = new Subscription(null, 1, "/a", null);
+        Assert.assertNull(sub.toValue(null, TS, null));
+
+        // The type of a listed node applies to the first update
+        Node node = new Node("a", null, null);
+        Assert.assertNull(sub.toValue(null, TS, node));
+        node.setValueType(ValueType.NUMBER);
+        Value val = sub.toValue(null, TS, node);
+        Assert.assertNotNull(val);
+        Assert.assertEquals(ValueType.NUMBER, val.getType());
+        Assert.assertNull(val.getNumber());
+        Assert.assertEquals(TS, val.getTimeStamp());
+    }
+
+    @Test
+    public void typeChanges() {
+        Subscription sub = new Subscription(null, 1, "/a", null);
+        Node node = new Node("a", null, null);
+        sub.apply(node, sub.toValue(1.5, TS, node));
+        Assert.assertEquals(ValueType.NUMBER, node.getValueType());
+        Assert.assertEquals(1.5, node.getValue().getNumber());
+
+        Value val = sub.toValue("text", TS, node);
+        Assert.assertEquals(ValueType.STRING, val.getType());
+        Assert.assertEquals("text", val.getString());
+        sub.apply(node, val);
+        Assert.assertEquals(ValueType.STRING, node.getValueType());
+
+        val = sub.toValue(true, TS, node);
+        Assert.assertEquals(ValueType.BOOL, val.getType());
+        Assert.assertTrue(val.getBool());
+
+        val = sub.toValue(null, TS, node);
+        Assert.assertEquals(ValueType.STRING, val.getType());
+        Assert.assertNull(val.getString());
+    }
+}
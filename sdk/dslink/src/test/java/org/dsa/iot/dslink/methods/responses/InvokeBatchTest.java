@@ -0,0 +1,48 @@
+package org.dsa.iot.dslink.methods.responses;
+
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Samuel Grenier
+ */
+public class InvokeBatchTest {
+
+    @Test
+    public void discardedRows() {
+        InvokeResponse resp = new InvokeResponse(null, 1, "/a");
+        resp.setDiscardRows(true);
+
+        JsonObject in = new JsonObject();
+        JsonArray cols = new JsonArray();
+        cols.add(column("ts", "time"));
+        cols.add(column("value", "number"));
+        in.put("columns", cols);
+        JsonArray updates = new JsonArray();
+        updates.add(new JsonArray().add("2016-01-01T00:00:00.000Z").add(1.5));
+        JsonObject row = new JsonObject();
+        row.put("value", 2);
+        updates.add(row);
+        in.put("updates", updates);
+        resp.populate(in);
+
+        Assert.assertNull(resp.getTable().getRows());
+        InvokeBatch batch = new InvokeBatch(resp, updates);
+        Assert.assertEquals(2, batch.getRowCount());
+        Assert.assertEquals(1, batch.getColumnIndex("value"));
+        Assert.assertEquals(1.5, batch.getDouble(0, 1), 0);
+        Assert.assertEquals(2, batch.getLong(1, 1, -1));
+        Assert.assertNull(batch.get(1, 0));
+        Assert.assertEquals("2016-01-01T00:00:00.000Z", batch.getString(0, 0));
+        Assert.assertEquals(1.5, batch.getValue(0, 1).getNumber().doubleValue(), 0);
+    }
+
+    private static JsonObject column(String name, String type) {
+        JsonObject col = new JsonObject();
+        col.put("name", name);
+        col.put("type", type);
+        return col;
+    }
+}
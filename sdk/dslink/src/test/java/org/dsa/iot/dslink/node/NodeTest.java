@@ -1,8 +1,14 @@
 package org.dsa.iot.dslink.node;
 
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValuePair;
+import org.dsa.iot.dslink.node.value.ValueType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Tests the node API.
  *
@@ -63,4 +69,76 @@ public class NodeTest {
         Assert.assertNull(node.getAttributes());
         Assert.assertNull(node.getAttribute("nothing"));
     }
+
+    /**
+     * Ensures the numeric fast path is visible through the value API.
+     */
+    @Test
+    public void numberFastPath() {
+        Node node = new Node("Test", null, null);
+        try {
+            node.setNumber(1.5, 1000);
+            Assert.fail("The value type must be set first");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("Value type not set"));
+        }
+
+        node.setValueType(ValueType.NUMBER);
+        node.setNumber(1.5, 1000);
+
+        Value value = node.getValue();
+        Assert.assertEquals(1.5, value.getNumber().doubleValue(), 0);
+        Assert.assertEquals(1000, value.getTime());
+        Assert.assertSame(value, node.getValue());
+
+        node.setValue(new Value(2));
+        Assert.assertEquals(2, node.getValue().getNumber().intValue());
+        node.setValue(null);
+        Assert.assertNull(node.getValue());
+    }
+
+    /**
+     * Ensures integral numbers from the fast path keep their representation.
+     */
+    @Test
+    public void integralNumbers() {
+        Node node = new Node("Test", null, null);
+        node.setValueType(ValueType.NUMBER);
+        node.setNumber(5, 1000);
+        Assert.assertEquals(5, node.getValue().getNumber());
+        node.setNumber(5e12, 1000);
+        Assert.assertEquals(5000000000000L, node.getValue().getNumber());
+
+        SubscriptionManager.Subscription sub;
+        sub = new SubscriptionManager.Subscription("/Test", 1, 0);
+        Assert.assertEquals(5, sub.generateUpdate(5, 1000).<Object>get(1));
+        Assert.assertEquals(5.5, sub.generateUpdate(5.5, 1000).<Object>get(1));
+        Object nan = sub.generateUpdate(Double.NaN, 1000).get(1);
+        Assert.assertEquals(Double.NaN, nan);
+    }
+
+    /**
+     * Ensures listeners overriding the value updates receive them without
+     * a value handler, including from the numeric fast path.
+     */
+    @Test
+    public void overriddenValueUpdates() {
+        Node node = new Node("Test", null, null);
+        node.setValueType(ValueType.NUMBER);
+        final List<Value> updates = new ArrayList<>();
+        node.setListener(new NodeListener(node) {
+            @Override
+            protected boolean postValueUpdate(ValuePair pair) {
+                updates.add(pair.getCurrent());
+                return pair.getCurrent().getNumber().intValue() < 0;
+            }
+        });
+        node.setNumber(1.5, 1000);
+        node.setValue(new Value(2));
+        Assert.assertEquals(2, updates.size());
+        Assert.assertEquals(1.5, updates.get(0).getNumber().doubleValue(), 0);
+
+        Assert.assertFalse(node.setValue(new Value(-1), false, true));
+        Assert.assertEquals(2, node.getValue().getNumber().intValue());
+    }
 }
@@ -0,0 +1,123 @@
+package org.dsa.iot.dslink.node;
+
+import org.dsa.iot.dslink.link.Linkable;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Samuel Grenier
+ */
+public class ValueBatchTest {
+
+    @Test
+    public void flush() {
+        TestLink link = new TestLink();
+        Node a = node("a", ValueType.NUMBER);
+        Node b = node("b", ValueType.STRING);
+        ValueBatch batch = new ValueBatch(link);
+        batch.setNumber(a, 1.5, 1000);
+        batch.setValue(b, new Value("text"));
+        Assert.assertEquals(2, batch.size());
+
+        Assert.assertEquals(2, batch.flush());
+        Assert.assertEquals(0, batch.size());
+        Assert.assertEquals(1.5, a.getValue().getNumber());
+        Assert.assertEquals(1000, a.getValue().getTime());
+        Assert.assertEquals("text", b.getValue().getString());
+        Assert.assertEquals(2, link.published.size());
+    }
+
+    @Test
+    public void coalesce() {
+        TestLink link = new TestLink();
+        Node a = node("a", ValueType.NUMBER);
+        Node b = node("b", ValueType.NUMBER);
+        ValueBatch batch = new ValueBatch(link);
+        batch.setNumber(a, 1, 1000);
+        batch.setValue(b, new Value(2));
+        batch.setNumber(a, 3, 2000);
+        batch.setNumber(b, 4.5, 2000);
+        Assert.assertEquals(2, batch.size());
+
+        Assert.assertEquals(2, batch.flush());
+        SubscriptionManager.Subscription sub;
+        sub = new SubscriptionManager.Subscription("/a", 1, 0);
+        Assert.assertEquals(3, a.generateUpdate(sub).<Object>get(1));
+        Assert.assertEquals(3, a.getValue().getNumber());
+        Assert.assertEquals(2000, a.getValue().getTime());
+        Assert.assertEquals(4.5, b.getValue().getNumber());
+        Assert.assertEquals(2, link.published.size());
+        Assert.assertEquals(a, link.published.get(0));
+        Assert.assertEquals(b, link.published.get(1));
+    }
+
+    @Test
+    public void invalidValues() {
+        TestLink link = new TestLink();
+        Node a = node("a", ValueType.NUMBER);
+        Node b = node("b", ValueType.NUMBER);
+        Node c = node("c", ValueType.NUMBER);
+        Node d = node("d", ValueType.NUMBER);
+        ValueBatch batch = new ValueBatch(link);
+        batch.setValue(a, new Value("invalid"));
+        batch.setValue(b, new Value(2));
+        batch.setValue(c, new Value(false));
+        batch.setValue(d, new Value(4));
+
+        try {
+            batch.flush();
+            Assert.fail("Invalid values must fail the flush");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("/a"));
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+
+        // Values after the invalid ones are still set and published
+        Assert.assertEquals(0, batch.size());
+        Assert.assertNull(a.getValue());
+        Assert.assertEquals(2, b.getValue().getNumber().intValue());
+        Assert.assertNull(c.getValue());
+        Assert.assertEquals(4, d.getValue().getNumber().intValue());
+        Assert.assertEquals(2, link.published.size());
+        Assert.assertTrue(link.published.contains(b));
+        Assert.assertTrue(link.published.contains(d));
+    }
+
+    private static Node node(String name, ValueType type) {
+        Node node = new Node(name, null, null);
+        node.setValueType(type);
+        return node;
+    }
+
+    private static class TestLink extends Linkable {
+
+        private final List<Node> published = new ArrayList<>();
+        private final SubscriptionManager manager = new SubscriptionManager(null) {
+            @Override
+            public void postValueUpdates(Collection<Node> nodes) {
+                published.addAll(nodes);
+            }
+        };
+
+        TestLink() {
+            super(null);
+        }
+
+        @Override
+        public SubscriptionManager getSubscriptionManager() {
+            return manager;
+        }
+
+        @Override
+        public void batchSet(Map<Node, Value> updates) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.dsa.iot.dslink.node.actions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Samuel Grenier
+ */
+public class ActionExecutorTest {
+
+    @Test
+    public void bounded() throws InterruptedException {
+        ActionExecutor executor = new ActionExecutor("test", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                done.countDown();
+            }
+        };
+        Assert.assertTrue(executor.execute(task));
+        Assert.assertTrue(executor.execute(task));
+        Assert.assertFalse(executor.execute(task));
+
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
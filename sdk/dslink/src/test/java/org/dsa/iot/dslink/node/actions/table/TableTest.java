@@ -0,0 +1,88 @@
+package org.dsa.iot.dslink.node.actions.table;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Samuel Grenier
+ */
+public class TableTest {
+
+    @Test
+    public void takeRows() {
+        Table table = new Table();
+        Assert.assertNull(table.takeRows());
+
+        table.addRow(Row.make(new Value(1)));
+        table.addRow(Row.make(new Value(2)));
+        table.setRowIterator(Arrays.asList(
+                Row.make(new Value(3)),
+                Row.make(new Value(4))
+        ).iterator());
+
+        Iterator<Row> it = table.takeRows();
+        Assert.assertNotNull(it);
+        Assert.assertNull(table.getRows());
+        for (int i = 1; i <= 4; i++) {
+            Assert.assertTrue(it.hasNext());
+            Value v = it.next().getValues().get(0);
+            Assert.assertEquals(i, v.getNumber().intValue());
+        }
+        Assert.assertFalse(it.hasNext());
+        Assert.assertNull(table.takeRows());
+    }
+
+    @Test
+    public void rowSource() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        Table table = new Table();
+        table.addRow(Row.make(new Value("first")));
+        table.setRowSource(new RowSource() {
+            private int i;
+
+            @Override
+            public boolean next(RowWriter writer) {
+                if (i >= 100) {
+                    return false;
+                }
+                writer.add(i++).add(i * 0.5).add(true).add((String) null);
+                return true;
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        });
+
+        RowSource source = table.takeRowSource();
+        Assert.assertNotNull(source);
+        Assert.assertNull(table.takeRowSource());
+
+        RowWriter writer = new RowWriter();
+        JsonArray chunk = new JsonArray();
+        Assert.assertTrue(writer.fill(source, chunk, 100));
+        Assert.assertTrue(chunk.size() > 1 && chunk.size() < 101);
+        JsonArray first = chunk.get(0);
+        Assert.assertEquals("first", first.get(0));
+        JsonArray second = chunk.get(1);
+        Assert.assertEquals(0L, ((Number) second.get(0)).longValue());
+        Assert.assertEquals(0.5, ((Number) second.get(1)).doubleValue(), 0);
+        Assert.assertEquals(true, second.get(2));
+        Assert.assertNull(second.get(3));
+
+        int rows = chunk.size();
+        JsonArray rest = new JsonArray();
+        Assert.assertFalse(writer.fill(source, rest, Integer.MAX_VALUE));
+        Assert.assertEquals(101, rows + rest.size());
+
+        source.close();
+        Assert.assertTrue(closed.get());
+    }
+}
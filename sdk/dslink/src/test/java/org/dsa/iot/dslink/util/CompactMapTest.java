@@ -0,0 +1,55 @@
+package org.dsa.iot.dslink.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * @author Samuel Grenier
+ */
+public class CompactMapTest {
+
+    @Test
+    public void putGetRemove() {
+        Map<String, Integer> map = new CompactMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.put("a", 1));
+        Assert.assertNull(map.put("b", 2));
+        Assert.assertEquals(Integer.valueOf(1), map.put("a", 3));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(Integer.valueOf(3), map.get("a"));
+        Assert.assertTrue(map.containsKey("b"));
+        Assert.assertNull(map.get("c"));
+
+        Assert.assertEquals(Integer.valueOf(3), map.remove("a"));
+        Assert.assertNull(map.remove("a"));
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals(Integer.valueOf(2), map.remove("b"));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void snapshotIteration() {
+        Map<String, Integer> map = new CompactMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+
+        Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+        map.put("d", 4);
+        int count = 0;
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> entry = it.next();
+            if ("b".equals(entry.getKey())) {
+                it.remove();
+            }
+            count++;
+        }
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(3, map.size());
+        Assert.assertFalse(map.containsKey("b"));
+        Assert.assertTrue(map.containsKey("d"));
+    }
+}
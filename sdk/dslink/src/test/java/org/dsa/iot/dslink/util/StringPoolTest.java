@@ -0,0 +1,58 @@
+package org.dsa.iot.dslink.util;
+
+import org.dsa.iot.dslink.util.json.EncodingFormat;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+/**
+ * @author Samuel Grenier
+ */
+public class StringPoolTest {
+
+    @Test
+    public void decodedKeys() {
+        String json = "{\"$is\":\"node\",\"custom key\":1}";
+        for (EncodingFormat format : EncodingFormat.values()) {
+            JsonObject obj = new JsonObject(format, new JsonObject(json).encode(format));
+            Map<String, Object> map = obj.getMap();
+            for (String key : map.keySet()) {
+                if ("$is".equals(key)) {
+                    Assert.assertSame(StringPool.canonical("$is"), key);
+                }
+            }
+            // Arbitrary keys are never added to the pool
+            String key = new String("custom key");
+            Assert.assertSame(key, StringPool.canonical(key));
+        }
+    }
+
+    @Test
+    public void intern() {
+        String a = new String("profile" + System.nanoTime());
+        String b = new String(a);
+        Assert.assertSame(a, StringPool.intern(a));
+        Assert.assertSame(a, StringPool.intern(b));
+        // Only protocol keys are looked up without pooling
+        Assert.assertSame(b, StringPool.canonical(b));
+        Assert.assertSame(StringPool.intern("$is"), StringPool.canonical(new String("$is")));
+    }
+
+    @Test
+    public void weaklyPooled() throws InterruptedException {
+        WeakReference<String> ref = pool("peer" + System.nanoTime());
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // Pooled strings do not outlive the nodes referencing them
+        Assert.assertNull(ref.get());
+    }
+
+    private static WeakReference<String> pool(String string) {
+        return new WeakReference<>(StringPool.intern(string));
+    }
+}
@@ -54,6 +54,53 @@ public class TimeUtilsTest {
         System.out.println("Total = " + time + "ms");
     }
 
+    /**
+     * Ensures the cached format and decode return the same results as the
+     * calendar based encoding and decoding across second, minute, hour and
+     * day boundaries.
+     */
+    @Test
+    public void testCodecEquivalence() {
+        Calendar calendar = Calendar.getInstance();
+        long base = make(2016,11,31,23,0,0).getTimeInMillis();
+        long[] steps = {1, 997, 59999, TimeUtils.MILLIS_HOUR + 1};
+        for (long step : steps) {
+            for (int i = 0; i < 2000; i++) {
+                long time = base + (i * step);
+                String formatted = TimeUtils.format(time);
+                String encoded = TimeUtils.encode(time, true).toString();
+                Assert.assertEquals(encoded, formatted);
+
+                TimeUtils.decode(encoded, calendar);
+                Assert.assertEquals(calendar.getTimeInMillis(),
+                                    TimeUtils.decode(formatted));
+                Assert.assertEquals(time, TimeUtils.decode(formatted));
+            }
+        }
+    }
+
+    @Test
+    public void testCachedCodec() {
+        long base = System.currentTimeMillis();
+        for (int i = 0; i < 5000; i++) {
+            long time = base + (i * 7);
+            String formatted = TimeUtils.format(time);
+            validateEqual(formatted, TimeUtils.encode(time, true).toString());
+            Assert.assertEquals(time, TimeUtils.decode(formatted));
+        }
+        long time = -1234567L;
+        String formatted = TimeUtils.format(time);
+        validateEqual(formatted, TimeUtils.encode(time, true).toString());
+        Assert.assertEquals(time, TimeUtils.decode(formatted));
+
+        String encoded = "2016-01-01T00:00:00.987654-08:00";
+        Assert.assertEquals(987, TimeUtils.decode(encoded) % 1000);
+        encoded = "2016-01-01T00:00:00.123-08:00";
+        Assert.assertEquals(123, TimeUtils.decode(encoded) % 1000);
+        encoded = "2016-01-01T00:00:00.456-08:00";
+        Assert.assertEquals(456, TimeUtils.decode(encoded) % 1000);
+    }
+
     /**
      * Builds a list of encoded timestamps.
      */
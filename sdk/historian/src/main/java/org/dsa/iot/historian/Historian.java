@@ -48,22 +48,22 @@ public abstract class Historian extends DSLinkHandler {
                         continue;
                     }
 
+                    // Groups write their held back points while closing
+                    Map<String, Node> wgs = n.getChildren();
+                    if (wgs != null) {
+                        for (Node wg : wgs.values()) {
+                            WatchGroup g = wg.getMetaData();
+                            if (g != null) {
+                                g.close();
+                            }
+                        }
+                    }
+
                     try {
                         db.close();
                     } catch (Exception e) {
                         LOGGER.debug(e.getMessage());
                     }
-
-                    Map<String, Node> wgs = n.getChildren();
-                    if (wgs == null) {
-                        continue;
-                    }
-                    for (Node wg : wgs.values()) {
-                        WatchGroup g = wg.getMetaData();
-                        if (g != null) {
-                            g.close();
-                        }
-                    }
                 }
             }
         }
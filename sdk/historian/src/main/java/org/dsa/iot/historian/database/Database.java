@@ -7,9 +7,13 @@ import org.dsa.iot.dslink.util.handler.CompleteHandler;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.historian.utils.QueryData;
 import org.dsa.iot.historian.utils.TimeParser;
+import org.dsa.iot.historian.utils.WriteData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +32,9 @@ public abstract class Database {
     private int delay = 1;
     private boolean running;
 
+    private final List<Handler<Database>> connectHandlers = new CopyOnWriteArrayList<>();
+    private WriteBuffers writeBuffers;
+
     public Database(String name, DatabaseProvider provider) {
         this.provider = provider;
 
@@ -58,11 +65,68 @@ public abstract class Database {
                     onConnected.handle(this);
                 } catch (Exception e) {
                     reconnect(onConnected);
+                    return;
+                }
+                for (Handler<Database> handler : connectHandlers) {
+                    handler.handle(this);
                 }
             }
         }
     }
 
+    /**
+     * @return Whether the database is currently connected.
+     */
+    public boolean isConnected() {
+        synchronized (connectedLock) {
+            return connected;
+        }
+    }
+
+    /**
+     * Marks the database as disconnected and starts reconnecting. Watch
+     * groups call this when a write fails and buffer their data until
+     * the connection is restored.
+     */
+    public void connectionLost() {
+        synchronized (connectedLock) {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            if (running) {
+                logger.warn("Connection lost");
+                reconnect(new Handler<Database>() {
+                    @Override
+                    public void handle(Database event) {
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Adds a handler called every time a connection is established,
+     * including reconnections.
+     *
+     * @param handler Handler to call once connected.
+     */
+    public void addConnectHandler(Handler<Database> handler) {
+        connectHandlers.add(handler);
+    }
+
+    public void removeConnectHandler(Handler<Database> handler) {
+        connectHandlers.remove(handler);
+    }
+
+    WriteBuffers getWriteBuffers() {
+        return writeBuffers;
+    }
+
+    void setWriteBuffers(WriteBuffers writeBuffers) {
+        this.writeBuffers = writeBuffers;
+    }
+
     private void reconnect(final Handler<Database> onConnect) {
         logger.info("Reconnecting in {} seconds", delay);
         STPE.schedule(new Runnable() {
@@ -95,6 +159,21 @@ public abstract class Database {
      */
     public abstract void write(String path, Value value, long ts);
 
+    /**
+     * Writes multiple points at once. Watch groups write every buffer
+     * flush through this method. The default implementation writes each
+     * point individually, override it to perform a single insert or
+     * transaction for the entire batch.
+     *
+     * @param points Points to write, times are in UTC.
+     * @see #write(String, Value, long)
+     */
+    public void writeBatch(Collection<WriteData> points) {
+        for (WriteData data : points) {
+            write(data.getPath(), data.getValue(), data.getTimestamp());
+        }
+    }
+
     /**
      * Times must be in UTC. At the end of the query, the {@code handler} must
      * receive a {@code null} event in order to close the table stream.
@@ -109,6 +188,57 @@ public abstract class Database {
                                long to,
                                CompleteHandler<QueryData> handler);
 
+    /**
+     * Opens a pull based cursor over a query. The default implementation
+     * performs {@link #query} on a shared pool of bounded size and pauses
+     * it while the consumer does not keep up with the values. Override it
+     * if the database can page through results natively.
+     *
+     * @param path Path to query.
+     * @param from Beginning search time.
+     * @param to End search time.
+     * @return Cursor over the values of the query, must be closed.
+     * @see HandlerCursor#open
+     */
+    public QueryCursor openCursor(final String path,
+                                  final long from,
+                                  final long to) {
+        return HandlerCursor.open(path, new Handler<CompleteHandler<QueryData>>() {
+            @Override
+            public void handle(CompleteHandler<QueryData> handler) {
+                query(path, from, to, handler);
+            }
+        });
+    }
+
+    /**
+     * Determines whether watches maintain downsampled rollup tiers in this
+     * database. Tiers are written through {@link #writeBatch} under paths
+     * derived from the watched path and are used to answer history
+     * queries with large intervals. Databases that downsample natively
+     * should leave this disabled.
+     *
+     * @return Whether rollup tiers are maintained, disabled by default.
+     * @see org.dsa.iot.historian.stats.rollup.RollupTier
+     */
+    public boolean isRollupTiersEnabled() {
+        return false;
+    }
+
+    /**
+     * Deletes the points of a path within a range. Databases that enable
+     * rollup tiers must implement it so that the summaries of rewritten
+     * history can be rebuilt.
+     *
+     * @param path Path to delete points from.
+     * @param from Inclusive beginning of the range.
+     * @param to Inclusive end of the range.
+     * @see #isRollupTiersEnabled()
+     */
+    public void delete(String path, long from, long to) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * @param path Path to query.
      * @return The first value stored in the database.
@@ -9,6 +9,7 @@ import org.dsa.iot.dslink.node.actions.Parameter;
 import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.node.value.ValueType;
 import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.stats.GetMultiHistory;
 
 import java.util.Map;
 
@@ -88,6 +89,7 @@ public abstract class DatabaseProvider {
     public Database createAndInitDb(final Node node) {
         node.setRoConfig("db", new Value(true));
         final Database db = createDb(node);
+        db.setWriteBuffers(new WriteBuffers(node));
         db.connect(new Handler<Database>() {
             @Override
             public void handle(Database event) {
@@ -97,6 +99,7 @@ public abstract class DatabaseProvider {
         node.setMetaData(db);
         initCreateWatchGroupAct(node);
         initDeleteAct(node);
+        GetMultiHistory.initAction(node, db);
 
         // Handle watch groups
         Map<String, Node> children = node.getChildren();
@@ -145,6 +148,10 @@ public abstract class DatabaseProvider {
             db.close();
         } catch (Exception ignored) {
         }
+        WriteBuffers buffers = db.getWriteBuffers();
+        if (buffers != null) {
+            buffers.close();
+        }
 
         Map<String, Node> children = node.getChildren();
         if (children != null) {
@@ -153,6 +160,7 @@ public abstract class DatabaseProvider {
                 if (g != null) {
                     g.unsubscribe();
                     g.close();
+                    g.discardBuffer();
                 }
             }
         }
@@ -0,0 +1,158 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.util.Objects;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.utils.QueryData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Cursor adapting a push based query. The query is performed on a shared
+ * pool of bounded size and is blocked once the buffer is full until the
+ * consumer retrieves more values. Closing the cursor aborts the query by
+ * interrupting it and failing any further value it pushes. A query that
+ * fails is reported by the cursor once the values it pushed beforehand
+ * were retrieved.
+ *
+ * @author Samuel Grenier
+ */
+public class HandlerCursor implements QueryCursor, CompleteHandler<QueryData> {
+
+    private static final Logger LOGGER;
+    private static final ScheduledThreadPoolExecutor STPE;
+    private static final int CAPACITY = 1000;
+
+    private final ArrayDeque<QueryData> buffer;
+    private final int capacity;
+    private Future<?> future;
+    private RuntimeException failure;
+    private boolean complete;
+    private boolean closed;
+
+    HandlerCursor(int capacity) {
+        this.buffer = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void handle(QueryData data) {
+        while (!closed && buffer.size() >= capacity) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+        if (closed) {
+            throw new CancellationException("Cursor closed");
+        }
+        buffer.add(data);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized List<QueryData> next(int batchSize) {
+        while (!closed && !complete && buffer.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (closed) {
+            return null;
+        } else if (buffer.isEmpty()) {
+            if (failure != null) {
+                throw new RuntimeException("Query failed", failure);
+            }
+            return null;
+        }
+        int size = Math.min(batchSize, buffer.size());
+        List<QueryData> data = new ArrayList<>(size);
+        while (size-- > 0) {
+            data.add(buffer.poll());
+        }
+        notifyAll();
+        return data;
+    }
+
+    @Override
+    public void close() {
+        Future<?> future;
+        synchronized (this) {
+            closed = true;
+            buffer.clear();
+            notifyAll();
+            future = this.future;
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    private synchronized void fail(RuntimeException e) {
+        failure = e;
+        complete = true;
+        notifyAll();
+    }
+
+    private void setFuture(Future<?> future) {
+        boolean cancel;
+        synchronized (this) {
+            this.future = future;
+            cancel = closed;
+        }
+        if (cancel) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Opens a cursor over a push based query. Queries are performed on a
+     * shared pool, cursors opened while every thread of the pool is busy
+     * wait until a thread becomes available.
+     *
+     * @param path Path that is queried, used for logging.
+     * @param query Performs the query into the handler it receives.
+     * @return Cursor over the values of the query, must be closed. Its
+     *         {@link QueryCursor#next} throws if the query failed.
+     */
+    public static QueryCursor open(final String path,
+                                   final Handler<CompleteHandler<QueryData>> query) {
+        final HandlerCursor cursor = new HandlerCursor(CAPACITY);
+        cursor.setFuture(STPE.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    query.handle(cursor);
+                } catch (CancellationException ignored) {
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to query {}", path, e);
+                    cursor.fail(e);
+                }
+            }
+        }));
+        return cursor;
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(HandlerCursor.class);
+        STPE = Objects.createDaemonThreadPool();
+    }
+}
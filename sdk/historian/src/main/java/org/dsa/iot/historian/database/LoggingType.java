@@ -10,7 +10,10 @@ public enum LoggingType {
     ALL_DATA("All data"),
     NONE("None"),
     INTERVAL("Interval"),
-    POINT_CHANGE("Point Change");
+    POINT_CHANGE("Point Change"),
+    DEADBAND("Deadband"),
+    PERCENT_DEADBAND("Percent Deadband"),
+    SWINGING_DOOR("Swinging Door");
 
     private final String name;
 
@@ -31,6 +34,12 @@ public enum LoggingType {
             return INTERVAL;
         } else if (POINT_CHANGE.getName().equals(s)) {
             return POINT_CHANGE;
+        } else if (DEADBAND.getName().equals(s)) {
+            return DEADBAND;
+        } else if (PERCENT_DEADBAND.getName().equals(s)) {
+            return PERCENT_DEADBAND;
+        } else if (SWINGING_DOOR.getName().equals(s)) {
+            return SWINGING_DOOR;
         } else {
             throw new IllegalArgumentException("Invalid logging type: " + s);
         }
@@ -12,6 +12,7 @@ import org.dsa.iot.dslink.node.value.ValueType;
 import org.dsa.iot.dslink.util.TimeUtils;
 import org.dsa.iot.dslink.util.handler.CompleteHandler;
 import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.stats.rollup.RollupTiers;
 import org.dsa.iot.historian.utils.QueryData;
 import org.dsa.iot.historian.utils.TimestampRange;
 
@@ -75,6 +76,11 @@ class OverwriteHistoryAction implements Handler<ActionResult> {
                 for (Long timestamp : timestampsOfValuesToOverwrite) {
                     db.write(path, newValue, timestamp);
                 }
+                watch.getHistoryCache().clear();
+                RollupTiers tiers = watch.getRollupTiers();
+                if (tiers != null) {
+                    tiers.rebuild(from, to);
+                }
             }
         });
     }
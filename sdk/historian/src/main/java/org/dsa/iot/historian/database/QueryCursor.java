@@ -0,0 +1,34 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.historian.utils.QueryData;
+
+import java.util.List;
+
+/**
+ * Pull based iteration over the results of a history query. Unlike
+ * {@link Database#query} which pushes every value as fast as the database
+ * can produce them, values are only retrieved when the consumer asks for
+ * them which keeps the memory usage flat regardless of the query size.
+ *
+ * @author Samuel Grenier
+ * @see Database#openCursor(String, long, long)
+ */
+public interface QueryCursor extends AutoCloseable {
+
+    /**
+     * Retrieves the next values of the query in time order, blocking until
+     * they are available.
+     *
+     * @param batchSize Maximum amount of values to retrieve.
+     * @return The next values or {@code null} if the query is exhausted.
+     * @throws RuntimeException If the query failed.
+     */
+    List<QueryData> next(int batchSize);
+
+    /**
+     * Releases the resources of the cursor. Any values that have not been
+     * retrieved yet are discarded.
+     */
+    @Override
+    void close();
+}
@@ -7,107 +7,123 @@ import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.util.SubData;
 import org.dsa.iot.dslink.util.handler.Handler;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Manages subscriptions in the historian.
+ * Manages subscriptions in the historian. Updates are not processed on
+ * the requester's thread, they are handed off to the watch group of every
+ * watch so that a group writing to a slow database cannot hold up the
+ * subscriptions of any other group.
  *
  * @author Samuel Grenier
+ * @see WatchGroup#dispatch(Watch, SubscriptionValue)
  */
 public class SubscriptionPool {
 
-    private final Map<String, SubHandler> subscriptions = new HashMap<>();
+    private static final int SHARDS = 64;
+
+    private final ConcurrentMap<String, SubHandler> subscriptions = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[SHARDS];
     private final Requester requester;
 
     public SubscriptionPool(Requester requester) {
         this.requester = requester;
+        for (int i = 0; i < SHARDS; i++) {
+            locks[i] = new Object();
+        }
     }
 
-    public synchronized void subscribe(String path, Watch watch) {
-        SubHandler handler = subscriptions.get(path);
-        if (handler == null) {
-            handler = new SubHandler();
-            subscriptions.put(path, handler);
-            handler.addWatch(watch);
-            requester.subscribe(new SubData(path, 1), handler);
-        } else {
-            handler.addWatch(watch);
+    public void subscribe(String path, Watch watch) {
+        synchronized (lockOf(path)) {
+            SubHandler handler = subscriptions.get(path);
+            if (handler == null) {
+                handler = new SubHandler();
+                subscriptions.put(path, handler);
+                handler.addWatch(watch);
+                requester.subscribe(new SubData(path, 1), handler);
+            } else {
+                handler.addWatch(watch);
+            }
         }
     }
 
-    public synchronized void unsubscribe(String path, Watch watch) {
-        SubHandler handler = subscriptions.get(path);
-        if (handler != null) {
-            handler.removeWatch(watch);
-            if (handler.isEmpty()) {
-                String getHistoryActionAliasPath = path + "/@@getHistory";
+    public void unsubscribe(String path, Watch watch) {
+        synchronized (lockOf(path)) {
+            SubHandler handler = subscriptions.get(path);
+            if (handler != null) {
+                handler.removeWatch(watch);
+                if (handler.isEmpty()) {
+                    String getHistoryActionAliasPath = path + "/@@getHistory";
 
-                requester.unsubscribe(path, null);
-                requester.remove(new RemoveRequest(getHistoryActionAliasPath), null);
-                subscriptions.remove(path);
+                    requester.unsubscribe(path, null);
+                    requester.remove(new RemoveRequest(getHistoryActionAliasPath), null);
+                    subscriptions.remove(path);
+                }
             }
         }
     }
 
+    private Object lockOf(String path) {
+        int hash = path.hashCode();
+        hash ^= hash >>> 16;
+        return locks[hash & (SHARDS - 1)];
+    }
+
+    /**
+     * Watches are stored in a copy on write array. Modifications are
+     * serialized by the shard lock of the path.
+     */
     private static class SubHandler implements Handler<SubscriptionValue> {
-        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-        private final List<Watch> watches = new ArrayList<>();
+        private volatile Watch[] watches = new Watch[0];
 
         public boolean isEmpty() {
-            lock.readLock().lock();
-            try {
-                return watches.isEmpty();
-            } finally {
-                lock.readLock().unlock();
-            }
+            return watches.length == 0;
         }
 
         public void addWatch(Watch watch) {
-            lock.writeLock().lock();
-            try {
-                if (!watches.contains(watch)) {
-                    watches.add(watch);
+            Watch[] watches = this.watches;
+            for (Watch w : watches) {
+                if (w.equals(watch)) {
+                    return;
                 }
-            } finally {
-                lock.writeLock().unlock();
             }
+            watches = Arrays.copyOf(watches, watches.length + 1);
+            watches[watches.length - 1] = watch;
+            this.watches = watches;
         }
 
         public void removeWatch(Watch watch) {
-            lock.writeLock().lock();
-            try {
-                watches.remove(watch);
-            } finally {
-                lock.writeLock().unlock();
+            Watch[] watches = this.watches;
+            for (int i = 0; i < watches.length; i++) {
+                if (watches[i].equals(watch)) {
+                    Watch[] copy = new Watch[watches.length - 1];
+                    System.arraycopy(watches, 0, copy, 0, i);
+                    System.arraycopy(watches, i + 1, copy, i, copy.length - i);
+                    this.watches = copy;
+                    return;
+                }
             }
         }
 
         @Override
         public void handle(SubscriptionValue event) {
-            lock.readLock().lock();
+            Value val = event.getValue();
+            if (val == null) {
+                return;
+            }
             try {
-                Value val = event.getValue();
-                if (val == null) {
-                    return;
-                }
-                try {
-                    if ((val.getTime() < 0) && !val.isImmutable()) {
-                        val.setTime(System.currentTimeMillis());
-                    }
-                } catch (Exception x) {
-                    //Just in case there are parsing errors because of wacky
-                    //timestamp formatting.
+                if ((val.getTime() < 0) && !val.isImmutable()) {
                     val.setTime(System.currentTimeMillis());
                 }
-                for (Watch w : watches) {
-                    w.onData(event);
-                }
-            } finally {
-                lock.readLock().unlock();
+            } catch (Exception x) {
+                //Just in case there are parsing errors because of wacky
+                //timestamp formatting.
+                val.setTime(System.currentTimeMillis());
+            }
+            for (Watch w : watches) {
+                w.getGroup().dispatch(w, event);
             }
         }
     }
@@ -14,18 +14,24 @@ import org.dsa.iot.dslink.node.Writable;
 import org.dsa.iot.dslink.node.actions.Action;
 import org.dsa.iot.dslink.node.actions.ActionResult;
 import org.dsa.iot.dslink.node.value.*;
+import org.dsa.iot.dslink.util.Objects;
 import org.dsa.iot.dslink.util.StringUtils;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 import org.dsa.iot.historian.stats.GetHistory;
+import org.dsa.iot.historian.stats.rollup.RollupTiers;
+import org.dsa.iot.historian.utils.HistoryCache;
 import org.dsa.iot.historian.utils.QueryData;
+import org.dsa.iot.historian.utils.SwingingDoor;
 import org.dsa.iot.historian.utils.WatchUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -34,6 +40,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class Watch {
     private static final Logger LOGGER = LoggerFactory.getLogger(Watch.class);
     public static final String USE_NEW_ENCODING_METHOD_CONFIG_NAME = "useNewEncodingMethod";
+    private static final int CACHE_POINTS = 10000;
+    private static final long CACHE_AGE = TimeUnit.HOURS.toMillis(1);
+    private static final long CACHE_IDLE = TimeUnit.MINUTES.toMillis(10);
+    private static final long RATIO_DELAY = 1;
+    private static final String TOLERANCE_DESCRIPTION =
+            "Deadband: absolute change from the last logged value, in the units of the value.\n"
+            + "Percent Deadband: change in percent of the last logged value.\n"
+            + "Swinging Door: absolute deviation from the archived trend, in the units of the value.";
 
     private final ReentrantReadWriteLock rtLock = new ReentrantReadWriteLock();
     private final List<Handler<QueryData>> rtHandlers = new ArrayList<>();
@@ -56,6 +70,20 @@ public class Watch {
     // Used for POINT_CHANGE
     private Value lastValue;
 
+    // Set when the database maintains rollup tiers
+    private RollupTiers rollupTiers;
+
+    // Used for DEADBAND, PERCENT_DEADBAND and SWINGING_DOOR
+    private volatile double tolerance;
+    private final SwingingDoor<SubscriptionValue> swingingDoor = new SwingingDoor<>();
+
+    // Recently written points answering the tail of history queries
+    private final HistoryCache historyCache = new HistoryCache(CACHE_POINTS,
+                                                               CACHE_AGE,
+                                                               CACHE_IDLE);
+    private Node cacheHitRatio;
+    private final AtomicBoolean ratioScheduled = new AtomicBoolean();
+
     public WatchUpdate getLastWatchUpdate() {
         Value value = node.getValue();
         if (value != null) {
@@ -112,6 +140,14 @@ public class Watch {
         lastWrittenTime = time;
     }
 
+    /**
+     * @return Rollup tiers of the watch or {@code null} if the database
+     *         does not maintain rollup tiers.
+     */
+    public RollupTiers getRollupTiers() {
+        return rollupTiers;
+    }
+
     public long getLastWrittenTime() {
         return lastWrittenTime;
     }
@@ -124,7 +160,60 @@ public class Watch {
         return lastValue;
     }
 
+    /**
+     * @return Tolerance of the deadband and swinging door logging types.
+     *         Percent deadbands interpret it as a percentage of the last
+     *         logged value.
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @return Cache of the points recently written by the watch.
+     */
+    public HistoryCache getHistoryCache() {
+        return historyCache;
+    }
+
+    /**
+     * Records how many points of a history query were answered by the
+     * cache. The exposed hit ratio is updated shortly after rather than
+     * on every query.
+     *
+     * @param hits Amount of points retrieved from the cache.
+     * @param misses Amount of points retrieved from the database.
+     */
+    public void recordCacheUsage(long hits, long misses) {
+        historyCache.record(hits, misses);
+        if (cacheHitRatio != null && ratioScheduled.compareAndSet(false, true)) {
+            Objects.getDaemonThreadPool().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ratioScheduled.set(false);
+                    updateCacheHitRatio();
+                }
+            }, RATIO_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    private void updateCacheHitRatio() {
+        double ratio = Math.round(historyCache.getHitRatio() * 10000) / 100.0;
+        Value current = cacheHitRatio.getValue();
+        if (current == null || current.getNumber().doubleValue() != ratio) {
+            cacheHitRatio.setValue(new Value(ratio));
+        }
+    }
+
+    /**
+     * @return Compression state used by the swinging door logging type.
+     */
+    public SwingingDoor<SubscriptionValue> getSwingingDoor() {
+        return swingingDoor;
+    }
+
     public void unsubscribe() {
+        group.flush(this);
         group.removeFromWatches(this);
         removeFromSubscriptionPool();
 
@@ -146,6 +235,9 @@ public class Watch {
         }
 
         initData(node);
+        if (db.isRollupTiersEnabled()) {
+            rollupTiers = new RollupTiers(db, watchedPath);
+        }
 
         initializeWatchDataType();
 
@@ -258,6 +350,39 @@ public class Watch {
             b.setValueType(ValueType.DYNAMIC);
             lastWrittenValue = b.build();
         }
+
+        {
+            NodeBuilder b = node.createChild("cacheHitRatio", false);
+            b.setDisplayName("History Cache Hit Ratio");
+            b.setSerializable(false);
+            b.setValueType(ValueType.NUMBER);
+            b.setValue(new Value(0));
+            b.setAttribute("unit", new Value("%"));
+            cacheHitRatio = b.build();
+        }
+
+        {
+            NodeBuilder b = node.createChild("tolerance", false);
+            b.setDisplayName("Tolerance");
+            b.setWritable(Writable.CONFIG);
+            b.setValueType(ValueType.NUMBER);
+            b.setValue(new Value(0));
+            b.setAttribute("description", new Value(TOLERANCE_DESCRIPTION));
+            b.getListener().setValueHandler(new Handler<ValuePair>() {
+                @Override
+                public void handle(ValuePair event) {
+                    Value v = event.getCurrent();
+                    if (v != null && v.getNumber() != null) {
+                        tolerance = Math.abs(v.getNumber().doubleValue());
+                    }
+                }
+            });
+            Node n = b.build();
+            Value v = n.getValue();
+            if (v != null && v.getNumber() != null) {
+                tolerance = Math.abs(v.getNumber().doubleValue());
+            }
+        }
     }
 
     /**
@@ -14,17 +14,29 @@ import org.dsa.iot.dslink.node.value.ValueType;
 import org.dsa.iot.dslink.provider.LoopProvider;
 import org.dsa.iot.dslink.util.StringUtils;
 import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.stats.rollup.RollupTiers;
 import org.dsa.iot.historian.utils.QueryData;
+import org.dsa.iot.historian.utils.SwingingDoor;
 import org.dsa.iot.historian.utils.WatchUpdate;
+import org.dsa.iot.historian.utils.WriteData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Samuel Grenier
  */
 public class WatchGroup {
+    private static final Logger LOGGER;
     private static final int MINIMUM_AMOUNT_OF_THREADS = 3;
+    private static final int MAX_DISPATCH_RUN = 1000;
+    static final int MAX_BACKLOG = 100000;
+    private static final int REPLAY_BATCH_SIZE = 1000;
     private static final long DEFAULT_INTERVAL_IN_SECONDS = 5;
     private static final int DEFAULT_BUFFER_FLUSH_TIME_IN_SECONDS = 5;
     private static final LoggingType DEFAULT_LOGGING_TYPE = LoggingType.ALL_DATA;
@@ -33,9 +45,28 @@ public class WatchGroup {
     private final Database db;
     private final Node node;
     private final Queue<WatchUpdate> queue = new ConcurrentLinkedDeque<>();
+    private final Queue<WatchUpdate> inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inboundSize = new AtomicInteger();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final Object dispatchLock = new Object();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Runnable dispatcher = new Runnable() {
+        @Override
+        public void run() {
+            drainInbound();
+        }
+    };
     private final Object writeLoopLock = new Object();
     private final ScheduledExecutorService intervalScheduler;
     private final List<Watch> watches = new ArrayList<>();
+    private final WriteBuffer buffer;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final Handler<Database> onConnected = new Handler<Database>() {
+        @Override
+        public void handle(Database event) {
+            scheduleReplay();
+        }
+    };
 
     private ScheduledFuture<?> bufferFut;
     private ScheduledFuture<?> scheduledIntervalWriter;
@@ -55,12 +86,39 @@ public class WatchGroup {
 
         int availableProcessors = Runtime.getRuntime().availableProcessors();
         intervalScheduler = Executors.newScheduledThreadPool(Math.min(MINIMUM_AMOUNT_OF_THREADS, availableProcessors));
+
+        WriteBuffers buffers = db.getWriteBuffers();
+        if (buffers != null) {
+            buffer = buffers.create(node);
+            db.addConnectHandler(onConnected);
+            if (db.isConnected() && buffer.hasPending()) {
+                scheduleReplay();
+            }
+        } else {
+            buffer = null;
+        }
     }
 
     public void close() {
+        // Points held back by the swinging doors are written before the
+        // group stops, along with the updates dispatched before them.
+        for (Watch watch : watches) {
+            flush(watch);
+        }
+        drainAll();
         if (bufferFut != null) {
             bufferFut.cancel(true);
         }
+        db.removeConnectHandler(onConnected);
+    }
+
+    /**
+     * Deletes any points buffered while the database was disconnected.
+     */
+    void discardBuffer() {
+        if (buffer != null) {
+            buffer.discard();
+        }
     }
 
     /**
@@ -73,6 +131,128 @@ public class WatchGroup {
         return db;
     }
 
+    /**
+     * Queues a subscription update of a watch in the group. Updates are
+     * processed in order on the executor of the group, the caller never
+     * blocks on the database. Updates are dropped while the backlog of
+     * the group is full so that a stalled database cannot exhaust the
+     * memory.
+     *
+     * @param watch Watch that received the update.
+     * @param sv    Subscription update received from the server.
+     */
+    public void dispatch(Watch watch, SubscriptionValue sv) {
+        if (inboundSize.get() >= MAX_BACKLOG) {
+            if (dropped.getAndIncrement() == 0) {
+                LOGGER.warn("{} updates are waiting to be written to {}, "
+                        + "dropping updates", MAX_BACKLOG, node.getPath());
+            }
+            return;
+        }
+        inbound.add(new WatchUpdate(watch, sv));
+        inboundSize.incrementAndGet();
+        scheduleDispatch();
+    }
+
+    /**
+     * @return Amount of updates waiting to be processed.
+     */
+    int getBacklog() {
+        return inboundSize.get();
+    }
+
+    /**
+     * Writes the point held back by the swinging door of a watch once the
+     * updates dispatched before are processed.
+     *
+     * @param watch Watch to flush.
+     */
+    void flush(Watch watch) {
+        inbound.add(new WatchUpdate(watch, null));
+        inboundSize.incrementAndGet();
+        scheduleDispatch();
+    }
+
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            try {
+                intervalScheduler.execute(dispatcher);
+            } catch (RejectedExecutionException e) {
+                releaseDispatch();
+                throw e;
+            }
+        }
+    }
+
+    private void drainInbound() {
+        try {
+            drain(MAX_DISPATCH_RUN);
+        } finally {
+            releaseDispatch();
+        }
+        long count = dropped.get();
+        if (count > 0 && inboundSize.get() < MAX_BACKLOG / 2
+                && dropped.compareAndSet(count, 0)) {
+            LOGGER.warn("Dropped {} updates of {}", count, node.getPath());
+        }
+        if (!inbound.isEmpty()) {
+            // Yield between runs to let the interval writer through
+            scheduleDispatch();
+        }
+    }
+
+    /**
+     * Processes every dispatched update on the calling thread, waiting for
+     * a dispatch that is currently running to finish first.
+     */
+    private void drainAll() {
+        synchronized (dispatchLock) {
+            while (!dispatching.compareAndSet(false, true)) {
+                try {
+                    dispatchLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        try {
+            drain(Integer.MAX_VALUE);
+        } finally {
+            releaseDispatch();
+        }
+    }
+
+    private void releaseDispatch() {
+        dispatching.set(false);
+        synchronized (dispatchLock) {
+            dispatchLock.notifyAll();
+        }
+    }
+
+    private void drain(int max) {
+        WatchUpdate update;
+        int count = 0;
+        while (count++ < max && (update = inbound.poll()) != null) {
+            inboundSize.decrementAndGet();
+            Watch watch = update.getWatch();
+            try {
+                SubscriptionValue sv = update.getUpdate();
+                if (sv == null) {
+                    SubscriptionValue held = watch.getSwingingDoor().reset();
+                    if (held != null) {
+                        writeUpdate(watch, held);
+                    }
+                } else {
+                    watch.onData(sv);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to process update of {}",
+                             watch.getPath(), e);
+            }
+        }
+    }
+
     /**
      * Writes to the database based on the watch group settings.
      *
@@ -98,19 +278,109 @@ public class WatchGroup {
                 }
                 break;
             }
+            case DEADBAND:
+            case PERCENT_DEADBAND: {
+                Value curr = watch.getLastValue();
+                Value update = sv.getValue();
+                boolean percent = loggingType == LoggingType.PERCENT_DEADBAND;
+                if (exceedsDeadband(curr, update, watch.getTolerance(), percent)) {
+                    doWrite = true;
+                    watch.setLastValue(update);
+                }
+                break;
+            }
+            case SWINGING_DOOR: {
+                SubscriptionValue archived = swingDoor(watch, sv);
+                if (archived != null) {
+                    doWrite = true;
+                    sv = archived;
+                }
+                break;
+            }
         }
 
         if (doWrite) {
-            WatchUpdate update = new WatchUpdate(watch, sv);
-            if (bufferFut != null) {
-                queue.add(update);
-                return;
-            } else if (!queue.isEmpty()) {
-                handleQueue();
+            writeUpdate(watch, sv);
+        }
+    }
+
+    private void writeUpdate(Watch watch, SubscriptionValue sv) {
+        WatchUpdate update = new WatchUpdate(watch, sv);
+        if (bufferFut != null) {
+            queue.add(update);
+            return;
+        } else if (!queue.isEmpty()) {
+            handleQueue();
+        }
+        dbWrite(update);
+        watch.handleLastWritten(sv.getValue());
+    }
+
+    /**
+     * Numeric updates are only logged once they deviate from the last
+     * logged value by more than the tolerance. Any other update is logged
+     * when it changes.
+     *
+     * @param curr Last logged value.
+     * @param update Received value.
+     * @param tolerance Deadband around the last logged value.
+     * @param percent Whether the tolerance is a percentage of the last
+     *                logged value.
+     * @return Whether the received value must be logged.
+     */
+    static boolean exceedsDeadband(Value curr,
+                                   Value update,
+                                   double tolerance,
+                                   boolean percent) {
+        if (curr == null || update == null) {
+            return curr != update;
+        }
+        Number last = curr.getNumber();
+        Number next = update.getNumber();
+        if (last == null || next == null) {
+            return !curr.equals(update);
+        }
+        double a = last.doubleValue();
+        double b = next.doubleValue();
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return Double.isNaN(a) != Double.isNaN(b);
+        }
+        double band = tolerance;
+        if (percent) {
+            band = Math.abs(a) * band / 100;
+        }
+        return Math.abs(b - a) > band;
+    }
+
+    /**
+     * Compresses numeric updates with the swinging door of the watch. The
+     * update that is returned can be an older update that must now be
+     * archived. Any other update and NaN first write the point held back
+     * by the door, they are logged when they change and restart the door.
+     *
+     * @return The update to write or {@code null} if nothing is written.
+     */
+    private SubscriptionValue swingDoor(Watch watch, SubscriptionValue sv) {
+        Value update = sv.getValue();
+        Number number = update == null ? null : update.getNumber();
+        SwingingDoor<SubscriptionValue> door = watch.getSwingingDoor();
+        if (number == null || Double.isNaN(number.doubleValue())) {
+            SubscriptionValue held = door.reset();
+            if (held != null) {
+                writeUpdate(watch, held);
             }
-            dbWrite(update);
-            watch.handleLastWritten(sv.getValue());
         }
+        if (number == null) {
+            Value curr = watch.getLastValue();
+            watch.setLastValue(update);
+            if (curr == null ? update == null : curr.equals(update)) {
+                return null;
+            }
+            return sv;
+        }
+        watch.setLastValue(update);
+        long ts = update.getTime();
+        return door.offer(ts, number.doubleValue(), sv, watch.getTolerance());
     }
 
     private void writeWatchesToBuffer(Date nowTimestamp) {
@@ -225,6 +495,8 @@ public class WatchGroup {
             public void handle(ActionResult event) {
                 Node node = event.getNode().getParent();
                 unsubscribe();
+                close();
+                discardBuffer();
                 node.delete(false);
             }
         }));
@@ -388,11 +660,42 @@ public class WatchGroup {
 
     private void handleQueue() {
         int size = queue.size();
+        if (size <= 0) {
+            return;
+        }
 
+        List<WriteData> points = new ArrayList<>(size);
+        List<WatchUpdate> written = new ArrayList<>(size);
         WatchUpdate update = null;
         for (int i = 0; i < size; ++i) {
             update = queue.poll();
-            dbWrite(update);
+            if (update == null) {
+                break;
+            }
+            WriteData data = toWriteData(update);
+            if (data != null) {
+                points.add(data);
+                written.add(update);
+            }
+        }
+
+        if (!points.isEmpty()) {
+            int count = points.size();
+            for (int i = 0; i < count; ++i) {
+                RollupTiers tiers = written.get(i).getWatch().getRollupTiers();
+                if (tiers != null) {
+                    WriteData data = points.get(i);
+                    tiers.update(data.getValue(), data.getTimestamp(), points);
+                }
+            }
+            persist(points);
+            for (int i = 0; i < count; ++i) {
+                WriteData data = points.get(i);
+                Watch watch = written.get(i).getWatch();
+                watch.getHistoryCache().add(data.getTimestamp(), data.getValue());
+                watch.notifyHandlers(new QueryData(data.getValue(), data.getTimestamp()));
+                restoreRollupTiers(watch);
+            }
         }
 
         if (update != null) {
@@ -402,19 +705,114 @@ public class WatchGroup {
     }
 
     private void dbWrite(WatchUpdate update) {
-        Value value = update.getUpdate().getValue();
-        if (value != null) {
-            long time;
-            if (LoggingType.INTERVAL == loggingType) {
-                time = update.getIntervalTimestamp();
+        WriteData data = toWriteData(update);
+        if (data != null) {
+            Value value = data.getValue();
+            long time = data.getTimestamp();
+            RollupTiers tiers = update.getWatch().getRollupTiers();
+            if (tiers != null) {
+                List<WriteData> points = new ArrayList<>(4);
+                points.add(data);
+                tiers.update(value, time, points);
+                persist(points);
+                restoreRollupTiers(update.getWatch());
+            } else if (buffer == null) {
+                db.write(data.getPath(), value, time);
             } else {
-                time = value.getTime();
+                persist(Collections.singletonList(data));
             }
-            Watch watch = update.getWatch();
+            update.getWatch().getHistoryCache().add(time, value);
+            update.getWatch().notifyHandlers(new QueryData(value, time));
+        }
+    }
 
-            db.write(watch.getPath(), value, time);
-            watch.notifyHandlers(new QueryData(value, time));
+    /**
+     * Restores the rollup tiers of a watch once its database is connected
+     * and every buffered point was replayed into it.
+     *
+     * @param watch Watch that was written to.
+     */
+    private void restoreRollupTiers(Watch watch) {
+        RollupTiers tiers = watch.getRollupTiers();
+        if (tiers == null || !tiers.needsRestore() || !db.isConnected()) {
+            return;
+        } else if (buffer != null && buffer.hasPending()) {
+            return;
         }
+        tiers.restore(new Handler<List<WriteData>>() {
+            @Override
+            public void handle(List<WriteData> points) {
+                persist(points);
+            }
+        });
+    }
+
+    /**
+     * Writes the points into the database or into the write buffer while
+     * the database is disconnected. Points are also buffered while older
+     * buffered points are waiting to be replayed in order to preserve the
+     * write order.
+     *
+     * @param points Points to write.
+     */
+    private void persist(List<WriteData> points) {
+        if (buffer == null) {
+            db.writeBatch(points);
+            return;
+        }
+        if (db.isConnected() && !buffer.hasPending()) {
+            try {
+                db.writeBatch(points);
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to write to the database, buffering", e);
+                db.connectionLost();
+            }
+        }
+        buffer.append(points);
+        if (db.isConnected()) {
+            scheduleReplay();
+        }
+    }
+
+    private void scheduleReplay() {
+        if (buffer == null || !replaying.compareAndSet(false, true)) {
+            return;
+        }
+        intervalScheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int count = buffer.replay(db, REPLAY_BATCH_SIZE);
+                    if (count > 0) {
+                        LOGGER.info("Replayed {} buffered points into {}",
+                                    count, node.getPath());
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to replay buffered points", e);
+                    db.connectionLost();
+                } finally {
+                    replaying.set(false);
+                }
+                if (db.isConnected() && buffer.hasPending()) {
+                    scheduleReplay();
+                }
+            }
+        });
+    }
+
+    private WriteData toWriteData(WatchUpdate update) {
+        Value value = update.getUpdate().getValue();
+        if (value == null) {
+            return null;
+        }
+        long time;
+        if (LoggingType.INTERVAL == loggingType) {
+            time = update.getIntervalTimestamp();
+        } else {
+            time = value.getTime();
+        }
+        return new WriteData(update.getWatch().getPath(), value, time);
     }
 
     public boolean canWriteOnNewData() {
@@ -514,4 +912,8 @@ public class WatchGroup {
             scheduleWriteToBuffer();
         }
     }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(WatchGroup.class);
+    }
 }
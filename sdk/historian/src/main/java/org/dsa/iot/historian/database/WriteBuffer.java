@@ -0,0 +1,234 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueUtils;
+import org.dsa.iot.dslink.util.json.EncodingFormat;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.historian.utils.WriteData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append only segment file holding the points of a watch group that could
+ * not be written while its database was disconnected. Every record is a
+ * message packed array of the path, timestamp and value prefixed by its
+ * length. Records are replayed in the order they were appended and the
+ * file is deleted once it has been fully replayed.
+ *
+ * @author Samuel Grenier
+ * @see WriteBuffers
+ */
+class WriteBuffer {
+
+    private static final Logger LOGGER;
+
+    private final WriteBuffers buffers;
+    private final File file;
+
+    private RandomAccessFile raf;
+    private long readOffset;
+    private long size;
+    private boolean dropping;
+
+    WriteBuffer(WriteBuffers buffers, File file) {
+        this.buffers = buffers;
+        this.file = file;
+        if (file.length() > 0) {
+            size = recover();
+            buffers.addUsed(size);
+        }
+    }
+
+    /**
+     * @return Whether any points are waiting to be replayed.
+     */
+    synchronized boolean hasPending() {
+        return readOffset < size;
+    }
+
+    /**
+     * Appends the points to the end of the buffer. Points are dropped when
+     * the disk budget of the database is exhausted.
+     *
+     * @param points Points to buffer.
+     */
+    synchronized void append(Collection<WriteData> points) {
+        ByteBuffer records = ByteBuffer.allocate(points.size() * 32);
+        for (WriteData data : points) {
+            JsonArray record = new JsonArray();
+            record.add(data.getPath());
+            record.add(data.getTimestamp());
+            record.add(ValueUtils.toObject(data.getValue()));
+            byte[] encoded = record.encode(EncodingFormat.MESSAGE_PACK);
+            if (records.remaining() < 4 + encoded.length) {
+                int capacity = records.capacity() * 2 + 4 + encoded.length;
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                records.flip();
+                grown.put(records);
+                records = grown;
+            }
+            records.putInt(encoded.length);
+            records.put(encoded);
+        }
+        long bytes = records.position();
+        if (!buffers.reserve(bytes)) {
+            if (!dropping) {
+                dropping = true;
+                LOGGER.warn("Write buffer budget exhausted, dropping data");
+            }
+            return;
+        }
+        dropping = false;
+        try {
+            RandomAccessFile raf = open();
+            raf.seek(size);
+            raf.write(records.array(), 0, records.position());
+            size += bytes;
+        } catch (IOException e) {
+            buffers.addUsed(-bytes);
+            LOGGER.error("Failed to buffer {} points", points.size(), e);
+        }
+    }
+
+    /**
+     * Writes the buffered points into the database in batches. Points that
+     * are appended during the replay are replayed as well. Stops at the
+     * first failed batch which is retried on the next replay.
+     *
+     * @param db Database to write into.
+     * @param batchSize Maximum amount of points per batch.
+     * @return Amount of points replayed.
+     */
+    int replay(Database db, int batchSize) {
+        int replayed = 0;
+        List<WriteData> batch = new ArrayList<>(batchSize);
+        while (true) {
+            long next;
+            synchronized (this) {
+                next = read(batch, batchSize);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            db.writeBatch(batch);
+            replayed += batch.size();
+            buffers.addReplayed(batch.size());
+            batch.clear();
+            synchronized (this) {
+                buffers.addUsed(readOffset - next);
+                readOffset = next;
+                if (readOffset >= size) {
+                    reset();
+                    break;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Deletes the buffer and every point it holds.
+     */
+    synchronized void discard() {
+        buffers.addUsed(readOffset - size);
+        reset();
+    }
+
+    private long read(List<WriteData> batch, int batchSize) {
+        long pos = readOffset;
+        try {
+            RandomAccessFile raf = open();
+            while (pos < size && batch.size() < batchSize) {
+                raf.seek(pos);
+                int length = pos + 4 <= size ? raf.readInt() : -1;
+                if (length < 0 || pos + 4 + length > size) {
+                    // Torn tails are truncated on recovery, this is corruption
+                    LOGGER.error("Discarding corrupt records in {}", file);
+                    buffers.addUsed(pos - size);
+                    size = pos;
+                    raf.setLength(size);
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                raf.readFully(bytes);
+                JsonArray record = new JsonArray(EncodingFormat.MESSAGE_PACK, bytes);
+                String path = record.get(0);
+                long ts = ((Number) record.get(1)).longValue();
+                Value value = ValueUtils.toValue(record.get(2));
+                batch.add(new WriteData(path, value, ts));
+                pos += 4 + length;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to read {}", file, e);
+        }
+        return pos;
+    }
+
+    /**
+     * Scans the records left over from a previous run and truncates a
+     * record that was cut short by a crash while it was appended, before
+     * any new record can be appended after it.
+     *
+     * @return Size of the valid records.
+     */
+    private long recover() {
+        long pos = 0;
+        try {
+            RandomAccessFile raf = open();
+            long length = raf.length();
+            while (pos + 4 <= length) {
+                raf.seek(pos);
+                int len = raf.readInt();
+                if (len <= 0 || pos + 4 + len > length) {
+                    break;
+                }
+                pos += 4 + len;
+            }
+            if (pos < length) {
+                LOGGER.warn("Discarding truncated record in {}", file);
+                raf.setLength(pos);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to recover {}", file, e);
+        }
+        return pos;
+    }
+
+    private RandomAccessFile open() throws IOException {
+        if (raf == null) {
+            File parent = file.getParentFile();
+            if (!(parent.isDirectory() || parent.mkdirs())) {
+                throw new IOException("Failed to create " + parent.getPath());
+            }
+            raf = new RandomAccessFile(file, "rw");
+        }
+        return raf;
+    }
+
+    private void reset() {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+            }
+            raf = null;
+        }
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Failed to delete {}", file);
+        }
+        readOffset = 0;
+        size = 0;
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(WriteBuffer.class);
+    }
+}
@@ -0,0 +1,198 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.DSLinkHandler;
+import org.dsa.iot.dslink.config.Configuration;
+import org.dsa.iot.dslink.link.Linkable;
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.Writable;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValuePair;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.util.Objects;
+import org.dsa.iot.dslink.util.handler.Handler;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-ahead buffers of the watch groups of a database. Points are
+ * buffered on disk while the database is disconnected and replayed once
+ * it reconnects. All the buffers of a database share a disk budget. The
+ * budget, fill level and replay rate are exposed as nodes under the
+ * database node. Buffers are stored next to the serialized nodes of the
+ * link and are keyed by IDs stored in the configurations of the database
+ * and watch group nodes, so renaming either keeps its buffer.
+ *
+ * @author Samuel Grenier
+ * @see WriteBuffer
+ */
+class WriteBuffers {
+
+    private static final String DIR_NAME = "buffers";
+    private static final String ID_CONFIG = "bufferId";
+    private static final long DEFAULT_BUDGET = 256;
+    private static final long MB = 1024 * 1024;
+
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final File dir;
+
+    private volatile long budget = DEFAULT_BUDGET * MB;
+    private Node usageNode;
+    private Node rateNode;
+    private ScheduledFuture<?> statsFut;
+
+    /**
+     * @param node Database node.
+     */
+    WriteBuffers(Node node) {
+        this.dir = new File(rootOf(node), idOf(node));
+        initNodes(node);
+    }
+
+    /**
+     * @param group Watch group node.
+     * @return The buffer of the watch group.
+     */
+    WriteBuffer create(Node group) {
+        return new WriteBuffer(this, new File(dir, idOf(group) + ".wal"));
+    }
+
+    /**
+     * @return Directory holding the buffers of the database.
+     */
+    File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Reserves space within the disk budget.
+     *
+     * @param bytes Amount of bytes to reserve.
+     * @return Whether the budget allows the reservation.
+     */
+    boolean reserve(long bytes) {
+        while (true) {
+            long current = used.get();
+            if (current + bytes > budget) {
+                return false;
+            } else if (used.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    void addUsed(long bytes) {
+        used.addAndGet(bytes);
+    }
+
+    void addReplayed(int points) {
+        replayed.addAndGet(points);
+    }
+
+    void close() {
+        ScheduledFuture<?> fut = statsFut;
+        if (fut != null) {
+            fut.cancel(false);
+        }
+    }
+
+    /**
+     * @param node Node of the link.
+     * @return Directory next to the serialized nodes of the link or the
+     *         working directory if the link is not serialized.
+     */
+    private static File rootOf(Node node) {
+        Linkable link = node.getLink();
+        DSLinkHandler handler = link != null ? link.getHandler() : null;
+        Configuration config = handler != null ? handler.getConfig() : null;
+        File nodes = config != null ? config.getSerializationPath() : null;
+        File parent = nodes != null ? nodes.getAbsoluteFile().getParentFile() : null;
+        return parent != null ? new File(parent, DIR_NAME) : new File(DIR_NAME);
+    }
+
+    /**
+     * @param node Database or watch group node.
+     * @return ID of the node, assigned once and kept when it is renamed.
+     */
+    private static String idOf(Node node) {
+        Value v = node.getRoConfig(ID_CONFIG);
+        if (v == null || v.getString() == null) {
+            v = new Value(UUID.randomUUID().toString());
+            node.setRoConfig(ID_CONFIG, v);
+        }
+        return v.getString();
+    }
+
+    private void initNodes(Node node) {
+        {
+            NodeBuilder b = node.createChild("bufferBudget", false);
+            b.setDisplayName("Buffer Budget");
+            b.setWritable(Writable.CONFIG);
+            b.setValueType(ValueType.NUMBER);
+            b.setValue(new Value(DEFAULT_BUDGET));
+            b.setAttribute("unit", new Value("MB"));
+            b.getListener().setValueHandler(new Handler<ValuePair>() {
+                @Override
+                public void handle(ValuePair event) {
+                    Value v = event.getCurrent();
+                    if (v != null && v.getNumber() != null) {
+                        budget = v.getNumber().longValue() * MB;
+                    }
+                }
+            });
+            Node n = b.build();
+            Value v = n.getValue();
+            if (v != null && v.getNumber() != null) {
+                budget = v.getNumber().longValue() * MB;
+            }
+        }
+
+        {
+            NodeBuilder b = node.createChild("bufferUsage", false);
+            b.setDisplayName("Buffer Usage");
+            b.setSerializable(false);
+            b.setValueType(ValueType.NUMBER);
+            b.setValue(new Value(0));
+            b.setAttribute("unit", new Value("%"));
+            usageNode = b.build();
+        }
+
+        {
+            NodeBuilder b = node.createChild("bufferReplayRate", false);
+            b.setDisplayName("Buffer Replay Rate");
+            b.setSerializable(false);
+            b.setValueType(ValueType.NUMBER);
+            b.setValue(new Value(0));
+            b.setAttribute("unit", new Value("points/s"));
+            rateNode = b.build();
+        }
+
+        statsFut = Objects.getDaemonThreadPool().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                updateStats();
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void updateStats() {
+        long budget = this.budget;
+        double usage = budget <= 0 ? 100 : used.get() * 100.0 / budget;
+        usage = Math.round(usage * 100) / 100.0;
+        Value current = usageNode.getValue();
+        if (current == null || current.getNumber().doubleValue() != usage) {
+            usageNode.setValue(new Value(usage));
+        }
+
+        long rate = replayed.getAndSet(0);
+        current = rateNode.getValue();
+        if (current == null || current.getNumber().longValue() != rate) {
+            rateNode.setValue(new Value(rate));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.dsa.iot.historian.database.embedded;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Big-endian bit stream reader over a region of a buffer. The buffer is
+ * typically a memory mapped segment so reads are performed with absolute
+ * indices and never alter the buffer position.
+ *
+ * @author Samuel Grenier
+ */
+class BitInput {
+
+    private final ByteBuffer buf;
+    private final int offset;
+    private long bits;
+
+    BitInput(ByteBuffer buf, int offset) {
+        this.buf = buf;
+        this.offset = offset;
+    }
+
+    boolean readBit() {
+        int b = buf.get(offset + (int) (bits >>> 3));
+        boolean bit = ((b << (int) (bits & 7)) & 0x80) != 0;
+        bits++;
+        return bit;
+    }
+
+    /**
+     * @param count Amount of bits to read, between 0 and 64.
+     * @return The bits read as an unsigned value.
+     */
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int b = buf.get(offset + (int) (bits >>> 3)) & 0xFF;
+            int used = (int) (bits & 7);
+            int avail = 8 - used;
+            int n = count < avail ? count : avail;
+            int chunk = (b >>> (avail - n)) & ((1 << n) - 1);
+            value = (value << n) | chunk;
+            bits += n;
+            count -= n;
+        }
+        return value;
+    }
+
+    byte[] readBytes() {
+        int len = (int) readBits(32);
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = (byte) readBits(8);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,86 @@
+package org.dsa.iot.historian.database.embedded;
+
+import java.util.Arrays;
+
+/**
+ * Growable big-endian bit stream used to encode chunks.
+ *
+ * @author Samuel Grenier
+ */
+class BitOutput {
+
+    private byte[] buf;
+    private long bits;
+
+    BitOutput(int capacity) {
+        buf = new byte[capacity];
+    }
+
+    /**
+     * @return Amount of bits written so far.
+     */
+    long bitLength() {
+        return bits;
+    }
+
+    /**
+     * @return Amount of bytes required to hold every written bit.
+     */
+    int byteLength() {
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    void writeBit(boolean bit) {
+        ensure(1);
+        if (bit) {
+            int index = (int) (bits >>> 3);
+            buf[index] |= (byte) (0x80 >>> (int) (bits & 7));
+        }
+        bits++;
+    }
+
+    /**
+     * Writes the lowest {@code count} bits of {@code value}, most
+     * significant bit first.
+     *
+     * @param value Value to write.
+     * @param count Amount of bits to write, between 0 and 64.
+     */
+    void writeBits(long value, int count) {
+        ensure(count);
+        while (count > 0) {
+            int index = (int) (bits >>> 3);
+            int free = 8 - (int) (bits & 7);
+            int n = count < free ? count : free;
+            int chunk = (int) ((value >>> (count - n)) & ((1 << n) - 1));
+            buf[index] |= (byte) (chunk << (free - n));
+            bits += n;
+            count -= n;
+        }
+    }
+
+    void writeBytes(byte[] bytes) {
+        writeBits(bytes.length, 32);
+        for (byte b : bytes) {
+            writeBits(b, 8);
+        }
+    }
+
+    /**
+     * @return A copy of the written bytes.
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, byteLength());
+    }
+
+    private void ensure(int count) {
+        long needed = (bits + count + 7) >>> 3;
+        if (needed > buf.length) {
+            int size = buf.length << 1;
+            if (size < needed) {
+                size = (int) needed;
+            }
+            buf = Arrays.copyOf(buf, size);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.EncodingFormat;
+
+/**
+ * Compresses a run of points of the same kind using the encoding
+ * described in Facebook's Gorilla paper. Timestamps are stored as a delta
+ * of deltas which takes a single bit for points written on a regular
+ * interval. Numbers are stored as the XOR of the previous value which
+ * takes a single bit for unchanged values and only the meaningful bits
+ * otherwise. Integers that a double cannot represent exactly have their
+ * own kind which XORs the integer bits instead. Other kinds of values are
+ * stored as raw bytes.
+ *
+ * @author Samuel Grenier
+ */
+class ChunkEncoder {
+
+    static final byte KIND_NUMBER = 0;
+    static final byte KIND_BOOL = 1;
+    static final byte KIND_STRING = 2;
+    static final byte KIND_MAP = 3;
+    static final byte KIND_ARRAY = 4;
+    static final byte KIND_BINARY = 5;
+    static final byte KIND_LONG = 6;
+
+    private final BitOutput out = new BitOutput(256);
+    private final byte kind;
+
+    private int count;
+    private long minTs;
+    private long maxTs;
+    private long lastTs;
+    private long lastDelta;
+
+    private long lastBits;
+    private int lastLeading = Integer.MAX_VALUE;
+    private int lastTrailing;
+
+    ChunkEncoder(byte kind) {
+        this.kind = kind;
+    }
+
+    byte getKind() {
+        return kind;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getMinTs() {
+        return minTs;
+    }
+
+    long getMaxTs() {
+        return maxTs;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends a point to the chunk. The value must be of the same kind
+     * as the chunk.
+     *
+     * @param ts Timestamp of the point.
+     * @param value Value of the point.
+     */
+    void append(long ts, Value value) {
+        writeTime(ts);
+        switch (kind) {
+            case KIND_NUMBER: {
+                double number = value.getNumber().doubleValue();
+                writeNumber(Double.doubleToRawLongBits(number));
+                break;
+            }
+            case KIND_LONG:
+                writeNumber(value.getNumber().longValue());
+                break;
+            case KIND_BOOL:
+                out.writeBit(value.getBool());
+                break;
+            case KIND_STRING:
+                out.writeBytes(value.getString().getBytes(Chunks.UTF_8));
+                break;
+            case KIND_MAP:
+                out.writeBytes(value.getMap().encode(EncodingFormat.MESSAGE_PACK));
+                break;
+            case KIND_ARRAY:
+                out.writeBytes(value.getArray().encode(EncodingFormat.MESSAGE_PACK));
+                break;
+            case KIND_BINARY:
+                out.writeBytes(value.getBinary());
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+        count++;
+    }
+
+    private void writeTime(long ts) {
+        if (count == 0) {
+            out.writeBits(ts, 64);
+            minTs = ts;
+            maxTs = ts;
+            lastTs = ts;
+            return;
+        } else if (ts < minTs) {
+            minTs = ts;
+        } else if (ts > maxTs) {
+            maxTs = ts;
+        }
+        long delta = ts - lastTs;
+        long dod = delta - lastDelta;
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -64 && dod <= 63) {
+            out.writeBits(0x2, 2);
+            out.writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            out.writeBits(0x6, 3);
+            out.writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            out.writeBits(0xE, 4);
+            out.writeBits(dod, 12);
+        } else {
+            out.writeBits(0xF, 4);
+            out.writeBits(dod, 64);
+        }
+        lastDelta = delta;
+        lastTs = ts;
+    }
+
+    private void writeNumber(long bits) {
+        if (count == 0) {
+            out.writeBits(bits, 64);
+            lastBits = bits;
+            return;
+        }
+        long xor = bits ^ lastBits;
+        lastBits = bits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int leading = Long.numberOfLeadingZeros(xor);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leading > 31) {
+            leading = 31;
+        }
+        if (leading >= lastLeading && trailing >= lastTrailing) {
+            out.writeBit(false);
+            int meaningful = 64 - lastLeading - lastTrailing;
+            out.writeBits(xor >>> lastTrailing, meaningful);
+        } else {
+            out.writeBit(true);
+            int meaningful = 64 - leading - trailing;
+            out.writeBits(leading, 5);
+            // A length of 64 does not fit in 6 bits and is stored as 0
+            out.writeBits(meaningful & 0x3F, 6);
+            out.writeBits(xor >>> trailing, meaningful);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+}
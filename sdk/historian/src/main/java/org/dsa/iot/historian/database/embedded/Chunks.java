@@ -0,0 +1,196 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.EncodingFormat;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.dsa.iot.historian.utils.QueryData;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Chunk layout and decoding. Every chunk stored in a segment is prefixed
+ * by a fixed size header:
+ * <pre>
+ *     int  payload length in bytes
+ *     long lowest timestamp
+ *     long highest timestamp
+ *     int  amount of points
+ *     byte kind
+ *     int  CRC32 of the payload
+ * </pre>
+ * The payload is the output of a {@link ChunkEncoder}. The checksum is
+ * used to detect a chunk that was cut short by a crash while it was
+ * appended to its segment.
+ *
+ * @author Samuel Grenier
+ */
+class Chunks {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int HEADER_SIZE = 4 + 8 + 8 + 4 + 1 + 4;
+
+    /**
+     * Largest integer magnitude a double holds exactly.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    private Chunks() {
+    }
+
+    /**
+     * @param value Value to determine the kind of.
+     * @return Kind the value is encoded as or {@code -1} if the value is
+     *         {@code null} and cannot be stored.
+     */
+    static byte kindOf(Value value) {
+        if (value == null) {
+            return -1;
+        } else if (value.getNumber() != null) {
+            Number n = value.getNumber();
+            if (n instanceof Long) {
+                long l = n.longValue();
+                if (l > MAX_EXACT || l < -MAX_EXACT) {
+                    return ChunkEncoder.KIND_LONG;
+                }
+            }
+            return ChunkEncoder.KIND_NUMBER;
+        } else if (value.getBool() != null) {
+            return ChunkEncoder.KIND_BOOL;
+        } else if (value.getString() != null) {
+            return ChunkEncoder.KIND_STRING;
+        } else if (value.getMap() != null) {
+            return ChunkEncoder.KIND_MAP;
+        } else if (value.getArray() != null) {
+            return ChunkEncoder.KIND_ARRAY;
+        } else if (value.getBinary() != null) {
+            return ChunkEncoder.KIND_BINARY;
+        }
+        return -1;
+    }
+
+    static void writeHeader(ByteBuffer buf, ChunkEncoder enc, byte[] payload) {
+        buf.putInt(payload.length);
+        buf.putLong(enc.getMinTs());
+        buf.putLong(enc.getMaxTs());
+        buf.putInt(enc.getCount());
+        buf.put(enc.getKind());
+        buf.putInt(checksum(payload));
+    }
+
+    /**
+     * @param payload Payload of a chunk.
+     * @return Checksum of the payload stored in the header.
+     */
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Decodes the points of a chunk that fall within the designated range.
+     *
+     * @param buf Buffer holding the payload.
+     * @param offset Absolute offset of the payload in the buffer.
+     * @param kind Kind of the chunk.
+     * @param count Amount of points in the chunk.
+     * @param from Inclusive beginning of the range.
+     * @param to Inclusive end of the range.
+     * @param handler Receives every decoded point within the range.
+     */
+    static void decode(ByteBuffer buf, int offset, byte kind, int count,
+                       long from, long to, Handler<QueryData> handler) {
+        BitInput in = new BitInput(buf, offset);
+
+        long ts = 0;
+        long delta = 0;
+
+        long bits = 0;
+        int leading = 0;
+        int trailing = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                ts = in.readBits(64);
+            } else {
+                long dod;
+                if (!in.readBit()) {
+                    dod = 0;
+                } else if (!in.readBit()) {
+                    dod = signExtend(in.readBits(7), 7);
+                } else if (!in.readBit()) {
+                    dod = signExtend(in.readBits(9), 9);
+                } else if (!in.readBit()) {
+                    dod = signExtend(in.readBits(12), 12);
+                } else {
+                    dod = in.readBits(64);
+                }
+                delta += dod;
+                ts += delta;
+            }
+
+            Value value;
+            switch (kind) {
+                case ChunkEncoder.KIND_NUMBER:
+                case ChunkEncoder.KIND_LONG: {
+                    if (i == 0) {
+                        bits = in.readBits(64);
+                    } else if (in.readBit()) {
+                        if (in.readBit()) {
+                            leading = (int) in.readBits(5);
+                            int meaningful = (int) in.readBits(6);
+                            if (meaningful == 0) {
+                                meaningful = 64;
+                            }
+                            trailing = 64 - leading - meaningful;
+                        }
+                        int meaningful = 64 - leading - trailing;
+                        bits ^= in.readBits(meaningful) << trailing;
+                    }
+                    if (kind == ChunkEncoder.KIND_LONG) {
+                        value = new Value(bits);
+                    } else {
+                        value = new Value(Double.longBitsToDouble(bits));
+                    }
+                    break;
+                }
+                case ChunkEncoder.KIND_BOOL:
+                    value = new Value(in.readBit());
+                    break;
+                case ChunkEncoder.KIND_STRING:
+                    value = new Value(new String(in.readBytes(), UTF_8));
+                    break;
+                case ChunkEncoder.KIND_MAP: {
+                    byte[] b = in.readBytes();
+                    EncodingFormat f = EncodingFormat.MESSAGE_PACK;
+                    value = new Value(new JsonObject(f, b));
+                    break;
+                }
+                case ChunkEncoder.KIND_ARRAY: {
+                    byte[] b = in.readBytes();
+                    EncodingFormat f = EncodingFormat.MESSAGE_PACK;
+                    value = new Value(new JsonArray(f, b));
+                    break;
+                }
+                case ChunkEncoder.KIND_BINARY:
+                    value = new Value(in.readBytes());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown kind: " + kind);
+            }
+
+            if (ts >= from && ts <= to) {
+                handler.handle(new QueryData(value, ts));
+            }
+        }
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return (value << shift) >> shift;
+    }
+}
@@ -0,0 +1,177 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.Objects;
+import org.dsa.iot.dslink.util.UrlBase64;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.database.DatabaseProvider;
+import org.dsa.iot.historian.database.QueryCursor;
+import org.dsa.iot.historian.utils.QueryData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded time series database that requires no external server. Every
+ * path is stored in its own directory under the root directory and is
+ * compressed using delta of delta timestamps and XOR'd numbers. The open
+ * chunk of every path is periodically persisted, points that have not
+ * been persisted yet are still returned by queries.
+ *
+ * @author Samuel Grenier
+ * @see Series
+ */
+public class EmbeddedDatabase extends Database {
+
+    private static final Logger LOGGER;
+    private static final long FLUSH_INTERVAL = 5;
+
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+    private final File root;
+    private ScheduledFuture<?> flushFut;
+
+    public EmbeddedDatabase(String name, DatabaseProvider provider, File root) {
+        super(name, provider);
+        if (root == null) {
+            throw new NullPointerException("root");
+        }
+        this.root = root;
+    }
+
+    @Override
+    public void write(String path, Value value, long ts) {
+        try {
+            getSeries(path).write(ts, value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void query(String path,
+                      long from,
+                      long to,
+                      CompleteHandler<QueryData> handler) {
+        try {
+            getSeries(path).query(from, to, handler);
+        } catch (IOException e) {
+            // Never completed so that the failure is not a partial result
+            throw new RuntimeException("Failed to query " + path, e);
+        }
+        handler.complete();
+    }
+
+    @Override
+    public QueryCursor openCursor(String path, long from, long to) {
+        return getSeries(path).cursor(from, to);
+    }
+
+    @Override
+    public boolean isRollupTiersEnabled() {
+        return true;
+    }
+
+    @Override
+    public QueryData queryFirst(String path) {
+        try {
+            return getSeries(path).queryFirst();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public QueryData queryLast(String path) {
+        try {
+            return getSeries(path).queryLast();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Deletes all points of a path within the designated range.
+     *
+     * @param path Path to delete points from.
+     * @param from Inclusive beginning of the range.
+     * @param to Inclusive end of the range.
+     */
+    @Override
+    public void delete(String path, long from, long to) {
+        try {
+            getSeries(path).delete(from, to);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Persists the open chunk of every path.
+     */
+    public void flush() {
+        for (Series s : series.values()) {
+            try {
+                s.flush();
+            } catch (IOException e) {
+                LOGGER.error("Failed to flush series", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (flushFut != null) {
+                flushFut.cancel(false);
+                flushFut = null;
+            }
+        }
+        flush();
+    }
+
+    @Override
+    protected void performConnect() throws Exception {
+        if (!(root.isDirectory() || root.mkdirs())) {
+            throw new IOException("Failed to create " + root.getPath());
+        }
+        synchronized (this) {
+            if (flushFut == null) {
+                flushFut = Objects.getDaemonThreadPool().scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void initExtensions(Node node) {
+    }
+
+    private Series getSeries(String path) {
+        Series s = series.get(path);
+        if (s == null) {
+            String name = UrlBase64.encode(path.getBytes(Chunks.UTF_8));
+            s = new Series(new File(root, name));
+            Series prev = series.putIfAbsent(path, s);
+            if (prev != null) {
+                s = prev;
+            }
+        }
+        return s;
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(EmbeddedDatabase.class);
+    }
+}
@@ -0,0 +1,74 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.Permission;
+import org.dsa.iot.dslink.node.actions.Action;
+import org.dsa.iot.dslink.node.actions.ActionResult;
+import org.dsa.iot.dslink.node.actions.Parameter;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.database.DatabaseProvider;
+import org.dsa.iot.historian.database.Watch;
+import org.dsa.iot.historian.stats.rollup.RollupTiers;
+
+import java.io.File;
+
+/**
+ * Provides {@link EmbeddedDatabase}s stored in a local directory.
+ *
+ * @author Samuel Grenier
+ */
+public class EmbeddedDatabaseProvider extends DatabaseProvider {
+
+    private static final String DIR_CONFIG = "dir";
+
+    @Override
+    public Action createDbAction(Permission perm) {
+        Action a = new Action(perm, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vName = event.getParameter("Name", ValueType.STRING);
+                Value vDir = event.getParameter("Directory", ValueType.STRING);
+
+                NodeBuilder b = createDbNode(vName.getString(), event);
+                b.setConfig(DIR_CONFIG, new Value(vDir.getString()));
+                createAndInitDb(b.build());
+            }
+        });
+        {
+            Parameter p = new Parameter("Name", ValueType.STRING);
+            p.setDescription("Name of the database");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("Directory", ValueType.STRING);
+            p.setDescription("Directory where the database is stored");
+            a.addParameter(p);
+        }
+        return a;
+    }
+
+    @Override
+    protected Database createDb(Node node) {
+        File dir = new File(node.getConfig(DIR_CONFIG).getString());
+        return new EmbeddedDatabase(node.getName(), this, dir);
+    }
+
+    @Override
+    public Permission dbPermission() {
+        return Permission.CONFIG;
+    }
+
+    @Override
+    public void deleteRange(Watch watch, long fromTs, long toTs) {
+        EmbeddedDatabase db = (EmbeddedDatabase) watch.getGroup().getDb();
+        db.delete(watch.getPath(), fromTs, toTs);
+        RollupTiers tiers = watch.getRollupTiers();
+        if (tiers != null) {
+            tiers.rebuild(fromTs, toTs);
+        }
+    }
+}
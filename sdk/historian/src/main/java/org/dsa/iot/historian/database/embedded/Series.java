@@ -0,0 +1,641 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.QueryCursor;
+import org.dsa.iot.historian.utils.QueryData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Storage of a single path. Points are partitioned by day into segment
+ * files, each segment being a sequence of compressed chunks. Points are
+ * accumulated into an open chunk which gets appended to its segment once
+ * it is full or when a point of another kind or day is written. Flushing
+ * the series persists the open chunk into a file of its own that is
+ * atomically replaced on every flush, the chunk keeps accumulating points
+ * and is restored when the series is opened again. Segments are memory
+ * mapped when queried. A chunk that was cut short by a crash is truncated
+ * away when the series is opened, before any chunk can be appended after
+ * it.
+ *
+ * @author Samuel Grenier
+ */
+class Series {
+
+    private static final Logger LOGGER;
+
+    static final long PARTITION_SIZE = 24 * 60 * 60 * 1000;
+    private static final String EXTENSION = ".seg";
+    private static final String OPEN_EXTENSION = ".open";
+    private static final int MAX_POINTS = 4096;
+
+    private final File dir;
+
+    private ChunkEncoder active;
+    private long activePartition;
+    // Amount of points of the open chunk that were persisted
+    private int persisted;
+
+    Series(File dir) {
+        this.dir = dir;
+        for (long p : partitions()) {
+            recover(segmentFile(p));
+        }
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(OPEN_EXTENSION)) {
+                    restore(new File(dir, name));
+                }
+            }
+        }
+    }
+
+    synchronized void write(long ts, Value value) throws IOException {
+        byte kind = Chunks.kindOf(value);
+        if (kind < 0) {
+            return;
+        }
+        long partition = partitionOf(ts);
+        if (active != null && (active.getKind() != kind
+                || activePartition != partition
+                || active.getCount() >= MAX_POINTS)) {
+            seal();
+        }
+        if (active == null) {
+            active = new ChunkEncoder(kind);
+            activePartition = partition;
+            persisted = 0;
+        }
+        active.append(ts, value);
+    }
+
+    /**
+     * Persists the open chunk. The chunk stays open and keeps accumulating
+     * points, it is only appended to its segment once it is sealed.
+     *
+     * @throws IOException Failed to write the chunk, it is kept in memory.
+     */
+    synchronized void flush() throws IOException {
+        if (active == null || persisted == active.getCount()) {
+            return;
+        }
+        mkdirs();
+        File file = openFile(activePartition);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            raf.setLength(0);
+            raf.getChannel().write(serialize(active));
+        }
+        Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        persisted = active.getCount();
+    }
+
+    /**
+     * Appends the open chunk to its segment. The chunk is only discarded
+     * once it was fully written.
+     *
+     * @throws IOException Failed to write the segment.
+     */
+    synchronized void seal() throws IOException {
+        if (active == null) {
+            return;
+        }
+        appendChunk(segmentFile(activePartition), serialize(active));
+        active = null;
+        delete(openFile(activePartition));
+    }
+
+    void query(long from, long to, Handler<QueryData> handler)
+                                                    throws IOException {
+        Snapshot snap = snapshot();
+        ByteBuffer active = snap.active;
+        for (int i = 0; i < snap.partitions.length; i++) {
+            long p = snap.partitions[i];
+            // The open chunk is merged in by its partition
+            if (active != null && snap.activePartition < p) {
+                decodeChunk(active, 0, from, to, handler);
+                active = null;
+            }
+            if (p >= partitionOf(from) && p <= partitionOf(to)) {
+                ByteBuffer buf = map(segmentFile(p), snap.lengths[i]);
+                int pos = 0;
+                while (pos + Chunks.HEADER_SIZE <= buf.limit()) {
+                    int end = pos + Chunks.HEADER_SIZE + buf.getInt(pos);
+                    if (end > buf.limit()) {
+                        break;
+                    }
+                    decodeChunk(buf, pos, from, to, handler);
+                    pos = end;
+                }
+            }
+            if (active != null && snap.activePartition == p) {
+                decodeChunk(active, 0, from, to, handler);
+                active = null;
+            }
+        }
+        if (active != null) {
+            decodeChunk(active, 0, from, to, handler);
+        }
+    }
+
+    /**
+     * Opens a cursor that decodes a single chunk at a time as values are
+     * requested.
+     *
+     * @param from Inclusive beginning of the range.
+     * @param to Inclusive end of the range.
+     * @return Cursor over the values within the range.
+     */
+    QueryCursor cursor(long from, long to) {
+        return new SeriesCursor(snapshot(), from, to);
+    }
+
+    QueryData queryFirst() throws IOException {
+        Snapshot snap = snapshot();
+        QueryData first = null;
+        for (int i = 0; i < snap.partitions.length && first == null; i++) {
+            if (snap.lengths[i] >= Chunks.HEADER_SIZE) {
+                ByteBuffer buf = map(segmentFile(snap.partitions[i]),
+                                     snap.lengths[i]);
+                first = decodeEdge(buf, 0, true);
+            }
+        }
+        if (snap.active != null) {
+            QueryData data = decodeEdge(snap.active, 0, true);
+            if (first == null || data.getTimestamp() < first.getTimestamp()) {
+                first = data;
+            }
+        }
+        return first;
+    }
+
+    QueryData queryLast() throws IOException {
+        Snapshot snap = snapshot();
+        QueryData last = queryLastStored(snap);
+        if (snap.active != null) {
+            QueryData data = decodeEdge(snap.active, 0, false);
+            if (last == null || data.getTimestamp() >= last.getTimestamp()) {
+                last = data;
+            }
+        }
+        return last;
+    }
+
+    private QueryData queryLastStored(Snapshot snap) throws IOException {
+        for (int i = snap.partitions.length - 1; i >= 0; i--) {
+            ByteBuffer buf = map(segmentFile(snap.partitions[i]),
+                                 snap.lengths[i]);
+            int last = -1;
+            int pos = 0;
+            while (pos + Chunks.HEADER_SIZE <= buf.limit()) {
+                int end = pos + Chunks.HEADER_SIZE + buf.getInt(pos);
+                if (end > buf.limit()) {
+                    break;
+                }
+                last = pos;
+                pos = end;
+            }
+            if (last >= 0) {
+                return decodeEdge(buf, last, false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes every point within the designated range. Segments that only
+     * partially overlap the range are rewritten.
+     *
+     * @param from Inclusive beginning of the range.
+     * @param to Inclusive end of the range.
+     * @throws IOException Failed to rewrite a segment.
+     */
+    synchronized void delete(long from, long to) throws IOException {
+        seal();
+        long[] partitions = partitions();
+        for (long p : partitions) {
+            if (p < partitionOf(from) || p > partitionOf(to)) {
+                continue;
+            }
+            File file = segmentFile(p);
+            long start = p * PARTITION_SIZE;
+            long end = start + PARTITION_SIZE - 1;
+            if (from <= start && to >= end) {
+                delete(file);
+                continue;
+            }
+
+            final List<QueryData> kept = new ArrayList<>();
+            ByteBuffer buf = map(file, file.length());
+            int pos = 0;
+            while (pos + Chunks.HEADER_SIZE <= buf.limit()) {
+                int len = buf.getInt(pos);
+                int chunkEnd = pos + Chunks.HEADER_SIZE + len;
+                if (chunkEnd > buf.limit()) {
+                    break;
+                }
+                int count = buf.getInt(pos + 20);
+                byte kind = buf.get(pos + 24);
+                int off = pos + Chunks.HEADER_SIZE;
+                Chunks.decode(buf, off, kind, count, Long.MIN_VALUE,
+                        Long.MAX_VALUE, new Handler<QueryData>() {
+                    @Override
+                    public void handle(QueryData event) {
+                        kept.add(event);
+                    }
+                });
+                pos = chunkEnd;
+            }
+
+            File tmp = new File(dir, p + EXTENSION + ".tmp");
+            try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+                raf.setLength(0);
+                FileChannel ch = raf.getChannel();
+                ChunkEncoder enc = null;
+                for (QueryData data : kept) {
+                    long ts = data.getTimestamp();
+                    if (ts >= from && ts <= to) {
+                        continue;
+                    }
+                    Value value = data.getValue();
+                    byte kind = Chunks.kindOf(value);
+                    if (enc != null && (enc.getKind() != kind
+                            || enc.getCount() >= MAX_POINTS)) {
+                        ch.write(serialize(enc));
+                        enc = null;
+                    }
+                    if (enc == null) {
+                        enc = new ChunkEncoder(kind);
+                    }
+                    enc.append(ts, value);
+                }
+                if (enc != null) {
+                    ch.write(serialize(enc));
+                }
+            }
+            delete(file);
+            if (tmp.length() == 0) {
+                delete(tmp);
+            } else if (!tmp.renameTo(file)) {
+                throw new IOException("Failed to replace " + file.getPath());
+            }
+        }
+    }
+
+    private void appendChunk(File file, ByteBuffer chunk) throws IOException {
+        mkdirs();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel ch = raf.getChannel();
+            long length = ch.size();
+            try {
+                ch.position(length);
+                while (chunk.hasRemaining()) {
+                    ch.write(chunk);
+                }
+            } catch (IOException e) {
+                // Nothing may be appended after a partial chunk
+                raf.setLength(length);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Restores the open chunk persisted by a previous run. A chunk that
+     * was already appended to its segment before the file could be
+     * deleted is only deleted.
+     *
+     * @param file Persisted open chunk.
+     */
+    private void restore(File file) {
+        String name = file.getName();
+        try {
+            long partition = Long.parseLong(name.substring(0,
+                    name.length() - OPEN_EXTENSION.length()));
+            byte[] bytes = new byte[(int) file.length()];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.readFully(bytes);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            int len = bytes.length - Chunks.HEADER_SIZE;
+            int count = len < 0 ? 0 : buf.getInt(20);
+            if (count <= 0 || buf.getInt(0) != len || buf.getInt(25)
+                    != Chunks.checksum(Arrays.copyOfRange(bytes,
+                            Chunks.HEADER_SIZE, bytes.length))) {
+                LOGGER.warn("Discarding corrupt open chunk {}", file);
+            } else if (!endsWith(segmentFile(partition), bytes)) {
+                if (active == null) {
+                    final ChunkEncoder enc = new ChunkEncoder(buf.get(24));
+                    Chunks.decode(buf, Chunks.HEADER_SIZE, enc.getKind(),
+                            count, Long.MIN_VALUE, Long.MAX_VALUE,
+                            new Handler<QueryData>() {
+                        @Override
+                        public void handle(QueryData event) {
+                            enc.append(event.getTimestamp(), event.getValue());
+                        }
+                    });
+                    active = enc;
+                    activePartition = partition;
+                    persisted = count;
+                    return;
+                }
+                appendChunk(segmentFile(partition), buf);
+            }
+            delete(file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to restore {}", file, e);
+        }
+    }
+
+    private static boolean endsWith(File file, byte[] bytes) throws IOException {
+        long length = file.length();
+        if (length < bytes.length) {
+            return false;
+        }
+        byte[] tail = new byte[bytes.length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(length - bytes.length);
+            raf.readFully(tail);
+        }
+        return Arrays.equals(tail, bytes);
+    }
+
+    /**
+     * Truncates the trailing chunk of a segment if it is incomplete or its
+     * payload does not match its checksum.
+     *
+     * @param file Segment to recover.
+     */
+    private static void recover(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel ch = raf.getChannel();
+            long length = ch.size();
+            ByteBuffer header = ByteBuffer.allocate(Chunks.HEADER_SIZE);
+            long pos = 0;
+            long last = -1;
+            while (pos + Chunks.HEADER_SIZE <= length) {
+                header.clear();
+                ch.read(header, pos);
+                int len = header.getInt(0);
+                long end = pos + Chunks.HEADER_SIZE + len;
+                if (len <= 0 || header.getInt(20) <= 0 || end > length) {
+                    break;
+                }
+                last = pos;
+                pos = end;
+            }
+            if (last >= 0) {
+                header.clear();
+                ch.read(header, last);
+                int len = header.getInt(0);
+                ByteBuffer payload = ByteBuffer.allocate(len);
+                ch.read(payload, last + Chunks.HEADER_SIZE);
+                int crc = Chunks.checksum(payload.array());
+                if (payload.hasRemaining() || crc != header.getInt(25)) {
+                    pos = last;
+                }
+            }
+            if (pos < length) {
+                LOGGER.warn("Discarding truncated chunk in {}", file);
+                raf.setLength(pos);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to recover {}", file, e);
+        }
+    }
+
+    private synchronized Snapshot snapshot() {
+        Snapshot snap = new Snapshot();
+        snap.partitions = partitions();
+        snap.lengths = new long[snap.partitions.length];
+        for (int i = 0; i < snap.partitions.length; i++) {
+            snap.lengths[i] = segmentFile(snap.partitions[i]).length();
+        }
+        if (active != null) {
+            snap.active = serialize(active);
+            snap.activePartition = activePartition;
+        }
+        return snap;
+    }
+
+    private long[] partitions() {
+        String[] names = dir.list();
+        if (names == null) {
+            return new long[0];
+        }
+        long[] partitions = new long[names.length];
+        int size = 0;
+        for (String name : names) {
+            if (!name.endsWith(EXTENSION)) {
+                continue;
+            }
+            name = name.substring(0, name.length() - EXTENSION.length());
+            try {
+                partitions[size++] = Long.parseLong(name);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        partitions = Arrays.copyOf(partitions, size);
+        Arrays.sort(partitions);
+        return partitions;
+    }
+
+    private File segmentFile(long partition) {
+        return new File(dir, partition + EXTENSION);
+    }
+
+    private File openFile(long partition) {
+        return new File(dir, partition + OPEN_EXTENSION);
+    }
+
+    private void mkdirs() throws IOException {
+        if (!(dir.isDirectory() || dir.mkdirs())) {
+            throw new IOException("Failed to create " + dir.getPath());
+        }
+    }
+
+    private static void decodeChunk(ByteBuffer buf,
+                                    int pos,
+                                    long from,
+                                    long to,
+                                    Handler<QueryData> handler) {
+        long min = buf.getLong(pos + 4);
+        long max = buf.getLong(pos + 12);
+        if (max >= from && min <= to) {
+            int count = buf.getInt(pos + 20);
+            byte kind = buf.get(pos + 24);
+            int off = pos + Chunks.HEADER_SIZE;
+            Chunks.decode(buf, off, kind, count, from, to, handler);
+        }
+    }
+
+    private static QueryData decodeEdge(ByteBuffer buf,
+                                        int pos,
+                                        final boolean first) {
+        final QueryData[] edge = new QueryData[1];
+        int count = buf.getInt(pos + 20);
+        byte kind = buf.get(pos + 24);
+        int off = pos + Chunks.HEADER_SIZE;
+        Chunks.decode(buf, off, kind, count, Long.MIN_VALUE,
+                Long.MAX_VALUE, new Handler<QueryData>() {
+            @Override
+            public void handle(QueryData event) {
+                if (!first || edge[0] == null) {
+                    edge[0] = event;
+                }
+            }
+        });
+        return edge[0];
+    }
+
+    private static ByteBuffer serialize(ChunkEncoder enc) {
+        byte[] payload = enc.toByteArray();
+        ByteBuffer buf = ByteBuffer.allocate(Chunks.HEADER_SIZE
+                                                + payload.length);
+        Chunks.writeHeader(buf, enc, payload);
+        buf.put(payload);
+        buf.flip();
+        return buf;
+    }
+
+    private static ByteBuffer map(File file, long length) throws IOException {
+        if (length <= 0) {
+            return ByteBuffer.allocate(0);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel ch = raf.getChannel();
+            MappedByteBuffer buf;
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return buf;
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file.getPath());
+        }
+    }
+
+    static long partitionOf(long ts) {
+        long p = ts / PARTITION_SIZE;
+        if (ts < 0 && p * PARTITION_SIZE != ts) {
+            p--;
+        }
+        return p;
+    }
+
+    private class SeriesCursor implements QueryCursor, Handler<QueryData> {
+
+        private final ArrayDeque<QueryData> pending = new ArrayDeque<>();
+        private final Snapshot snap;
+        private final long from;
+        private final long to;
+
+        private int partition = -1;
+        private ByteBuffer buf;
+        private int pos;
+
+        SeriesCursor(Snapshot snap, long from, long to) {
+            this.snap = snap;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void handle(QueryData data) {
+            pending.add(data);
+        }
+
+        @Override
+        public List<QueryData> next(int batchSize) {
+            try {
+                while (pending.size() < batchSize && decodeNext()) {
+                    // Keep decoding until the batch is filled
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (pending.isEmpty()) {
+                return null;
+            }
+            int size = Math.min(batchSize, pending.size());
+            List<QueryData> data = new ArrayList<>(size);
+            while (size-- > 0) {
+                data.add(pending.poll());
+            }
+            return data;
+        }
+
+        @Override
+        public void close() {
+            pending.clear();
+            partition = snap.partitions.length;
+            snap.active = null;
+            buf = null;
+        }
+
+        /**
+         * Decodes the next chunk within the range.
+         *
+         * @return False if there are no more chunks.
+         */
+        private boolean decodeNext() throws IOException {
+            while (true) {
+                if (buf != null && pos + Chunks.HEADER_SIZE <= buf.limit()) {
+                    int start = pos;
+                    pos += Chunks.HEADER_SIZE + buf.getInt(start);
+                    if (pos <= buf.limit()) {
+                        decodeChunk(buf, start, from, to, this);
+                        return true;
+                    }
+                }
+                buf = null;
+                int next = partition + 1;
+                ByteBuffer active = snap.active;
+                // The open chunk is merged in by its partition
+                if (active != null && (next >= snap.partitions.length
+                        || snap.activePartition < snap.partitions[next])) {
+                    snap.active = null;
+                    decodeChunk(active, 0, from, to, this);
+                    return true;
+                } else if (next >= snap.partitions.length) {
+                    return false;
+                }
+                partition = next;
+                long p = snap.partitions[partition];
+                if (p >= partitionOf(from) && p <= partitionOf(to)) {
+                    buf = map(segmentFile(p), snap.lengths[partition]);
+                    pos = 0;
+                }
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private long[] partitions;
+        private long[] lengths;
+        private ByteBuffer active;
+        private long activePartition;
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(Series.class);
+    }
+}
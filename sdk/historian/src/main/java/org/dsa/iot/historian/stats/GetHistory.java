@@ -16,10 +16,15 @@ import org.dsa.iot.dslink.util.Objects;
 import org.dsa.iot.dslink.util.handler.CompleteHandler;
 import org.dsa.iot.dslink.util.handler.Handler;
 import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.database.HandlerCursor;
+import org.dsa.iot.historian.database.QueryCursor;
 import org.dsa.iot.historian.database.Watch;
 import org.dsa.iot.historian.stats.interval.IntervalParser;
 import org.dsa.iot.historian.stats.interval.IntervalProcessor;
 import org.dsa.iot.historian.stats.rollup.Rollup;
+import org.dsa.iot.historian.stats.rollup.RollupTier;
+import org.dsa.iot.historian.utils.HistoryCache;
+import org.dsa.iot.historian.utils.QueryBlock;
 import org.dsa.iot.historian.utils.QueryData;
 import org.dsa.iot.historian.utils.TimeParser;
 
@@ -31,8 +36,12 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
  */
 public class GetHistory implements Handler<ActionResult> {
 
+    private static final int BATCH_SIZE = 500;
+    private static final int DRAIN_THRESHOLD = BATCH_SIZE * 2;
+
     private final Database db;
     private final String path;
+    private final boolean queryOverridden;
 
     public GetHistory(Node node, Database db) {
         Value useNewEncodingMethod = node.getConfig(Watch.USE_NEW_ENCODING_METHOD_CONFIG_NAME);
@@ -43,6 +52,7 @@ public class GetHistory implements Handler<ActionResult> {
         }
 
         this.db = db;
+        this.queryOverridden = overridesQuery(getClass());
     }
 
     @Override
@@ -88,9 +98,13 @@ public class GetHistory implements Handler<ActionResult> {
                            final IntervalParser parser) {
         final IntervalProcessor interval = IntervalProcessor.parse(
                 parser, rollup, from.getTimeZone());
+        final RollupTier tier = selectTier(rollup, parser, from.getTimeZone());
+        if (tier != null) {
+            interval.useSummaries();
+        }
         LoopProvider.getProvider().schedule(new Runnable() {
 
-            private boolean open = true;
+            private volatile boolean open = true;
             Handler<QueryData> handler;
 
             @Override
@@ -110,17 +124,32 @@ public class GetHistory implements Handler<ActionResult> {
                     }
                 });
 
-                query(from.getTimeInMillis(), to.getTimeInMillis(), rollup, parser,
-                        new CompleteHandler<QueryData>() {
+                CompleteHandler<QueryData> queryHandler = new CompleteHandler<QueryData>() {
 
-                    private List<QueryData> updates = new LinkedList<>();
+                    private List<QueryData> updates = new ArrayList<>(BATCH_SIZE);
+                    private final QueryBlock block = interval == null ? null : new QueryBlock(BATCH_SIZE);
 
                     @Override
                     public void handle(QueryData data) {
                         List<QueryData> updates = this.updates;
-                        if (updates != null) {
+                        if (updates == null) {
+                            return;
+                        }
+                        Value value = data.getValue();
+                        Number number = value == null ? null : value.getNumber();
+                        if (block != null && number != null) {
+                            if (!updates.isEmpty()) {
+                                processQueryData(table, interval, updates, calendar, buffer);
+                            }
+                            if (block.add(data.getTimestamp(), number.doubleValue())) {
+                                processQueryBlock(table, interval, block);
+                            }
+                        } else {
+                            if (block != null && !block.isEmpty()) {
+                                processQueryBlock(table, interval, block);
+                            }
                             updates.add(data);
-                            if (updates.size() >= 500) {
+                            if (updates.size() >= BATCH_SIZE) {
                                 processQueryData(table, interval, updates, calendar, buffer);
                             }
                         }
@@ -131,6 +160,9 @@ public class GetHistory implements Handler<ActionResult> {
                         if (!updates.isEmpty()) {
                             processQueryData(table, interval, updates, calendar, buffer);
                         }
+                        if (block != null && !block.isEmpty()) {
+                            processQueryBlock(table, interval, block);
+                        }
                         updates = null;
 
                         if (!realTime) {
@@ -153,11 +185,111 @@ public class GetHistory implements Handler<ActionResult> {
                             w.addHandler(handler);
                         }
                     }
-                });
+                };
+
+                long fromTs = from.getTimeInMillis();
+                long toTs = to.getTimeInMillis();
+
+                // The tail of the range is answered by the watch's cache
+                Watch watch = null;
+                HistoryCache.Tail tail = null;
+                Object meta = event.getNode().getParent().getMetaData();
+                if (tier == null && meta instanceof Watch) {
+                    watch = (Watch) meta;
+                    tail = watch.getHistoryCache().query(fromTs, toTs);
+                }
+                long dbTo = tail == null ? toTs : tail.getFrom() - 1;
+
+                // Values are only pulled once the previous batch was sent
+                long misses = 0;
+                if (fromTs <= dbTo) {
+                    try (QueryCursor cursor = tier != null
+                            ? openTierCursor(tier, fromTs, dbTo)
+                            : openCursor(fromTs, dbTo, rollup, parser)) {
+                        List<QueryData> batch;
+                        while (open && (batch = cursor.next(BATCH_SIZE)) != null) {
+                            misses += batch.size();
+                            for (QueryData data : batch) {
+                                queryHandler.handle(data);
+                            }
+                        }
+                    }
+                }
+                long hits = 0;
+                if (tail != null) {
+                    for (QueryData data : tail.getPoints()) {
+                        if (!open) {
+                            break;
+                        }
+                        queryHandler.handle(data);
+                        hits++;
+                    }
+                }
+                if (watch != null) {
+                    watch.recordCacheUsage(hits, misses);
+                }
+                if (open) {
+                    queryHandler.complete();
+                }
             }
         });
     }
 
+    /**
+     * Selects the rollup tier a query is answered from.
+     *
+     * @param type Rollup of the query.
+     * @param parser Interval of the query.
+     * @param timeZone Time zone of the query.
+     * @return The tier to query or {@code null} to query raw values.
+     * @see Database#isRollupTiersEnabled()
+     */
+    protected RollupTier selectTier(Rollup.Type type,
+                                    IntervalParser parser,
+                                    TimeZone timeZone) {
+        if (!db.isRollupTiersEnabled()) {
+            return null;
+        }
+        return RollupTier.select(parser, type, timeZone);
+    }
+
+    /**
+     * Opens the cursor the history is pulled from. Unless {@link #query}
+     * is overridden the values are paged from the database directly.
+     *
+     * @param from Beginning search time.
+     * @param to End search time.
+     * @param type Rollup of the query.
+     * @param parser Interval of the query.
+     * @return Cursor over the raw values of the path.
+     */
+    protected QueryCursor openCursor(final long from,
+                                     final long to,
+                                     final Rollup.Type type,
+                                     final IntervalParser parser) {
+        if (!queryOverridden) {
+            return db.openCursor(path, from, to);
+        }
+        return HandlerCursor.open(path, new Handler<CompleteHandler<QueryData>>() {
+            @Override
+            public void handle(CompleteHandler<QueryData> handler) {
+                query(from, to, type, parser, handler);
+            }
+        });
+    }
+
+    /**
+     * Pushes the raw values of the path. Overriding this is still
+     * supported, the values are then pulled through a cursor adapting
+     * the query.
+     *
+     * @param from Beginning search time.
+     * @param to End search time.
+     * @param type Rollup of the query.
+     * @param parser Interval of the query.
+     * @param handler Receives the values in time order.
+     * @see #openCursor
+     */
     @SuppressWarnings("UnusedParameters")
     protected void query(long from,
                          long to,
@@ -167,6 +299,30 @@ public class GetHistory implements Handler<ActionResult> {
         db.query(path, from, to, handler);
     }
 
+    private QueryCursor openTierCursor(final RollupTier tier,
+                                       final long from,
+                                       final long to) {
+        return HandlerCursor.open(path, new Handler<CompleteHandler<QueryData>>() {
+            @Override
+            public void handle(CompleteHandler<QueryData> handler) {
+                tier.query(db, path, from, to, handler);
+            }
+        });
+    }
+
+    static boolean overridesQuery(Class<?> clazz) {
+        for (Class<?> c = clazz; c != GetHistory.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("query", long.class, long.class,
+                        Rollup.Type.class, IntervalParser.class,
+                        CompleteHandler.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
+
     protected void processQueryData(Table table,
                                     IntervalProcessor interval,
                                     Collection<QueryData> data,
@@ -176,10 +332,7 @@ public class GetHistory implements Handler<ActionResult> {
             return;
         }
         BatchRow batch = null;
-        Iterator<QueryData> it = data.iterator();
-        while (it.hasNext()) {
-            QueryData update = it.next();
-            it.remove();
+        for (QueryData update : data) {
             Row row;
             long time = update.getTimestamp();
             if (interval == null) {
@@ -200,8 +353,31 @@ public class GetHistory implements Handler<ActionResult> {
                 batch.addRow(row);
             }
         }
+        data.clear();
         if (batch != null) {
             table.waitForStream(5000, true);
+            table.waitForDrain(DRAIN_THRESHOLD, 5000);
+            table.addBatchRows(batch);
+        }
+    }
+
+    /**
+     * Processes a block of numeric values through the interval processor
+     * and clears the block.
+     *
+     * @param table Table to add completed intervals to.
+     * @param interval Interval processor of the query.
+     * @param block Numeric values retrieved from the database.
+     */
+    protected void processQueryBlock(Table table,
+                                     IntervalProcessor interval,
+                                     QueryBlock block) {
+        BatchRow batch = new BatchRow();
+        interval.process(block, batch);
+        block.clear();
+        if (!batch.getRows().isEmpty()) {
+            table.waitForStream(5000, true);
+            table.waitForDrain(DRAIN_THRESHOLD, 5000);
             table.addBatchRows(batch);
         }
     }
@@ -261,20 +437,7 @@ public class GetHistory implements Handler<ActionResult> {
         }
 
         {
-            Set<String> enums = new LinkedHashSet<>();
-            enums.add("none");
-            enums.add("and");
-            enums.add("or");
-            enums.add("avg");
-            enums.add("min");
-            enums.add("max");
-            enums.add("sum");
-            enums.add("first");
-            enums.add("last");
-            enums.add("count");
-            enums.add("delta");
-            ValueType e = ValueType.makeEnum(enums);
-            Parameter param = new Parameter("Rollup", e);
+            Parameter param = new Parameter("Rollup", rollupType());
             act.addParameter(param);
         }
 
@@ -297,4 +460,19 @@ public class GetHistory implements Handler<ActionResult> {
         act.setResultType(ResultType.STREAM);
     }
 
+    static ValueType rollupType() {
+        Set<String> enums = new LinkedHashSet<>();
+        enums.add("none");
+        enums.add("and");
+        enums.add("or");
+        enums.add("avg");
+        enums.add("min");
+        enums.add("max");
+        enums.add("sum");
+        enums.add("first");
+        enums.add("last");
+        enums.add("count");
+        enums.add("delta");
+        return ValueType.makeEnum(enums);
+    }
 }
@@ -0,0 +1,441 @@
+package org.dsa.iot.historian.stats;
+
+import org.dsa.iot.dslink.methods.StreamState;
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.Permission;
+import org.dsa.iot.dslink.node.actions.*;
+import org.dsa.iot.dslink.node.actions.table.BatchRow;
+import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.provider.LoopProvider;
+import org.dsa.iot.dslink.util.Objects;
+import org.dsa.iot.dslink.util.TimeUtils;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.stats.interval.IntervalParser;
+import org.dsa.iot.historian.stats.interval.IntervalProcessor;
+import org.dsa.iot.historian.stats.rollup.Rollup;
+import org.dsa.iot.historian.stats.rollup.RollupTier;
+import org.dsa.iot.historian.utils.QueryData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieves the history of multiple paths as a single table. Every path is
+ * queried in parallel on a bounded pool shared by all invocations and the
+ * results are merged in time order. The tall layout outputs a row per
+ * value with the path it belongs to. The wide layout outputs a row per
+ * timestamp with a column per path.
+ * <p>
+ * Queries with an interval are processed per path and merged once every
+ * path completes since they yield a row per interval. Raw queries are
+ * performed in time slices that adapt to the density of the data so that
+ * only a slice of every path is held in memory at once.
+ *
+ * @author Samuel Grenier
+ */
+public class GetMultiHistory implements Handler<ActionResult> {
+
+    private static final Logger LOGGER;
+    private static final ScheduledThreadPoolExecutor POOL;
+
+    private static final int BATCH_SIZE = 500;
+    private static final int SLICE_ROWS = 5000;
+    private static final long MIN_SLICE = 1000;
+    private static final long INITIAL_SLICE = 60 * 60 * 1000;
+
+    private final Database db;
+
+    public GetMultiHistory(Database db) {
+        this.db = db;
+    }
+
+    @Override
+    public void handle(final ActionResult event) {
+        final Calendar from;
+        final Calendar to;
+        {
+            Value v = event.getParameter("Timerange");
+            if (v != null) {
+                String[] split = v.getString().split("/");
+                from = TimeUtils.decode(split[0], null);
+                to = TimeUtils.decode(split[1], null);
+            } else { // Assume date is today
+                from = TimeUtils.alignDay(Calendar.getInstance());
+                to = Calendar.getInstance(); //now
+            }
+        }
+
+        final List<String> paths = new ArrayList<>();
+        {
+            String s = event.getParameter("Paths", ValueType.STRING).getString();
+            for (String path : s.split("[,\n]")) {
+                path = path.trim();
+                if (!path.isEmpty() && !paths.contains(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+
+        final Value def = new Value("none");
+        final String sInterval = event.getParameter("Interval", def).getString();
+        final String sRollup = event.getParameter("Rollup", def).getString();
+        final String sLayout = event.getParameter("Layout", new Value("tall")).getString();
+        final boolean wide = "wide".equals(sLayout);
+
+        final Table table = event.getTable();
+        table.addColumn(new Parameter("timestamp", ValueType.TIME));
+        if (wide) {
+            for (String path : paths) {
+                table.addColumn(new Parameter(path, ValueType.DYNAMIC));
+            }
+        } else {
+            table.addColumn(new Parameter("path", ValueType.STRING));
+            table.addColumn(new Parameter("value", ValueType.DYNAMIC));
+        }
+        event.setStreamState(StreamState.INITIALIZED);
+        table.setMode(Table.Mode.APPEND);
+
+        final IntervalParser parser = IntervalParser.parse(sInterval);
+        final Rollup.Type rollup = Rollup.Type.toEnum(sRollup);
+        LoopProvider.getProvider().schedule(new Runnable() {
+            @Override
+            public void run() {
+                Query query = new Query(event, paths, from, to, wide);
+                try {
+                    if (parser == null) {
+                        query.processRaw();
+                    } else {
+                        query.processIntervals(parser, rollup);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("Failed to retrieve history", e);
+                } finally {
+                    table.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * State of a single invocation.
+     */
+    private class Query {
+
+        private final String[] paths;
+        private final Calendar calendar;
+        private final long from;
+        private final long to;
+        private final boolean wide;
+        private final Table table;
+        private final StringBuilder buffer = new StringBuilder();
+        private volatile boolean open = true;
+
+        private BatchRow batch;
+
+        Query(ActionResult event,
+              List<String> paths,
+              Calendar from,
+              Calendar to,
+              boolean wide) {
+            this.paths = paths.toArray(new String[paths.size()]);
+            this.from = from.getTimeInMillis();
+            this.to = to.getTimeInMillis();
+            this.wide = wide;
+            this.table = event.getTable();
+            this.calendar = Calendar.getInstance();
+            this.calendar.setTimeZone(from.getTimeZone());
+            event.setCloseHandler(new Handler<Void>() {
+                @Override
+                public void handle(Void ignored) {
+                    open = false;
+                }
+            });
+        }
+
+        void processIntervals(final IntervalParser parser,
+                              final Rollup.Type rollup) {
+            final TimeZone tz = calendar.getTimeZone();
+            RollupTier tier = null;
+            if (db.isRollupTiersEnabled()) {
+                tier = RollupTier.select(parser, rollup, tz);
+            }
+
+            final Points[] results = new Points[paths.length];
+            final CountDownLatch latch = new CountDownLatch(paths.length);
+            for (int i = 0; i < paths.length; i++) {
+                final int index = i;
+                final RollupTier t = tier;
+                results[i] = new Points();
+                POOL.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final IntervalProcessor interval;
+                        interval = IntervalProcessor.parse(parser, rollup, tz);
+                        if (t != null) {
+                            interval.useSummaries();
+                        }
+                        final Points points = results[index];
+                        CompleteHandler<QueryData> handler = new CompleteHandler<QueryData>() {
+                            @Override
+                            public void handle(QueryData data) {
+                                long ts = data.getTimestamp();
+                                points.addRow(interval.getRowUpdate(data, ts));
+                            }
+
+                            @Override
+                            public void complete() {
+                                points.addRow(interval.complete());
+                                latch.countDown();
+                            }
+                        };
+                        try {
+                            String path = paths[index];
+                            if (t != null) {
+                                t.query(db, path, from, to, handler);
+                            } else {
+                                db.query(path, from, to, handler);
+                            }
+                        } catch (RuntimeException e) {
+                            LOGGER.error("Failed to query {}", paths[index], e);
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            if (await(latch)) {
+                merge(results);
+                flush();
+            }
+        }
+
+        void processRaw() {
+            long span = INITIAL_SLICE;
+            long start = from;
+            while (open && start <= to) {
+                long end = start + span - 1;
+                if (end > to || end < start) {
+                    end = to;
+                }
+
+                final Points[] results = new Points[paths.length];
+                final CountDownLatch latch = new CountDownLatch(paths.length);
+                for (int i = 0; i < paths.length; i++) {
+                    final Points points = new Points();
+                    final String path = paths[i];
+                    final long s = start;
+                    final long e = end;
+                    results[i] = points;
+                    POOL.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                db.query(path, s, e, new CompleteHandler<QueryData>() {
+                                    @Override
+                                    public void handle(QueryData data) {
+                                        points.add(data.getTimestamp(), data.getValue());
+                                    }
+
+                                    @Override
+                                    public void complete() {
+                                        latch.countDown();
+                                    }
+                                });
+                            } catch (RuntimeException ex) {
+                                LOGGER.error("Failed to query {}", path, ex);
+                                latch.countDown();
+                            }
+                        }
+                    });
+                }
+                if (!await(latch)) {
+                    return;
+                }
+                int rows = merge(results);
+
+                // Adapt the slice to the density of the data
+                if (rows < SLICE_ROWS / 2 && span < Long.MAX_VALUE / 2) {
+                    span *= 2;
+                } else if (rows > SLICE_ROWS * 2 && span / 2 >= MIN_SLICE) {
+                    span /= 2;
+                }
+                if (end == to) {
+                    break;
+                }
+                start = end + 1;
+            }
+            flush();
+        }
+
+        /**
+         * Merges the points of every path in time order.
+         *
+         * @return Amount of points merged.
+         */
+        private int merge(Points[] results) {
+            int[] index = new int[results.length];
+            int count = 0;
+            while (open) {
+                long ts = Long.MAX_VALUE;
+                int min = -1;
+                for (int i = 0; i < results.length; i++) {
+                    Points p = results[i];
+                    if (index[i] < p.size && p.timestamps[index[i]] < ts) {
+                        ts = p.timestamps[index[i]];
+                        min = i;
+                    }
+                }
+                if (min < 0) {
+                    break;
+                }
+
+                Row row = new Row();
+                calendar.setTimeInMillis(ts);
+                buffer.setLength(0);
+                row.addValue(new Value(TimeUtils.encode(calendar, true, buffer).toString()));
+                if (wide) {
+                    for (int i = 0; i < results.length; i++) {
+                        Points p = results[i];
+                        int idx = index[i];
+                        if (idx < p.size && p.timestamps[idx] == ts) {
+                            row.addValue(p.values[idx]);
+                            index[i]++;
+                            count++;
+                        } else {
+                            row.addValue(null);
+                        }
+                    }
+                } else {
+                    row.addValue(new Value(paths[min]));
+                    row.addValue(results[min].values[index[min]++]);
+                    count++;
+                }
+                addRow(row);
+            }
+            return count;
+        }
+
+        private void addRow(Row row) {
+            if (batch == null) {
+                batch = new BatchRow();
+            }
+            batch.addRow(row);
+            if (batch.getRows().size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch != null && open) {
+                table.waitForStream(5000, true);
+                table.addBatchRows(batch);
+            }
+            batch = null;
+        }
+
+        /**
+         * Waits for the queries to complete.
+         *
+         * @return False if the stream was closed while waiting.
+         */
+        private boolean await(CountDownLatch latch) {
+            try {
+                while (!latch.await(1, TimeUnit.SECONDS)) {
+                    if (!open) {
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return open;
+        }
+    }
+
+    /**
+     * Time ordered points of a path.
+     */
+    private static class Points {
+
+        private long[] timestamps = new long[16];
+        private Value[] values = new Value[16];
+        private int size;
+
+        void add(long ts, Value value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size << 1);
+                values = Arrays.copyOf(values, size << 1);
+            }
+            timestamps[size] = ts;
+            values[size] = value;
+            size++;
+        }
+
+        void addRow(Row row) {
+            if (row != null) {
+                List<Value> v = row.getValues();
+                add(TimeUtils.decode(v.get(0).getString()), v.get(1));
+            }
+        }
+    }
+
+    public static void initAction(Node node, Database db) {
+        Action a = new Action(Permission.READ, new GetMultiHistory(db));
+        {
+            Parameter param = new Parameter("Paths", ValueType.STRING);
+            param.setDescription("Paths to retrieve, separated by commas or new lines");
+            param.setEditorType(EditorType.TEXT_AREA);
+            a.addParameter(param);
+        }
+
+        {
+            Parameter param = new Parameter("Timerange", ValueType.STRING);
+            param.setEditorType(EditorType.DATE_RANGE);
+            a.addParameter(param);
+        }
+
+        {
+            Parameter param = new Parameter("Interval", ValueType.STRING);
+            param.setDefaultValue(new Value("none"));
+            a.addParameter(param);
+        }
+
+        {
+            Parameter param = new Parameter("Rollup", GetHistory.rollupType());
+            a.addParameter(param);
+        }
+
+        {
+            Set<String> enums = new LinkedHashSet<>();
+            enums.add("tall");
+            enums.add("wide");
+            Parameter param = new Parameter("Layout", ValueType.makeEnum(enums));
+            param.setDefaultValue(new Value("tall"));
+            param.setDescription("Tall outputs a row per value, wide outputs a column per path");
+            a.addParameter(param);
+        }
+        a.setResultType(ResultType.STREAM);
+
+        NodeBuilder b = node.createChild("getMultiHistory", false);
+        b.setDisplayName("Get Multi-Path History");
+        b.setSerializable(false);
+        b.setAction(a);
+        b.build();
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(GetMultiHistory.class);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        POOL = Objects.createDaemonThreadPool(Math.max(2, Math.min(8, cpus)));
+    }
+}
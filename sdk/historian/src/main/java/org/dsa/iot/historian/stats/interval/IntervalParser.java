@@ -104,6 +104,71 @@ public class IntervalParser {
         return modified;
     }
 
+    /**
+     * Determines the granularity every interval boundary is a multiple of
+     * in local time. Only intervals that are aligned have a granularity.
+     *
+     * @return Granularity in milliseconds or {@code -1} if the boundaries
+     *         depend on the first value.
+     */
+    public long getAlignment() {
+        int units = 0;
+        long alignment = -1;
+        if (seconds > 0) {
+            units++;
+            if (alignSeconds) {
+                alignment = gcd(seconds, 60) * 1000L;
+            }
+        }
+        if (minutes > 0) {
+            units++;
+            if (alignMinutes) {
+                alignment = gcd(minutes, 60) * 60 * 1000L;
+            }
+        }
+        if (hours > 0) {
+            units++;
+            if (alignHours) {
+                alignment = 60 * 60 * 1000L;
+            }
+        }
+        long day = 24 * 60 * 60 * 1000L;
+        if (days > 0) {
+            units++;
+            if (alignDays) {
+                alignment = day;
+            }
+        }
+        if (weeks > 0) {
+            units++;
+            if (alignWeeks) {
+                alignment = day;
+            }
+        }
+        if (months > 0) {
+            units++;
+            if (alignMonths) {
+                alignment = day;
+            }
+        }
+        if (years > 0) {
+            units++;
+            if (alignYears) {
+                alignment = day;
+            }
+        }
+        return units == 1 ? alignment : -1;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
     private void update(char interval, String number) {
         int num = Integer.parseInt(number);
         switch (interval) {
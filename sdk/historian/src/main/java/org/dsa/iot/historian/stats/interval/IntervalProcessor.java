@@ -14,20 +14,40 @@ public class IntervalProcessor {
 
     private Calendar calendar; // Calendar with the correct timezone.
     private long currentInterval = -1;  //Timestamp of the current interval.
-    private QueryData lastValue; // The last value of the current interval.
     private long nextInterval = -1; //Timestamp of the next interval.
+    private boolean hasData; // Whether the current interval has data.
+    private Value lastValue; // The last value of the current interval.
+    private double lastNumber; // Used when the last value is a primitive.
     private final IntervalParser parser;
     private final Rollup rollup;
+    private final Rollup.Type type;
+    private RollupSummary summary; // Set when processing rollup tiers.
 
     private IntervalProcessor(IntervalParser parser,
                               Rollup rollup,
+                              Rollup.Type type,
                               TimeZone timeZone) {
         this.parser = parser;
         this.rollup = rollup;
+        this.type = type;
         calendar = Calendar.getInstance();
         calendar.setTimeZone(timeZone);
     }
 
+    /**
+     * Switches the processor to consume {@link RollupSummary} values from
+     * a {@link RollupTier}. Raw values are still accepted and are treated
+     * as a summary of a single value.
+     *
+     * @see RollupTier#select
+     */
+    public void useSummaries() {
+        if (!RollupSummary.supports(type)) {
+            throw new RuntimeException("Unsupported rollup: " + type);
+        }
+        summary = new RollupSummary();
+    }
+
     /**
      * Update the current interval, but if the if the arguments represent a new
      * interval, then the prior will be returned.
@@ -37,6 +57,75 @@ public class IntervalProcessor {
      * @return The last interval, or null.
      */
     public Row getRowUpdate(QueryData data, long fullTs) {
+        Row row = null;
+        if (fullTs < currentInterval || fullTs >= nextInterval) {
+            long alignedTs = align(fullTs);
+            if (alignedTs < currentInterval) { //Out of order timestamp, ignore it.
+                return null;
+            } else if (alignedTs >= nextInterval) {
+                row = finish(data.getValue());
+                advance(alignedTs);
+            }
+        }
+        update(data.getValue(), fullTs);
+        return row;
+    }
+
+    /**
+     * Primitive variant of {@link #getRowUpdate(QueryData, long)} that does
+     * not require the value to be wrapped.
+     *
+     * @param value  Numeric value retrieved from the database.
+     * @param fullTs Full timestamp of the value.
+     * @return The last interval, or null.
+     */
+    public Row getRowUpdate(double value, long fullTs) {
+        Row row = null;
+        if (fullTs < currentInterval || fullTs >= nextInterval) {
+            long alignedTs = align(fullTs);
+            if (alignedTs < currentInterval) { //Out of order timestamp, ignore it.
+                return null;
+            } else if (alignedTs >= nextInterval) {
+                if (hasData) {
+                    row = finish(rollup == null ? new Value(value) : null);
+                }
+                advance(alignedTs);
+            }
+        }
+        update(value, fullTs);
+        return row;
+    }
+
+    /**
+     * Processes a block of numeric values. Calendar computations are only
+     * performed when a value crosses into another interval, every other
+     * value is handed straight to the rollup.
+     *
+     * @param block Values retrieved from the database.
+     * @param out   Receives every interval that completed.
+     */
+    public void process(QueryBlock block, BatchRow out) {
+        final long[] timestamps = block.getTimestamps();
+        final double[] values = block.getValues();
+        final int size = block.size();
+        for (int i = 0; i < size; i++) {
+            long ts = timestamps[i];
+            if (ts >= currentInterval && ts < nextInterval) {
+                update(values[i], ts);
+            } else {
+                Row row = getRowUpdate(values[i], ts);
+                if (row != null) {
+                    out.addRow(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aligns the timestamp, the first timestamp determines the first
+     * interval.
+     */
+    private long align(long fullTs) {
         calendar.setTimeInMillis(fullTs);
         parser.alignTime(calendar);
         long alignedTs = calendar.getTimeInMillis();
@@ -45,37 +134,69 @@ public class IntervalProcessor {
             parser.nextInterval(calendar);
             nextInterval = calendar.getTimeInMillis();
         }
-        Row row = null;
-        if (alignedTs < currentInterval) { //Out of order timestamp, ignore it.
-            return null;
+        return alignedTs;
+    }
+
+    /**
+     * Advances to the interval of the aligned timestamp. Each boundary is
+     * computed once and the rollup is reset for the new interval.
+     */
+    private void advance(long alignedTs) {
+        while (alignedTs >= nextInterval) {
+            currentInterval = nextInterval;
+            calendar.setTimeInMillis(currentInterval);
+            parser.nextInterval(calendar);
+            nextInterval = calendar.getTimeInMillis();
         }
-        if (alignedTs < nextInterval) { // Update the current interval
-            if (rollup != null) {
-                rollup.update(data.getValue(), currentInterval);
-            }
-            lastValue = data;
-            return null;
+        if (summary != null) {
+            summary.reset();
+        } else if (rollup != null) {
+            rollup.reset();
         }
-        if (lastValue != null) { // Finish the last interval
-            if (rollup == null) {
-                row = makeRow(data.getValue(), currentInterval);
+    }
+
+    private Row finish(Value crossing) {
+        Row row = null;
+        if (hasData) { // Finish the last interval
+            if (summary != null) {
+                row = makeRow(summary.getValue(type), currentInterval);
+            } else if (rollup == null) {
+                row = makeRow(crossing, currentInterval);
             } else {
                 row = makeRow(rollup.getValue(), currentInterval);
             }
+            hasData = false;
             lastValue = null;
         }
-        while (alignedTs >= nextInterval) { //Advance to the next interval
-            currentInterval = nextInterval;
-            calendar.setTimeInMillis(currentInterval);
-            parser.nextInterval(calendar);
-            nextInterval = calendar.getTimeInMillis();
+        return row;
+    }
+
+    private void update(Value value, long fullTs) {
+        hasData = true;
+        if (summary != null) {
+            RollupSummary s = RollupSummary.fromValue(value);
+            if (s != null) {
+                summary.merge(s);
+            } else if (value != null && value.getNumber() != null) {
+                summary.update(value.getNumber().doubleValue(), fullTs);
+            }
+        } else if (rollup != null) {
+            rollup.update(value, fullTs);
+        } else {
+            lastValue = value;
         }
-        if (rollup != null) {
-            rollup.reset();
-            rollup.update(data.getValue(), currentInterval);
+    }
+
+    private void update(double value, long fullTs) {
+        hasData = true;
+        if (summary != null) {
+            summary.update(value, fullTs);
+        } else if (rollup != null) {
+            rollup.update(value, fullTs);
+        } else {
+            lastValue = null;
+            lastNumber = value;
         }
-        lastValue = data;
-        return row;
     }
 
     /**
@@ -83,18 +204,21 @@ public class IntervalProcessor {
      * interval has no data.
      */
     public Row complete() {
-        if (lastValue == null) { //There is no data in the current interval.
+        if (!hasData) { //There is no data in the current interval.
             return null;
         }
         // Finish the current interval
-        Row row = null;
-        if (rollup == null) {
-            row = makeRow(lastValue.getValue(), currentInterval);
+        Value value;
+        if (summary != null) {
+            value = summary.getValue(type);
+        } else if (rollup == null) {
+            value = lastValue != null ? lastValue : new Value(lastNumber);
         } else {
-            row = makeRow(rollup.getValue(), currentInterval);
+            value = rollup.getValue();
         }
+        hasData = false;
         lastValue = null;
-        return row;
+        return makeRow(value, currentInterval);
     }
 
     private Row makeRow(Value value, long ts) {
@@ -135,6 +259,6 @@ public class IntervalProcessor {
         } else if (Rollup.Type.NONE != rollup) {
             throw new RuntimeException("Invalid rollup: " + rollup);
         }
-        return new IntervalProcessor(parser, roll, timeZone);
+        return new IntervalProcessor(parser, roll, rollup, timeZone);
     }
 }
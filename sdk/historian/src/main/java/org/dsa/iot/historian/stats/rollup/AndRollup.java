@@ -30,6 +30,11 @@ public class AndRollup extends Rollup {
         }
     }
 
+    @Override
+    public void update(double value, long ts) {
+        this.value = this.value && (value != 0);
+    }
+
     @Override
     public Value getValue() {
         return new Value(value);
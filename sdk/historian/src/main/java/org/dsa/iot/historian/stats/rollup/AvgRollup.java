@@ -26,6 +26,12 @@ public class AvgRollup extends Rollup {
         }
     }
 
+    @Override
+    public void update(double value, long ts) {
+        count++;
+        total += value;
+    }
+
     @Override
     public Value getValue() {
         double avg = total / count;
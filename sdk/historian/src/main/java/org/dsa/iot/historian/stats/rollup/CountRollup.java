@@ -19,6 +19,11 @@ public class CountRollup extends Rollup {
         count++;
     }
 
+    @Override
+    public void update(double value, long ts) {
+        count++;
+    }
+
     @Override
     public Value getValue() {
         return new Value(count);
@@ -7,15 +7,19 @@ import org.dsa.iot.dslink.node.value.Value;
  */
 public class DeltaRollup extends Rollup {
 
-    private Number previousStart;
-    private Number start;
-    private Number end;
+    private double previousStart;
+    private boolean hasPreviousStart;
+    private double start;
+    private boolean hasStart;
+    private double end;
+    private boolean hasEnd;
 
     @Override
     public void reset() {
         previousStart = start;
-        start = null;
-        end = null;
+        hasPreviousStart = hasStart;
+        hasStart = false;
+        hasEnd = false;
     }
 
     @Override
@@ -24,27 +28,34 @@ public class DeltaRollup extends Rollup {
         if (number == null) {
             return;
         }
+        update(number.doubleValue(), ts);
+    }
 
-        if (start == null) {
-            start = number;
+    @Override
+    public void update(double value, long ts) {
+        if (!hasStart) {
+            start = value;
+            hasStart = true;
         }
-        if (previousStart == null) {
+        if (!hasPreviousStart) {
             previousStart = start;
+            hasPreviousStart = true;
         }
-        end = number;
+        end = value;
+        hasEnd = true;
     }
 
     @Override
     public Value getValue() {
-        if (previousStart != null && end != null) {
-            double delta = end.doubleValue() - previousStart.doubleValue();
-            if (end.doubleValue() < previousStart.doubleValue()) {
-                delta = end.doubleValue();
+        if (hasPreviousStart && hasEnd) {
+            double delta = end - previousStart;
+            if (end < previousStart) {
+                delta = end;
             }
             return new Value(delta);
-        } else if (previousStart != null) {
+        } else if (hasPreviousStart) {
             return new Value(0);
-        } else if (end != null) {
+        } else if (hasEnd) {
             return new Value(end);
         }
         return null;
@@ -8,24 +8,42 @@ import org.dsa.iot.dslink.node.value.Value;
 public class FirstRollup extends Rollup {
 
     private Value value;
+    private double number;
+    private boolean isNumber;
     private long ts;
 
     @Override
     public void reset() {
         value = null;
+        isNumber = false;
         ts = 0;
     }
 
     @Override
     public void update(Value value, long ts) {
-        if (this.value == null || this.ts > ts) {
+        if (isEmpty() || this.ts > ts) {
             this.ts = ts;
             this.value = value;
+            this.isNumber = false;
+        }
+    }
+
+    @Override
+    public void update(double value, long ts) {
+        if (isEmpty() || this.ts > ts) {
+            this.ts = ts;
+            this.value = null;
+            this.number = value;
+            this.isNumber = true;
         }
     }
 
     @Override
     public Value getValue() {
-        return value;
+        return isNumber ? new Value(number) : value;
+    }
+
+    private boolean isEmpty() {
+        return value == null && !isNumber;
     }
 }
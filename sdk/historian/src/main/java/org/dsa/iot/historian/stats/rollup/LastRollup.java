@@ -9,10 +9,13 @@ public class LastRollup extends Rollup {
 
     private long ts = -1;
     private Value value;
+    private double number;
+    private boolean isNumber;
 
     @Override
     public void reset() {
         value = null;
+        isNumber = false;
     }
 
     @Override
@@ -20,11 +23,22 @@ public class LastRollup extends Rollup {
         if (ts > this.ts) {
             this.ts = ts;
             this.value = value;
+            this.isNumber = false;
+        }
+    }
+
+    @Override
+    public void update(double value, long ts) {
+        if (ts > this.ts) {
+            this.ts = ts;
+            this.value = null;
+            this.number = value;
+            this.isNumber = true;
         }
     }
 
     @Override
     public Value getValue() {
-        return value;
+        return isNumber ? new Value(number) : value;
     }
 }
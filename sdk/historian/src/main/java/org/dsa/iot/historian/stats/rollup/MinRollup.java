@@ -7,27 +7,34 @@ import org.dsa.iot.dslink.node.value.Value;
  */
 public class MinRollup extends Rollup {
 
-    private Number number;
+    private double number;
+    private boolean isSet;
 
     @Override
     public void reset() {
-        number = null;
+        isSet = false;
     }
 
     @Override
     public void update(Value value, long ts) {
         Number num = value.getNumber();
-        if (number == null) {
-            number = num;
-        } else if (num != null) {
-            double a = num.doubleValue();
-            double b = number.doubleValue();
-            number = Math.min(a, b);
+        if (num != null) {
+            update(num.doubleValue(), ts);
+        }
+    }
+
+    @Override
+    public void update(double value, long ts) {
+        if (!isSet) {
+            number = value;
+            isSet = true;
+        } else {
+            number = Math.min(number, value);
         }
     }
 
     @Override
     public Value getValue() {
-        return new Value(number);
+        return new Value(isSet ? number : null);
     }
 }
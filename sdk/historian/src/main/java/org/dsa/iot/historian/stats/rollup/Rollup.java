@@ -20,6 +20,17 @@ public abstract class Rollup {
      */
     public abstract void update(Value value, long ts);
 
+    /**
+     * Updates the rollup data with a numeric value. Rollups operating on
+     * numbers override this to avoid wrapping every value.
+     *
+     * @param value Value to update.
+     * @param ts Timestamp of the value.
+     */
+    public void update(double value, long ts) {
+        update(new Value(value), ts);
+    }
+
     /**
      * @return The statistical value of the rollup.
      */
@@ -0,0 +1,186 @@
+package org.dsa.iot.historian.stats.rollup;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonObject;
+
+/**
+ * Mergeable statistics of a bucket of numeric values.
+ *
+ * @author Samuel Grenier
+ * @see RollupTier
+ */
+public class RollupSummary {
+
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private double first;
+    private long firstTs;
+    private double last;
+    private long lastTs;
+
+    public void reset() {
+        count = 0;
+        sum = 0;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param number Raw value to add.
+     * @param ts Timestamp of the value.
+     */
+    public void update(double number, long ts) {
+        if (count == 0) {
+            sum = number;
+            min = number;
+            max = number;
+            first = number;
+            firstTs = ts;
+            last = number;
+            lastTs = ts;
+        } else {
+            sum += number;
+            if (number < min) {
+                min = number;
+            }
+            if (number > max) {
+                max = number;
+            }
+            if (ts < firstTs) {
+                first = number;
+                firstTs = ts;
+            }
+            if (ts >= lastTs) {
+                last = number;
+                lastTs = ts;
+            }
+        }
+        count++;
+    }
+
+    /**
+     * @param other Summary to merge into this summary.
+     */
+    public void merge(RollupSummary other) {
+        if (other.count == 0) {
+            return;
+        } else if (count == 0) {
+            count = other.count;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            first = other.first;
+            firstTs = other.firstTs;
+            last = other.last;
+            lastTs = other.lastTs;
+            return;
+        }
+        count += other.count;
+        sum += other.sum;
+        if (other.min < min) {
+            min = other.min;
+        }
+        if (other.max > max) {
+            max = other.max;
+        }
+        if (other.firstTs < firstTs) {
+            first = other.first;
+            firstTs = other.firstTs;
+        }
+        if (other.lastTs >= lastTs) {
+            last = other.last;
+            lastTs = other.lastTs;
+        }
+    }
+
+    /**
+     * @param type Rollup to compute.
+     * @return The rollup value of the summary or {@code null} if the
+     *         summary is empty.
+     */
+    public Value getValue(Rollup.Type type) {
+        if (count == 0 && type != Rollup.Type.COUNT) {
+            return null;
+        }
+        switch (type) {
+            case COUNT:
+                return new Value(count);
+            case SUM:
+                return new Value(sum);
+            case AVERAGE:
+                return new Value(sum / count);
+            case MIN:
+                return new Value(min);
+            case MAX:
+                return new Value(max);
+            case FIRST:
+                return new Value(first);
+            case LAST:
+                return new Value(last);
+            default:
+                throw new RuntimeException("Unsupported rollup: " + type);
+        }
+    }
+
+    public Value toValue() {
+        JsonObject obj = new JsonObject();
+        obj.put("count", count);
+        obj.put("sum", sum);
+        obj.put("min", min);
+        obj.put("max", max);
+        obj.put("first", first);
+        obj.put("firstTs", firstTs);
+        obj.put("last", last);
+        obj.put("lastTs", lastTs);
+        return new Value(obj);
+    }
+
+    /**
+     * @param value Value previously created from {@link #toValue()}.
+     * @return The decoded summary or {@code null} if the value is not a
+     *         summary.
+     */
+    public static RollupSummary fromValue(Value value) {
+        JsonObject obj = value == null ? null : value.getMap();
+        if (obj == null || !obj.contains("count") || !obj.contains("lastTs")) {
+            return null;
+        }
+        RollupSummary s = new RollupSummary();
+        s.count = ((Number) obj.get("count")).longValue();
+        s.sum = ((Number) obj.get("sum")).doubleValue();
+        s.min = ((Number) obj.get("min")).doubleValue();
+        s.max = ((Number) obj.get("max")).doubleValue();
+        s.first = ((Number) obj.get("first")).doubleValue();
+        s.firstTs = ((Number) obj.get("firstTs")).longValue();
+        s.last = ((Number) obj.get("last")).doubleValue();
+        s.lastTs = ((Number) obj.get("lastTs")).longValue();
+        return s;
+    }
+
+    /**
+     * @param type Rollup to check.
+     * @return Whether the rollup can be computed from summaries.
+     */
+    public static boolean supports(Rollup.Type type) {
+        switch (type) {
+            case COUNT:
+            case SUM:
+            case AVERAGE:
+            case MIN:
+            case MAX:
+            case FIRST:
+            case LAST:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.dsa.iot.historian.stats.rollup;
+
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.stats.interval.IntervalParser;
+import org.dsa.iot.historian.utils.QueryData;
+
+import java.util.TimeZone;
+
+/**
+ * Downsampled tiers of a watch. Every tier stores a {@link RollupSummary}
+ * per bucket aligned to UTC under a path derived from the watched path.
+ *
+ * @author Samuel Grenier
+ * @see RollupTiers
+ */
+public enum RollupTier {
+
+    MINUTE("1m", 60 * 1000),
+    HOUR("1h", 60 * 60 * 1000),
+    DAY("1d", 24 * 60 * 60 * 1000);
+
+    private final String name;
+    private final long size;
+
+    RollupTier(String name, long size) {
+        this.name = name;
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Size of a bucket in milliseconds.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @param path Watched path.
+     * @return Path the tier of the watched path is stored under.
+     */
+    public String pathOf(String path) {
+        return path + "/@rollup:" + name;
+    }
+
+    /**
+     * @param ts Timestamp to align.
+     * @return Start of the bucket the timestamp belongs to.
+     */
+    public long bucketOf(long ts) {
+        long bucket = ts - (ts % size);
+        if (ts < 0 && bucket != ts) {
+            bucket -= size;
+        }
+        return bucket;
+    }
+
+    /**
+     * Selects the coarsest tier that can answer a query without changing
+     * its results. The interval boundaries must fall on bucket boundaries
+     * of the tier and the rollup must be computable from summaries.
+     *
+     * @param parser Interval of the query.
+     * @param type Rollup of the query.
+     * @param timeZone Time zone the intervals are aligned in.
+     * @return The tier to use or {@code null} if raw data must be used.
+     */
+    public static RollupTier select(IntervalParser parser,
+                                    Rollup.Type type,
+                                    TimeZone timeZone) {
+        if (parser == null || !RollupSummary.supports(type)) {
+            return null;
+        }
+        long alignment = parser.getAlignment();
+        if (alignment <= 0) {
+            return null;
+        }
+        RollupTier[] tiers = values();
+        for (int i = tiers.length - 1; i >= 0; i--) {
+            RollupTier tier = tiers[i];
+            if (alignment % tier.size == 0 && tier.isCompatible(timeZone)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queries the summaries of a tier for the range the tier covers
+     * and raw values for the remainder of the range. Raw values are
+     * queried before the first bucket of the tier, after the last bucket
+     * that was written and for partial buckets at the range edges.
+     *
+     * @param db Database the tier is stored in.
+     * @param path Watched path.
+     * @param from Beginning search time.
+     * @param to End search time.
+     * @param handler Receives summaries and raw values in time order.
+     */
+    public void query(Database db,
+                      String path,
+                      long from,
+                      long to,
+                      CompleteHandler<QueryData> handler) {
+        String tierPath = pathOf(path);
+        QueryData first = db.queryFirst(tierPath);
+        QueryData last = db.queryLast(tierPath);
+        if (first == null || !first.isDefined()
+                || last == null || !last.isDefined()) {
+            db.query(path, from, to, handler);
+            return;
+        }
+
+        long start = bucketOf(from);
+        if (start < from) {
+            start += size;
+        }
+        start = Math.max(start, first.getTimestamp());
+        long end = Math.min(bucketOf(to + 1), last.getTimestamp() + size);
+        if (start >= end) {
+            db.query(path, from, to, handler);
+            return;
+        }
+
+        String[] paths = new String[] { path, tierPath, path };
+        long[] froms = new long[] { from, start, end };
+        long[] tos = new long[] { start - 1, end - 1, to };
+        new ChainedQuery(db, paths, froms, tos, handler).next();
+    }
+
+    private boolean isCompatible(TimeZone tz) {
+        if (this == DAY) {
+            return tz.getRawOffset() == 0 && !tz.useDaylightTime();
+        }
+        return tz.getRawOffset() % size == 0 && tz.getDSTSavings() % size == 0;
+    }
+
+    /**
+     * Performs multiple queries in sequence as a single query.
+     */
+    private static class ChainedQuery implements CompleteHandler<QueryData> {
+
+        private final Database db;
+        private final String[] paths;
+        private final long[] froms;
+        private final long[] tos;
+        private final CompleteHandler<QueryData> handler;
+        private int index;
+
+        ChainedQuery(Database db,
+                     String[] paths,
+                     long[] froms,
+                     long[] tos,
+                     CompleteHandler<QueryData> handler) {
+            this.db = db;
+            this.paths = paths;
+            this.froms = froms;
+            this.tos = tos;
+            this.handler = handler;
+        }
+
+        void next() {
+            while (index < paths.length) {
+                int i = index++;
+                if (froms[i] <= tos[i]) {
+                    db.query(paths[i], froms[i], tos[i], this);
+                    return;
+                }
+            }
+            handler.complete();
+        }
+
+        @Override
+        public void handle(QueryData event) {
+            handler.handle(event);
+        }
+
+        @Override
+        public void complete() {
+            next();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package org.dsa.iot.historian.stats.rollup;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.Objects;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.utils.QueryData;
+import org.dsa.iot.historian.utils.WriteData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the {@link RollupTier}s of a watch as values get written.
+ * Each tier accumulates the bucket currently being written to in memory
+ * and emits its summary once a value of a later bucket arrives. Values
+ * written out of order into a bucket that was already emitted are not
+ * reflected in the tiers.
+ * <p>
+ * The buckets held in memory are lost when the link stops. They are
+ * restored in the background from the finer tiers and the raw values that
+ * were written since the last emitted bucket. Values written until the
+ * restoration completes are summarized separately and merged into the
+ * restored buckets afterwards, so writes never wait on the database.
+ *
+ * @author Samuel Grenier
+ */
+public class RollupTiers {
+
+    private static final Logger LOGGER;
+    private static final RollupTier[] TIERS = RollupTier.values();
+    private static final long QUERY_TIMEOUT = 30;
+
+    private final Database db;
+    private final String path;
+
+    private RollupSummary[] open;
+    private long[] buckets;
+
+    // Summaries emitted before the tiers were restored
+    private final List<WriteData> held = new ArrayList<>();
+    private long heldFrom = Long.MAX_VALUE;
+    private boolean restored;
+    private boolean restoring;
+    private int generation;
+
+    public RollupTiers(Database db, String path) {
+        this.db = db;
+        this.path = path;
+        resetBuckets();
+    }
+
+    /**
+     * Updates the tiers with a value that is about to be written. Values
+     * that are not numbers are ignored.
+     *
+     * @param value Value being written.
+     * @param ts Timestamp of the value.
+     * @param out Receives the summaries of every bucket that completed.
+     */
+    public synchronized void update(Value value, long ts,
+                                    Collection<WriteData> out) {
+        Number number = value == null ? null : value.getNumber();
+        if (number == null) {
+            return;
+        }
+        if (!restored) {
+            if (heldFrom == Long.MAX_VALUE) {
+                heldFrom = ts;
+            }
+            out = held;
+        }
+        double n = number.doubleValue();
+        for (int i = 0; i < TIERS.length; i++) {
+            if (roll(buckets, open, i, ts, out)) {
+                open[i].update(n, ts);
+            }
+        }
+    }
+
+    /**
+     * @return Whether values were written since the buckets held in
+     *         memory were lost and the tiers need to be restored.
+     * @see #restore(Handler)
+     */
+    public synchronized boolean needsRestore() {
+        return !restored && !restoring && heldFrom != Long.MAX_VALUE;
+    }
+
+    synchronized boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Restores the buckets held in memory on a background thread. Must
+     * only be called once every point written before the tiers needed to
+     * be restored is stored in the database, otherwise those points are
+     * missing from the restored buckets.
+     *
+     * @param writer Receives the summaries that completed while restoring,
+     *               these must be written into the database.
+     */
+    public void restore(final Handler<List<WriteData>> writer) {
+        final long to;
+        final int gen;
+        synchronized (this) {
+            if (!needsRestore()) {
+                return;
+            }
+            restoring = true;
+            to = heldFrom - 1;
+            gen = generation;
+        }
+        Objects.getDaemonThreadPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                List<WriteData> out = null;
+                try {
+                    out = performRestore(to, gen);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to restore the rollup tiers of {}", path, e);
+                } finally {
+                    synchronized (RollupTiers.this) {
+                        restoring = false;
+                    }
+                }
+                if (out != null && !out.isEmpty()) {
+                    writer.handle(out);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the stored summaries of every bucket overlapping a range
+     * of raw values that was rewritten or deleted. The buckets held in
+     * memory are restored again afterwards. This performs blocking
+     * queries and must not be called on the write path.
+     *
+     * @param from Beginning of the rewritten range.
+     * @param to End of the rewritten range.
+     */
+    public void rebuild(long from, long to) {
+        invalidate();
+
+        long[] first = new long[TIERS.length];
+        long[] last = new long[TIERS.length];
+        long rawFrom = Long.MAX_VALUE;
+        long rawTo = Long.MIN_VALUE;
+        for (int i = 0; i < TIERS.length; i++) {
+            RollupTier tier = TIERS[i];
+            first[i] = tier.bucketOf(from);
+            last[i] = tier.bucketOf(to);
+            // Open buckets are not stored and are restored instead
+            QueryData stored = db.queryLast(tier.pathOf(path));
+            if (stored == null || !stored.isDefined()) {
+                last[i] = Long.MIN_VALUE;
+            } else if (stored.getTimestamp() < last[i]) {
+                last[i] = stored.getTimestamp();
+            }
+            if (first[i] <= last[i]) {
+                rawFrom = Math.min(rawFrom, first[i]);
+                rawTo = Math.max(rawTo, last[i] + tier.getSize() - 1);
+            }
+        }
+        if (rawFrom > rawTo) {
+            invalidate();
+            return;
+        }
+
+        List<QueryData> raw = query(path, rawFrom, rawTo);
+        for (int i = 0; i < TIERS.length; i++) {
+            if (first[i] > last[i]) {
+                continue;
+            }
+            RollupTier tier = TIERS[i];
+            String tierPath = tier.pathOf(path);
+            long end = last[i] + tier.getSize() - 1;
+            List<WriteData> summaries = new ArrayList<>();
+            long[] b = new long[] { Long.MIN_VALUE };
+            RollupSummary[] s = new RollupSummary[] { new RollupSummary() };
+            for (QueryData data : raw) {
+                long ts = data.getTimestamp();
+                Value v = data.getValue();
+                Number number = v == null ? null : v.getNumber();
+                if (number == null || ts < first[i] || ts > end) {
+                    continue;
+                }
+                if (roll(tier, b, s, 0, ts, tierPath, summaries)) {
+                    s[0].update(number.doubleValue(), ts);
+                }
+            }
+            roll(tier, b, s, 0, Long.MAX_VALUE, tierPath, summaries);
+            db.delete(tierPath, first[i], last[i]);
+            if (!summaries.isEmpty()) {
+                db.writeBatch(summaries);
+            }
+        }
+        // Discards restorations that read the tiers while rebuilding
+        invalidate();
+    }
+
+    /**
+     * Drops the buckets held in memory, they are restored from the
+     * database once values are written again.
+     */
+    private synchronized void invalidate() {
+        generation++;
+        restored = false;
+        held.clear();
+        heldFrom = Long.MAX_VALUE;
+        resetBuckets();
+    }
+
+    private List<WriteData> performRestore(long to, int gen) {
+        long[] resume = new long[TIERS.length];
+        boolean cascade = true;
+        for (int i = 0; i < TIERS.length; i++) {
+            RollupTier tier = TIERS[i];
+            QueryData last = db.queryLast(tier.pathOf(path));
+            if (last != null && last.isDefined()) {
+                resume[i] = last.getTimestamp() + tier.getSize();
+            } else {
+                resume[i] = tier.bucketOf(to);
+                cascade = false;
+            }
+            if (i > 0 && resume[i] > resume[i - 1]) {
+                cascade = false;
+            }
+        }
+
+        // Each tier is fed from the stored buckets of the tier below up to
+        // where that tier resumes.
+        List<List<QueryData>> finer = new ArrayList<>();
+        long rawStart = resume[0];
+        if (cascade) {
+            for (int i = TIERS.length - 2; i >= 0; i--) {
+                String p = TIERS[i].pathOf(path);
+                finer.add(query(p, resume[i + 1], resume[i] - 1));
+            }
+        } else {
+            for (long r : resume) {
+                if (r < rawStart) {
+                    rawStart = r;
+                }
+            }
+        }
+        List<QueryData> raw = query(path, rawStart, to);
+
+        List<WriteData> out = new ArrayList<>();
+        long[] b = resume.clone();
+        RollupSummary[] s = new RollupSummary[TIERS.length];
+        for (int i = 0; i < TIERS.length; i++) {
+            s[i] = new RollupSummary();
+        }
+        for (int k = 0; k < finer.size(); k++) {
+            int i = TIERS.length - 2 - k;
+            for (QueryData data : finer.get(k)) {
+                RollupSummary summary = RollupSummary.fromValue(data.getValue());
+                if (summary == null) {
+                    continue;
+                }
+                for (int j = i + 1; j < TIERS.length; j++) {
+                    if (roll(b, s, j, data.getTimestamp(), out)) {
+                        s[j].merge(summary);
+                    }
+                }
+            }
+        }
+        for (QueryData data : raw) {
+            Value v = data.getValue();
+            Number number = v == null ? null : v.getNumber();
+            if (number == null) {
+                continue;
+            }
+            long time = data.getTimestamp();
+            for (int i = 0; i < TIERS.length; i++) {
+                if (roll(b, s, i, time, out)) {
+                    s[i].update(number.doubleValue(), time);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (gen != generation) {
+                return null;
+            }
+            // Merges what was written while restoring
+            for (WriteData data : held) {
+                RollupSummary summary = RollupSummary.fromValue(data.getValue());
+                int i = tierOf(data.getPath());
+                if (summary != null && roll(b, s, i, data.getTimestamp(), out)) {
+                    s[i].merge(summary);
+                }
+            }
+            for (int i = 0; i < TIERS.length; i++) {
+                if (!open[i].isEmpty() && roll(b, s, i, buckets[i], out)) {
+                    s[i].merge(open[i]);
+                }
+            }
+            buckets = b;
+            open = s;
+            held.clear();
+            heldFrom = Long.MAX_VALUE;
+            restored = true;
+        }
+        return out;
+    }
+
+    private boolean roll(long[] buckets, RollupSummary[] open,
+                         int tier, long ts, Collection<WriteData> out) {
+        String p = TIERS[tier].pathOf(path);
+        return roll(TIERS[tier], buckets, open, tier, ts, p, out);
+    }
+
+    private static boolean roll(RollupTier tier,
+                                long[] buckets,
+                                RollupSummary[] open,
+                                int index,
+                                long ts,
+                                String path,
+                                Collection<WriteData> out) {
+        long bucket = tier.bucketOf(ts);
+        if (bucket < buckets[index]) {
+            return false;
+        } else if (bucket != buckets[index]) {
+            RollupSummary summary = open[index];
+            if (!summary.isEmpty()) {
+                out.add(new WriteData(path, summary.toValue(), buckets[index]));
+                summary.reset();
+            }
+            buckets[index] = bucket;
+        }
+        return true;
+    }
+
+    private int tierOf(String tierPath) {
+        for (int i = 0; i < TIERS.length; i++) {
+            if (TIERS[i].pathOf(path).equals(tierPath)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown tier: " + tierPath);
+    }
+
+    private void resetBuckets() {
+        open = new RollupSummary[TIERS.length];
+        buckets = new long[TIERS.length];
+        for (int i = 0; i < TIERS.length; i++) {
+            open[i] = new RollupSummary();
+            buckets[i] = Long.MIN_VALUE;
+        }
+    }
+
+    private List<QueryData> query(String path, long from, long to) {
+        final List<QueryData> list = new ArrayList<>();
+        if (from > to) {
+            return list;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        db.query(path, from, to, new CompleteHandler<QueryData>() {
+            @Override
+            public void handle(QueryData event) {
+                synchronized (list) {
+                    list.add(event);
+                }
+            }
+
+            @Override
+            public void complete() {
+                latch.countDown();
+            }
+        });
+        try {
+            if (!latch.await(QUERY_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Timed out querying " + path);
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        synchronized (list) {
+            return new ArrayList<>(list);
+        }
+    }
+
+    static {
+        LOGGER = LoggerFactory.getLogger(RollupTiers.class);
+    }
+}
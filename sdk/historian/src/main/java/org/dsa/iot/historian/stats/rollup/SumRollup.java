@@ -22,6 +22,11 @@ public class SumRollup extends Rollup {
         }
     }
 
+    @Override
+    public void update(double value, long ts) {
+        sum += value;
+    }
+
     @Override
     public Value getValue() {
         return new Value(sum);
@@ -0,0 +1,215 @@
+package org.dsa.iot.historian.utils;
+
+import org.dsa.iot.dslink.node.value.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ring of the most recently written points of a watch, bounded by both a
+ * maximum amount of points and a maximum age. The ring knows the time
+ * from which it holds every written point so a history query only needs
+ * to hit the database for the part of its range before that time.
+ * <p>
+ * The ring is only populated once it has been queried and releases its
+ * memory when it has not been queried for a while, watches that are never
+ * trended do not pay for it.
+ *
+ * @author Samuel Grenier
+ */
+public class HistoryCache {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxPoints;
+    private final long maxAge;
+    private final long idleTimeout;
+
+    private long[] timestamps;
+    private Value[] values;
+    private int head;
+    private int size;
+
+    private long completeFrom = Long.MAX_VALUE;
+    private long newest = Long.MIN_VALUE;
+    private long lastQueried;
+
+    private long hitPoints;
+    private long missPoints;
+
+    /**
+     * @param maxPoints Maximum amount of points held.
+     * @param maxAge Maximum age of the points held in milliseconds.
+     * @param idleTimeout How long the ring keeps being populated after it
+     *                    was last queried in milliseconds.
+     */
+    public HistoryCache(int maxPoints, long maxAge, long idleTimeout) {
+        this.maxPoints = maxPoints;
+        this.maxAge = maxAge;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Adds a point that was written to the database. Points written out of
+     * order invalidate the ring since the database now holds points that
+     * the ring does not.
+     *
+     * @param ts Timestamp of the point.
+     * @param value Value of the point.
+     */
+    public synchronized void add(long ts, Value value) {
+        if (timestamps == null) {
+            newest = Math.max(newest, ts);
+            return;
+        } else if (System.currentTimeMillis() - lastQueried > idleTimeout) {
+            release();
+            newest = Math.max(newest, ts);
+            return;
+        } else if (ts < newest) {
+            clear();
+            newest = Math.max(newest, ts);
+            return;
+        }
+        if (completeFrom == Long.MAX_VALUE) {
+            // Earlier points sharing the timestamp are not held
+            completeFrom = ts > newest ? ts : ts + 1;
+        }
+        newest = ts;
+
+        if (size == timestamps.length) {
+            if (size < maxPoints) {
+                grow();
+            } else {
+                evict();
+            }
+        }
+        int index = (head + size) % timestamps.length;
+        timestamps[index] = ts;
+        values[index] = value;
+        size++;
+
+        long expired = ts - maxAge;
+        while (size > 0 && timestamps[head] < expired) {
+            evict();
+        }
+    }
+
+    /**
+     * Retrieves the points of the tail of a range the ring can answer. The
+     * ring starts being populated when it is first queried.
+     *
+     * @param from Beginning of the range.
+     * @param to End of the range.
+     * @return The time the ring holds every point from and the points
+     *         within the range from that time or {@code null} if the ring
+     *         cannot answer any part of the range.
+     */
+    public synchronized Tail query(long from, long to) {
+        lastQueried = System.currentTimeMillis();
+        if (timestamps == null) {
+            timestamps = new long[INITIAL_CAPACITY];
+            values = new Value[INITIAL_CAPACITY];
+        }
+        if (completeFrom > to) {
+            return null;
+        }
+        long start = Math.max(from, completeFrom);
+        List<QueryData> points = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % timestamps.length;
+            long ts = timestamps[index];
+            if (ts > to) {
+                break;
+            } else if (ts >= start) {
+                points.add(new QueryData(values[index], ts));
+            }
+        }
+        return new Tail(start, points);
+    }
+
+    /**
+     * Records how many points of a query were answered by the ring.
+     *
+     * @param hits Amount of points retrieved from the ring.
+     * @param misses Amount of points retrieved from the database.
+     */
+    public synchronized void record(long hits, long misses) {
+        hitPoints += hits;
+        missPoints += misses;
+    }
+
+    /**
+     * @return Ratio of queried points retrieved from the ring.
+     */
+    public synchronized double getHitRatio() {
+        long total = hitPoints + missPoints;
+        return total == 0 ? 0 : (double) hitPoints / total;
+    }
+
+    /**
+     * Discards every point held, typically after the history was
+     * modified.
+     */
+    public synchronized void clear() {
+        if (values != null) {
+            Arrays.fill(values, null);
+        }
+        head = 0;
+        size = 0;
+        completeFrom = Long.MAX_VALUE;
+    }
+
+    private void release() {
+        clear();
+        timestamps = null;
+        values = null;
+    }
+
+    private void grow() {
+        int capacity = Math.min(maxPoints, timestamps.length * 2);
+        long[] ts = new long[capacity];
+        Value[] vals = new Value[capacity];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % timestamps.length;
+            ts[i] = timestamps[index];
+            vals[i] = values[index];
+        }
+        timestamps = ts;
+        values = vals;
+        head = 0;
+    }
+
+    private void evict() {
+        completeFrom = timestamps[head] + 1;
+        values[head] = null;
+        head = (head + 1) % timestamps.length;
+        size--;
+    }
+
+    /**
+     * Points of the tail of a queried range.
+     */
+    public static class Tail {
+
+        private final long from;
+        private final List<QueryData> points;
+
+        Tail(long from, List<QueryData> points) {
+            this.from = from;
+            this.points = points;
+        }
+
+        /**
+         * @return Time from which the points are retrieved from the ring,
+         *         any earlier part of the range must be queried.
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        public List<QueryData> getPoints() {
+            return points;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.dsa.iot.historian.utils;
+
+/**
+ * A fixed size block of numeric query results stored as primitives.
+ *
+ * @author Samuel Grenier
+ */
+public class QueryBlock {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private int size;
+
+    public QueryBlock(int capacity) {
+        timestamps = new long[capacity];
+        values = new double[capacity];
+    }
+
+    /**
+     * @param ts Timestamp of the value.
+     * @param value Numeric value.
+     * @return Whether the block is full after adding the value.
+     */
+    public boolean add(long ts, double value) {
+        timestamps[size] = ts;
+        values[size] = value;
+        return ++size >= timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Backing timestamps, only the first {@link #size()} are valid.
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return Backing values, only the first {@link #size()} are valid.
+     */
+    public double[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,102 @@
+package org.dsa.iot.historian.utils;
+
+/**
+ * Swinging door trending compression. A point is only archived when the
+ * points received since the last archived point can no longer be
+ * represented by a straight line from it within the tolerance. The door
+ * is made of the steepest lower slope and the shallowest upper slope that
+ * keep every received point within the tolerance. Once they cross, the
+ * point received before the one that closed the door is archived and
+ * becomes the new pivot.
+ *
+ * @param <T> Payload associated with every point.
+ * @author Samuel Grenier
+ */
+public class SwingingDoor<T> {
+
+    private boolean started;
+    private long pivotTs;
+    private double pivotValue;
+
+    private long lastTs;
+    private double lastValue;
+    private T last;
+
+    private double upper;
+    private double lower;
+
+    /**
+     * Offers a point to the door.
+     *
+     * @param ts Timestamp of the point.
+     * @param value Value of the point.
+     * @param payload Payload of the point.
+     * @param tolerance Maximum deviation from the archived trend.
+     * @return The payload to archive or {@code null} if nothing needs to
+     *         be archived. This is either the offered payload when the door
+     *         has no pivot yet or the payload of the previous point.
+     */
+    public T offer(long ts, double value, T payload, double tolerance) {
+        if (!started || Double.isNaN(value) || Double.isNaN(pivotValue)) {
+            restart(ts, value);
+            return payload;
+        } else if (ts <= pivotTs) {
+            return null;
+        }
+
+        double dt = ts - pivotTs;
+        double up = (value + tolerance - pivotValue) / dt;
+        double low = (value - tolerance - pivotValue) / dt;
+        if (last == null) {
+            upper = up;
+            lower = low;
+        } else {
+            upper = Math.min(upper, up);
+            lower = Math.max(lower, low);
+        }
+
+        T archived = null;
+        if (lower > upper) {
+            archived = last;
+            pivotTs = lastTs;
+            pivotValue = lastValue;
+            dt = ts - pivotTs;
+            upper = (value + tolerance - pivotValue) / dt;
+            lower = (value - tolerance - pivotValue) / dt;
+        }
+        lastTs = ts;
+        lastValue = value;
+        last = payload;
+        return archived;
+    }
+
+    /**
+     * Restarts the door at the designated point, typically after a value
+     * that could not be compressed was archived.
+     *
+     * @param ts Timestamp of the point.
+     * @param value Value of the point.
+     */
+    public void restart(long ts, double value) {
+        started = true;
+        pivotTs = ts;
+        pivotValue = value;
+        lastTs = ts;
+        lastValue = value;
+        last = null;
+    }
+
+    /**
+     * Clears the door, the next offered point will be archived.
+     *
+     * @return The payload of the point held back by the door, it ends the
+     *         trend and must still be archived. {@code null} if no point
+     *         is held back.
+     */
+    public T reset() {
+        T pending = last;
+        started = false;
+        last = null;
+        return pending;
+    }
+}
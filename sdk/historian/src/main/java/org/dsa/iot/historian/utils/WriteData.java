@@ -0,0 +1,33 @@
+package org.dsa.iot.historian.utils;
+
+import org.dsa.iot.dslink.node.value.Value;
+
+/**
+ * A single point to be written into a database.
+ *
+ * @author Samuel Grenier
+ */
+public class WriteData {
+
+    private final String path;
+    private final Value value;
+    private final long ts;
+
+    public WriteData(String path, Value value, long ts) {
+        this.path = path;
+        this.value = value;
+        this.ts = ts;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public long getTimestamp() {
+        return ts;
+    }
+}
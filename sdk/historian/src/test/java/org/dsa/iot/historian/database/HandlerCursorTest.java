@@ -0,0 +1,95 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.utils.QueryData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Samuel Grenier
+ */
+public class HandlerCursorTest {
+
+    @Test
+    public void pullsEveryValue() {
+        QueryCursor cursor = HandlerCursor.open("/a", new Producer(2500, null, null));
+        long expected = 0;
+        List<QueryData> batch;
+        while ((batch = cursor.next(300)) != null) {
+            Assert.assertTrue(batch.size() <= 300);
+            for (QueryData data : batch) {
+                Assert.assertEquals(expected++, data.getTimestamp());
+            }
+        }
+        cursor.close();
+        Assert.assertEquals(2500, expected);
+    }
+
+    @Test
+    public void closeStopsQuery() throws InterruptedException {
+        AtomicInteger pushed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        QueryCursor cursor = HandlerCursor.open("/a", new Producer(1000000, pushed, done));
+        Assert.assertNotNull(cursor.next(10));
+        cursor.close();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(pushed.get() < 1000000);
+        Assert.assertNull(cursor.next(10));
+    }
+
+    @Test
+    public void failureIsReported() {
+        QueryCursor cursor = HandlerCursor.open("/a", new Handler<CompleteHandler<QueryData>>() {
+            @Override
+            public void handle(CompleteHandler<QueryData> handler) {
+                handler.handle(new QueryData(new Value(0), 0));
+                throw new RuntimeException("failed");
+            }
+        });
+        Assert.assertEquals(1, cursor.next(10).size());
+        try {
+            cursor.next(10);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertEquals("failed", e.getCause().getMessage());
+        }
+        cursor.close();
+    }
+
+    private static class Producer implements Handler<CompleteHandler<QueryData>> {
+
+        private final int count;
+        private final AtomicInteger pushed;
+        private final CountDownLatch done;
+
+        Producer(int count, AtomicInteger pushed, CountDownLatch done) {
+            this.count = count;
+            this.pushed = pushed;
+            this.done = done;
+        }
+
+        @Override
+        public void handle(CompleteHandler<QueryData> handler) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    handler.handle(new QueryData(new Value(i), i));
+                    if (pushed != null) {
+                        pushed.incrementAndGet();
+                    }
+                }
+                handler.complete();
+            } finally {
+                if (done != null) {
+                    done.countDown();
+                }
+            }
+        }
+    }
+}
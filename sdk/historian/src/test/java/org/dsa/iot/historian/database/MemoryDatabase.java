@@ -0,0 +1,93 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.historian.utils.QueryData;
+import org.dsa.iot.historian.utils.WriteData;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Database that keeps the written points in memory.
+ *
+ * @author Samuel Grenier
+ */
+public class MemoryDatabase extends Database {
+
+    private final List<WriteData> points = new ArrayList<>();
+
+    public MemoryDatabase() {
+        super("memory", null);
+    }
+
+    public synchronized List<WriteData> getPoints() {
+        return new ArrayList<>(points);
+    }
+
+    @Override
+    public synchronized void write(String path, Value value, long ts) {
+        points.add(new WriteData(path, value, ts));
+    }
+
+    @Override
+    public synchronized void delete(String path, long from, long to) {
+        Iterator<WriteData> it = points.iterator();
+        while (it.hasNext()) {
+            WriteData data = it.next();
+            long ts = data.getTimestamp();
+            if (data.getPath().equals(path) && ts >= from && ts <= to) {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void query(String path,
+                      long from,
+                      long to,
+                      CompleteHandler<QueryData> handler) {
+        for (WriteData data : getPoints()) {
+            long ts = data.getTimestamp();
+            if (data.getPath().equals(path) && ts >= from && ts <= to) {
+                handler.handle(new QueryData(data.getValue(), ts));
+            }
+        }
+        handler.complete();
+    }
+
+    @Override
+    public QueryData queryFirst(String path) {
+        for (WriteData data : getPoints()) {
+            if (data.getPath().equals(path)) {
+                return new QueryData(data.getValue(), data.getTimestamp());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public QueryData queryLast(String path) {
+        QueryData last = null;
+        for (WriteData data : getPoints()) {
+            if (data.getPath().equals(path)) {
+                last = new QueryData(data.getValue(), data.getTimestamp());
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    protected void performConnect() {
+    }
+
+    @Override
+    public void initExtensions(Node node) {
+    }
+}
@@ -0,0 +1,146 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.SubscriptionValue;
+import org.dsa.iot.dslink.node.value.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Samuel Grenier
+ */
+public class WatchGroupTest {
+
+    @Test
+    public void deadband() {
+        Value last = new Value(10);
+        Assert.assertFalse(WatchGroup.exceedsDeadband(last, new Value(10.5), 1, false));
+        Assert.assertFalse(WatchGroup.exceedsDeadband(last, new Value(9), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(last, new Value(11.5), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(last, new Value(10.5), 0, false));
+        Assert.assertFalse(WatchGroup.exceedsDeadband(last, new Value(10), 0, false));
+    }
+
+    @Test
+    public void percentDeadband() {
+        Value last = new Value(-200);
+        Assert.assertFalse(WatchGroup.exceedsDeadband(last, new Value(-205), 5, true));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(last, new Value(-211), 5, true));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(new Value(0), new Value(0.1), 5, true));
+    }
+
+    @Test
+    public void emptyValues() {
+        Assert.assertFalse(WatchGroup.exceedsDeadband(null, null, 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(null, new Value(1), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(new Value(1), null, 1, false));
+    }
+
+    @Test
+    public void nonNumeric() {
+        Value a = new Value("a");
+        Assert.assertFalse(WatchGroup.exceedsDeadband(a, new Value("a"), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(a, new Value("b"), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(new Value(1), a, 1, false));
+    }
+
+    @Test
+    public void nan() {
+        Value nan = new Value(Double.NaN);
+        Assert.assertFalse(WatchGroup.exceedsDeadband(nan, new Value(Double.NaN), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(nan, new Value(1), 1, false));
+        Assert.assertTrue(WatchGroup.exceedsDeadband(new Value(1), nan, 1, false));
+    }
+
+    @Test
+    public void isolation() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingDatabase slowDb = new BlockingDatabase(release);
+        MemoryDatabase fastDb = new MemoryDatabase();
+        WatchGroup slow = new WatchGroup(null, new Node("slow", null, null), slowDb);
+        WatchGroup fast = new WatchGroup(null, new Node("fast", null, null), fastDb);
+        Watch slowWatch = new TestWatch(slow);
+        Watch fastWatch = new TestWatch(fast);
+        try {
+            for (int i = 0; i < 100; i++) {
+                slow.dispatch(slowWatch, update(i));
+                fast.dispatch(fastWatch, update(i));
+            }
+            // The fast group writes while the slow group's database blocks
+            long end = System.currentTimeMillis() + 5000;
+            while (fastDb.getPoints().size() < 100 && System.currentTimeMillis() < end) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(100, fastDb.getPoints().size());
+            Assert.assertTrue(slowDb.getPoints().isEmpty());
+        } finally {
+            release.countDown();
+        }
+        slow.close();
+        fast.close();
+        Assert.assertEquals(100, slowDb.getPoints().size());
+    }
+
+    @Test
+    public void boundedBacklog() {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingDatabase db = new BlockingDatabase(release);
+        WatchGroup group = new WatchGroup(null, new Node("group", null, null), db);
+        Watch watch = new TestWatch(group);
+        int count = WatchGroup.MAX_BACKLOG + 1000;
+        try {
+            for (int i = 0; i < count; i++) {
+                group.dispatch(watch, update(i));
+            }
+            Assert.assertTrue(group.getBacklog() <= WatchGroup.MAX_BACKLOG);
+        } finally {
+            release.countDown();
+        }
+        group.close();
+        int written = db.getPoints().size();
+        Assert.assertTrue(written > 0 && written < count);
+        Assert.assertEquals(0, group.getBacklog());
+    }
+
+    private static SubscriptionValue update(int i) {
+        Value value = new Value(i);
+        return new SubscriptionValue("/p", value, null, null, null, null);
+    }
+
+    private static class TestWatch extends Watch {
+
+        TestWatch(WatchGroup group) {
+            super(group, null);
+        }
+
+        @Override
+        public void onData(SubscriptionValue sv) {
+            getGroup().write(this, sv);
+        }
+
+        @Override
+        public void handleLastWritten(Value value) {
+        }
+    }
+
+    private static class BlockingDatabase extends MemoryDatabase {
+
+        private final CountDownLatch release;
+
+        BlockingDatabase(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void write(String path, Value value, long ts) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.write(path, value, ts);
+        }
+    }
+}
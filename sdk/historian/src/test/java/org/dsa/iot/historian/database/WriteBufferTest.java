@@ -0,0 +1,178 @@
+package org.dsa.iot.historian.database;
+
+import org.dsa.iot.dslink.DSLinkHandler;
+import org.dsa.iot.dslink.config.Configuration;
+import org.dsa.iot.dslink.link.Linkable;
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.SubscriptionManager;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.serializer.SerializationManager;
+import org.dsa.iot.historian.utils.WriteData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Samuel Grenier
+ */
+public class WriteBufferTest {
+
+    private WriteBuffers buffers;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        buffers = new WriteBuffers(new Node("db", null, new DetachedLink(null)));
+        file = File.createTempFile("buffer", ".wal");
+        Assert.assertTrue(file.delete());
+    }
+
+    @After
+    public void teardown() {
+        buffers.close();
+        if (file.exists()) {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void appendAndReplay() {
+        WriteBuffer buffer = new WriteBuffer(buffers, file);
+        Assert.assertFalse(buffer.hasPending());
+        buffer.append(points(0, 10));
+        buffer.append(points(10, 5));
+        Assert.assertTrue(buffer.hasPending());
+
+        MemoryDatabase db = new MemoryDatabase();
+        Assert.assertEquals(15, buffer.replay(db, 4));
+        assertPoints(db.getPoints(), 0, 15);
+        Assert.assertFalse(buffer.hasPending());
+        Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void restart() {
+        WriteBuffer buffer = new WriteBuffer(buffers, file);
+        buffer.append(points(0, 10));
+
+        buffer = new WriteBuffer(buffers, file);
+        Assert.assertTrue(buffer.hasPending());
+        buffer.append(points(10, 10));
+
+        MemoryDatabase db = new MemoryDatabase();
+        Assert.assertEquals(20, buffer.replay(db, 100));
+        assertPoints(db.getPoints(), 0, 20);
+    }
+
+    @Test
+    public void tornTail() throws IOException {
+        WriteBuffer buffer = new WriteBuffer(buffers, file);
+        buffer.append(points(0, 10));
+
+        // Simulate a crash halfway through appending a record
+        long valid = file.length();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(valid);
+            raf.writeInt(40);
+            raf.write(new byte[20]);
+        } finally {
+            raf.close();
+        }
+
+        buffer = new WriteBuffer(buffers, file);
+        Assert.assertEquals(valid, file.length());
+        buffer.append(points(10, 10));
+
+        MemoryDatabase db = new MemoryDatabase();
+        Assert.assertEquals(20, buffer.replay(db, 3));
+        assertPoints(db.getPoints(), 0, 20);
+    }
+
+    @Test
+    public void stableLocation() throws IOException {
+        File root = File.createTempFile("link", "");
+        Assert.assertTrue(root.delete());
+        Configuration config = new Configuration();
+        config.setSerializationPath(new File(root, "nodes.json"));
+        DSLinkHandler handler = new DSLinkHandler() {};
+        handler.setConfig(config);
+        DetachedLink link = new DetachedLink(handler);
+
+        Node db = new Node("db", null, link);
+        Node group = new Node("group", null, link);
+        WriteBuffers buffers = new WriteBuffers(db);
+        File dir = buffers.getDirectory();
+        Assert.assertEquals(new File(root, "buffers"), dir.getParentFile());
+        buffers.create(group).append(points(0, 5));
+        buffers.close();
+
+        // Renamed nodes keep their configurations and thus their buffers
+        Node renamedDb = new Node("renamedDb", null, link);
+        renamedDb.setRoConfig("bufferId", db.getRoConfig("bufferId"));
+        Node renamedGroup = new Node("renamedGroup", null, link);
+        renamedGroup.setRoConfig("bufferId", group.getRoConfig("bufferId"));
+        buffers = new WriteBuffers(renamedDb);
+        Assert.assertEquals(dir, buffers.getDirectory());
+        WriteBuffer buffer = buffers.create(renamedGroup);
+        Assert.assertTrue(buffer.hasPending());
+
+        MemoryDatabase memory = new MemoryDatabase();
+        Assert.assertEquals(5, buffer.replay(memory, 10));
+        buffers.close();
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(dir.getParentFile().delete());
+        Assert.assertTrue(root.delete());
+    }
+
+    private static List<WriteData> points(int start, int count) {
+        List<WriteData> points = new ArrayList<>(count);
+        for (int i = start; i < start + count; i++) {
+            points.add(new WriteData("/a", new Value(i * 1.5), 1000L + i));
+        }
+        return points;
+    }
+
+    private static void assertPoints(List<WriteData> points, int start, int count) {
+        Assert.assertEquals(count, points.size());
+        for (int i = 0; i < count; i++) {
+            WriteData data = points.get(i);
+            Assert.assertEquals("/a", data.getPath());
+            Assert.assertEquals(1000L + start + i, data.getTimestamp());
+            double value = data.getValue().getNumber().doubleValue();
+            Assert.assertEquals((start + i) * 1.5, value, 0);
+        }
+    }
+
+    private static class DetachedLink extends Linkable {
+
+        private final SubscriptionManager manager = new SubscriptionManager(null);
+
+        DetachedLink(DSLinkHandler handler) {
+            super(handler);
+        }
+
+        @Override
+        public void batchSet(Map<Node, Value> updates) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SubscriptionManager getSubscriptionManager() {
+            return manager;
+        }
+
+        @Override
+        public SerializationManager getSerialManager() {
+            return null;
+        }
+    }
+}
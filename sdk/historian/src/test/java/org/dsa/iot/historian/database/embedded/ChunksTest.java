@@ -0,0 +1,155 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.dsa.iot.historian.utils.QueryData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Samuel Grenier
+ */
+public class ChunksTest {
+
+    @Test
+    public void bits() {
+        BitOutput out = new BitOutput(1);
+        out.writeBit(true);
+        out.writeBits(0x5, 3);
+        out.writeBits(-1L, 64);
+        out.writeBits(0x123456789L, 37);
+        out.writeBit(false);
+        out.writeBytes(new byte[] { 1, -2, 3 });
+        Assert.assertEquals(1 + 3 + 64 + 37 + 1 + 32 + 24, out.bitLength());
+
+        BitInput in = new BitInput(ByteBuffer.wrap(out.toByteArray()), 0);
+        Assert.assertTrue(in.readBit());
+        Assert.assertEquals(0x5, in.readBits(3));
+        Assert.assertEquals(-1L, in.readBits(64));
+        Assert.assertEquals(0x123456789L, in.readBits(37));
+        Assert.assertFalse(in.readBit());
+        Assert.assertArrayEquals(new byte[] { 1, -2, 3 }, in.readBytes());
+    }
+
+    @Test
+    public void numbers() {
+        double[] values = {
+                1.5, 1.5, -0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE,
+                3, 1e105, 1.03e-105, 42.42
+        };
+        long[] ts = {
+                0, 1000, 2000, 3000, 3001, 3100, 3400, 6000, 6001, 100000,
+                -5000, Long.MAX_VALUE / 2, Long.MIN_VALUE / 2
+        };
+        ChunkEncoder enc = new ChunkEncoder(ChunkEncoder.KIND_NUMBER);
+        for (int i = 0; i < values.length; i++) {
+            Value value = new Value(values[i]);
+            Assert.assertEquals(ChunkEncoder.KIND_NUMBER, Chunks.kindOf(value));
+            enc.append(ts[i], value);
+        }
+        Assert.assertEquals(Long.MIN_VALUE / 2, enc.getMinTs());
+        Assert.assertEquals(Long.MAX_VALUE / 2, enc.getMaxTs());
+
+        List<QueryData> data = decode(enc);
+        Assert.assertEquals(values.length, data.size());
+        for (int i = 0; i < values.length; i++) {
+            QueryData d = data.get(i);
+            Assert.assertEquals(ts[i], d.getTimestamp());
+            double v = d.getValue().getNumber().doubleValue();
+            long expected = Double.doubleToRawLongBits(values[i]);
+            Assert.assertEquals(expected, Double.doubleToRawLongBits(v));
+        }
+    }
+
+    @Test
+    public void largeLongs() {
+        long[] values = {
+                (1L << 53) + 1, (1L << 53) + 2, Long.MAX_VALUE,
+                Long.MIN_VALUE, -(1L << 53) - 1, (1L << 53) + 1
+        };
+        ChunkEncoder enc = new ChunkEncoder(ChunkEncoder.KIND_LONG);
+        for (int i = 0; i < values.length; i++) {
+            Value value = new Value(values[i]);
+            Assert.assertEquals(ChunkEncoder.KIND_LONG, Chunks.kindOf(value));
+            enc.append(i * 1000, value);
+        }
+        Assert.assertEquals(ChunkEncoder.KIND_NUMBER,
+                            Chunks.kindOf(new Value(1L << 53)));
+
+        List<QueryData> data = decode(enc);
+        Assert.assertEquals(values.length, data.size());
+        for (int i = 0; i < values.length; i++) {
+            long v = data.get(i).getValue().getNumber().longValue();
+            Assert.assertEquals(values[i], v);
+        }
+    }
+
+    @Test
+    public void otherKinds() {
+        JsonObject map = new JsonObject();
+        map.put("a", "x");
+        JsonArray array = new JsonArray();
+        array.add("b");
+
+        Value v = roundTrip(new Value(true));
+        Assert.assertTrue(v.getBool());
+        v = roundTrip(new Value("text"));
+        Assert.assertEquals("text", v.getString());
+        v = roundTrip(new Value(map));
+        Assert.assertEquals("x", v.getMap().get("a"));
+        v = roundTrip(new Value(array));
+        Assert.assertEquals("b", v.getArray().get(0));
+        v = roundTrip(new Value(new byte[] { 1, 2 }));
+        Assert.assertArrayEquals(new byte[] { 1, 2 }, v.getBinary());
+    }
+
+    @Test
+    public void range() {
+        ChunkEncoder enc = new ChunkEncoder(ChunkEncoder.KIND_NUMBER);
+        for (int i = 0; i < 10; i++) {
+            enc.append(i * 10, new Value(i));
+        }
+        final List<QueryData> data = new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.wrap(enc.toByteArray());
+        Chunks.decode(buf, 0, enc.getKind(), enc.getCount(), 25, 50,
+                      new Handler<QueryData>() {
+            @Override
+            public void handle(QueryData event) {
+                data.add(event);
+            }
+        });
+        Assert.assertEquals(3, data.size());
+        Assert.assertEquals(30, data.get(0).getTimestamp());
+        Assert.assertEquals(50, data.get(2).getTimestamp());
+    }
+
+    private static Value roundTrip(Value value) {
+        ChunkEncoder enc = new ChunkEncoder(Chunks.kindOf(value));
+        enc.append(10, value);
+        enc.append(25, value);
+        List<QueryData> data = decode(enc);
+        Assert.assertEquals(2, data.size());
+        Assert.assertEquals(25, data.get(1).getTimestamp());
+        return data.get(1).getValue();
+    }
+
+    private static List<QueryData> decode(ChunkEncoder enc) {
+        final List<QueryData> data = new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.wrap(enc.toByteArray());
+        Chunks.decode(buf, 0, enc.getKind(), enc.getCount(),
+                      Long.MIN_VALUE, Long.MAX_VALUE, new Handler<QueryData>() {
+            @Override
+            public void handle(QueryData event) {
+                data.add(event);
+            }
+        });
+        return data;
+    }
+}
@@ -0,0 +1,290 @@
+package org.dsa.iot.historian.database.embedded;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.QueryCursor;
+import org.dsa.iot.historian.utils.QueryData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Samuel Grenier
+ */
+public class SeriesTest {
+
+    private static final long DAY = Series.PARTITION_SIZE;
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("series", "");
+        Assert.assertTrue(dir.delete());
+    }
+
+    @After
+    public void teardown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                Assert.assertTrue(f.delete());
+            }
+        }
+        Assert.assertTrue(!dir.exists() || dir.delete());
+    }
+
+    @Test
+    public void writeAndQuery() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 10000; i++) {
+            series.write(DAY - 5000 + i, new Value(i * 0.5));
+        }
+        series.write(DAY + 6000, new Value("text"));
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        // Unflushed points are returned as well
+        Assert.assertEquals(10001, data.size());
+
+        series.flush();
+        series = new Series(dir);
+        data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(10001, data.size());
+        for (int i = 0; i < 10000; i++) {
+            QueryData d = data.get(i);
+            Assert.assertEquals(DAY - 5000 + i, d.getTimestamp());
+            Assert.assertEquals(i * 0.5, d.getValue().getNumber().doubleValue(), 0);
+        }
+        Assert.assertEquals("text", data.get(10000).getValue().getString());
+
+        data = query(series, DAY - 10, DAY + 10);
+        Assert.assertEquals(21, data.size());
+
+        Assert.assertEquals(DAY - 5000, series.queryFirst().getTimestamp());
+        Assert.assertEquals(DAY + 6000, series.queryLast().getTimestamp());
+
+        QueryCursor cursor = series.cursor(DAY - 100, DAY + 10000);
+        int count = 0;
+        List<QueryData> batch;
+        while ((batch = cursor.next(7)) != null) {
+            Assert.assertTrue(batch.size() <= 7);
+            count += batch.size();
+        }
+        cursor.close();
+        Assert.assertEquals(5101, count);
+    }
+
+    @Test
+    public void delete() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 100; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.delete(10000, 19999);
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(90, data.size());
+        Assert.assertEquals(9000, data.get(9).getTimestamp());
+        Assert.assertEquals(20000, data.get(10).getTimestamp());
+    }
+
+    @Test
+    public void tornTail() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 10; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.seal();
+        File segment = new File(dir, "0.seg");
+        long valid = segment.length();
+
+        // Simulate a crash while appending the next chunk
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            raf.seek(valid);
+            raf.writeInt(400);
+            raf.write(new byte[64]);
+        } finally {
+            raf.close();
+        }
+
+        series = new Series(dir);
+        Assert.assertEquals(valid, segment.length());
+        for (int i = 10; i < 20; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.seal();
+
+        series = new Series(dir);
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(20, data.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(i * 1000, data.get(i).getTimestamp());
+            Assert.assertEquals(i, data.get(i).getValue().getNumber().intValue());
+        }
+    }
+
+    @Test
+    public void corruptTail() throws IOException {
+        Series series = new Series(dir);
+        series.write(0, new Value(1));
+        series.seal();
+        series.write(1000, new Value(2));
+        series.write(2000, new Value(3));
+        series.seal();
+        File segment = new File(dir, "0.seg");
+
+        // The payload of the last chunk was never written out
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            long length = raf.length();
+            raf.seek(length - 4);
+            raf.writeInt(0);
+        } finally {
+            raf.close();
+        }
+
+        series = new Series(dir);
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(1, data.size());
+        Assert.assertEquals(1, data.get(0).getValue().getNumber().intValue());
+    }
+
+    @Test
+    public void slowSeries() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 1000; i++) {
+            series.write(i * 1000, new Value(i / 50));
+            if (i % 5 == 4) {
+                // Periodic flushes keep appending to the open chunk
+                series.flush();
+            }
+        }
+        series.seal();
+        File segment = new File(dir, "0.seg");
+        Assert.assertTrue(segment.length() < 1000);
+        Assert.assertEquals(1, dir.list().length);
+        Assert.assertEquals(1000, query(series, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void restoresOpenChunk() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 10; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.flush();
+        Assert.assertFalse(new File(dir, "0.seg").exists());
+
+        series = new Series(dir);
+        for (int i = 10; i < 20; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.seal();
+        series = new Series(dir);
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(20, data.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(i * 1000, data.get(i).getTimestamp());
+        }
+        Assert.assertEquals(new File(dir, "0.seg").length(), chunkSize(data.size()));
+    }
+
+    @Test
+    public void sealedBeforeRestore() throws IOException {
+        Series series = new Series(dir);
+        for (int i = 0; i < 10; i++) {
+            series.write(i * 1000, new Value(i));
+        }
+        series.flush();
+        File open = new File(dir, "0.open");
+        byte[] persisted = new byte[(int) open.length()];
+        RandomAccessFile raf = new RandomAccessFile(open, "r");
+        try {
+            raf.readFully(persisted);
+        } finally {
+            raf.close();
+        }
+        series.seal();
+
+        // Simulate a crash before the open chunk could be deleted
+        raf = new RandomAccessFile(open, "rw");
+        try {
+            raf.write(persisted);
+        } finally {
+            raf.close();
+        }
+        series = new Series(dir);
+        Assert.assertFalse(open.exists());
+        Assert.assertEquals(10, query(series, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void olderPartition() throws IOException {
+        Series series = new Series(dir);
+        series.write(DAY + 1000, new Value(1));
+        series.write(DAY + 2000, new Value(2));
+        // An overwritten older point opens a chunk of an older partition
+        series.write(1000, new Value(0));
+        Assert.assertTrue(new File(dir, "1.seg").exists());
+
+        List<QueryData> data = query(series, 0, Long.MAX_VALUE);
+        Assert.assertEquals(3, data.size());
+        Assert.assertEquals(1000, data.get(0).getTimestamp());
+        Assert.assertEquals(DAY + 1000, data.get(1).getTimestamp());
+        Assert.assertEquals(DAY + 2000, data.get(2).getTimestamp());
+
+        QueryCursor cursor = series.cursor(0, Long.MAX_VALUE);
+        List<QueryData> batch = cursor.next(10);
+        Assert.assertEquals(1000, batch.get(0).getTimestamp());
+        Assert.assertEquals(DAY + 2000, batch.get(2).getTimestamp());
+        cursor.close();
+
+        Assert.assertEquals(1000, series.queryFirst().getTimestamp());
+        Assert.assertEquals(DAY + 2000, series.queryLast().getTimestamp());
+    }
+
+    @Test
+    public void failedFlush() throws IOException {
+        // The directory cannot be created while a file is in the way
+        Assert.assertTrue(dir.createNewFile());
+        Series series = new Series(dir);
+        series.write(1000, new Value(1));
+        try {
+            series.flush();
+            Assert.fail();
+        } catch (IOException ignored) {
+        }
+        Assert.assertEquals(1, query(series, 0, Long.MAX_VALUE).size());
+
+        Assert.assertTrue(dir.delete());
+        series.flush();
+        series = new Series(dir);
+        Assert.assertEquals(1, query(series, 0, Long.MAX_VALUE).size());
+    }
+
+    private static long chunkSize(int points) {
+        ChunkEncoder enc = new ChunkEncoder(ChunkEncoder.KIND_NUMBER);
+        for (int i = 0; i < points; i++) {
+            enc.append(i * 1000, new Value(i));
+        }
+        return Chunks.HEADER_SIZE + enc.toByteArray().length;
+    }
+
+    private static List<QueryData> query(Series series, long from, long to)
+                                                    throws IOException {
+        final List<QueryData> data = new ArrayList<>();
+        series.query(from, to, new Handler<QueryData>() {
+            @Override
+            public void handle(QueryData event) {
+                data.add(event);
+            }
+        });
+        return data;
+    }
+}
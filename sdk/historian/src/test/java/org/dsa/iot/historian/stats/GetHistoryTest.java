@@ -0,0 +1,46 @@
+package org.dsa.iot.historian.stats;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.util.handler.CompleteHandler;
+import org.dsa.iot.historian.database.Database;
+import org.dsa.iot.historian.stats.interval.IntervalParser;
+import org.dsa.iot.historian.stats.rollup.Rollup;
+import org.dsa.iot.historian.utils.QueryData;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Samuel Grenier
+ */
+public class GetHistoryTest {
+
+    @Test
+    public void queryOverrides() {
+        Assert.assertFalse(GetHistory.overridesQuery(GetHistory.class));
+        Assert.assertTrue(GetHistory.overridesQuery(Overriding.class));
+        Assert.assertTrue(GetHistory.overridesQuery(Inheriting.class));
+    }
+
+    private static class Overriding extends GetHistory {
+
+        Overriding(Node node, Database db) {
+            super(node, db);
+        }
+
+        @Override
+        protected void query(long from,
+                             long to,
+                             Rollup.Type type,
+                             IntervalParser parser,
+                             CompleteHandler<QueryData> handler) {
+            handler.complete();
+        }
+    }
+
+    private static class Inheriting extends Overriding {
+
+        Inheriting(Node node, Database db) {
+            super(node, db);
+        }
+    }
+}
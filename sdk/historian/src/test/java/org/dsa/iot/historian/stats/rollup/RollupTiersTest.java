@@ -0,0 +1,122 @@
+package org.dsa.iot.historian.stats.rollup;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.dsa.iot.historian.database.MemoryDatabase;
+import org.dsa.iot.historian.utils.WriteData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Samuel Grenier
+ */
+public class RollupTiersTest {
+
+    private static final String PATH = "/a";
+    private static final String MINUTES = RollupTier.MINUTE.pathOf(PATH);
+    private static final String HOURS = RollupTier.HOUR.pathOf(PATH);
+
+    @Test
+    public void restoreAfterRestart() throws InterruptedException {
+        MemoryDatabase db = new MemoryDatabase();
+        RollupTiers tiers = new RollupTiers(db, PATH);
+        write(db, tiers, 0, 90);
+        Assert.assertNotNull(summary(db, MINUTES, 0));
+
+        // The bucket of the second minute is lost on restart
+        tiers = new RollupTiers(db, PATH);
+        write(db, tiers, 91, 180);
+
+        RollupSummary s = summary(db, MINUTES, 60000);
+        Assert.assertEquals(60, s.getCount());
+        Assert.assertEquals(sum(60, 119), sum(s), 0);
+
+        write(db, tiers, 3600, 3600);
+        s = summary(db, HOURS, 0);
+        Assert.assertEquals(181, s.getCount());
+        Assert.assertEquals(sum(0, 180), sum(s), 0);
+    }
+
+    @Test
+    public void rebuild() throws InterruptedException {
+        MemoryDatabase db = new MemoryDatabase();
+        RollupTiers tiers = new RollupTiers(db, PATH);
+        write(db, tiers, 0, 180);
+
+        // Overwrites the second minute with 5
+        db.delete(PATH, 60000, 119999);
+        for (int i = 60; i < 120; i++) {
+            db.write(PATH, new Value(5), i * 1000);
+        }
+        tiers.rebuild(60000, 119999);
+
+        RollupSummary s = summary(db, MINUTES, 60000);
+        Assert.assertEquals(60, s.getCount());
+        Assert.assertEquals(300, sum(s), 0);
+        Assert.assertEquals(sum(0, 59), sum(summary(db, MINUTES, 0)), 0);
+
+        // The open hour is restored with the rewritten values
+        write(db, tiers, 181, 200);
+        write(db, tiers, 3600, 3600);
+        s = summary(db, HOURS, 0);
+        Assert.assertEquals(201, s.getCount());
+        double expected = sum(0, 200) - sum(60, 119) + 300;
+        Assert.assertEquals(expected, sum(s), 0);
+    }
+
+    /**
+     * Writes one value per second where each value is its second.
+     */
+    private static void write(final MemoryDatabase db,
+                              RollupTiers tiers,
+                              int from,
+                              int to) throws InterruptedException {
+        for (int i = from; i <= to; i++) {
+            List<WriteData> points = new ArrayList<>();
+            Value value = new Value(i);
+            points.add(new WriteData(PATH, value, i * 1000L));
+            tiers.update(value, i * 1000L, points);
+            db.writeBatch(points);
+            if (tiers.needsRestore()) {
+                tiers.restore(new Handler<List<WriteData>>() {
+                    @Override
+                    public void handle(List<WriteData> event) {
+                        db.writeBatch(event);
+                    }
+                });
+                long end = System.currentTimeMillis() + 5000;
+                while (!tiers.isRestored()) {
+                    Assert.assertTrue(System.currentTimeMillis() < end);
+                    Thread.sleep(1);
+                }
+            }
+        }
+    }
+
+    private static RollupSummary summary(MemoryDatabase db, String path, long ts) {
+        RollupSummary found = null;
+        for (WriteData data : db.getPoints()) {
+            if (data.getPath().equals(path) && data.getTimestamp() == ts) {
+                Assert.assertNull("Duplicate summary", found);
+                found = RollupSummary.fromValue(data.getValue());
+            }
+        }
+        Assert.assertNotNull(found);
+        return found;
+    }
+
+    private static double sum(RollupSummary s) {
+        return s.getValue(Rollup.Type.SUM).getNumber().doubleValue();
+    }
+
+    private static double sum(int from, int to) {
+        double sum = 0;
+        for (int i = from; i <= to; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+}
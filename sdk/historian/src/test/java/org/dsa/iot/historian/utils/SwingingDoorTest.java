@@ -0,0 +1,70 @@
+package org.dsa.iot.historian.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Samuel Grenier
+ */
+public class SwingingDoorTest {
+
+    @Test
+    public void straightLine() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        Assert.assertEquals("p0", door.offer(0, 0, "p0", 0.5));
+        for (int i = 1; i <= 10; i++) {
+            Assert.assertNull(door.offer(i, i, "p" + i, 0.5));
+        }
+        // The end of the line is only held back
+        Assert.assertEquals("p10", door.reset());
+        Assert.assertNull(door.reset());
+    }
+
+    @Test
+    public void bend() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        door.offer(0, 0, "p0", 0.1);
+        Assert.assertNull(door.offer(1, 1, "p1", 0.1));
+        Assert.assertNull(door.offer(2, 2, "p2", 0.1));
+        // Flat after the peak closes the door, the peak is archived
+        Assert.assertEquals("p2", door.offer(3, 2, "p3", 0.1));
+        Assert.assertNull(door.offer(4, 2, "p4", 0.1));
+        Assert.assertEquals("p4", door.reset());
+    }
+
+    @Test
+    public void withinTolerance() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        door.offer(0, 0, "p0", 1);
+        Assert.assertNull(door.offer(1, 0.5, "p1", 1));
+        Assert.assertNull(door.offer(2, -0.5, "p2", 1));
+        Assert.assertNull(door.offer(3, 0.2, "p3", 1));
+        Assert.assertEquals("p3", door.reset());
+    }
+
+    @Test
+    public void resetArchivesNext() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        door.offer(0, 0, "p0", 1);
+        door.offer(1, 0, "p1", 1);
+        Assert.assertEquals("p1", door.reset());
+        Assert.assertEquals("p2", door.offer(2, 5, "p2", 1));
+    }
+
+    @Test
+    public void nan() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        door.offer(0, 0, "p0", 1);
+        Assert.assertEquals("p1", door.offer(1, Double.NaN, "p1", 1));
+        Assert.assertEquals("p2", door.offer(2, 3, "p2", 1));
+    }
+
+    @Test
+    public void olderPoints() {
+        SwingingDoor<String> door = new SwingingDoor<>();
+        door.offer(5, 0, "p0", 1);
+        Assert.assertNull(door.offer(5, 10, "p1", 1));
+        Assert.assertNull(door.offer(4, 10, "p2", 1));
+        Assert.assertNull(door.reset());
+    }
+}